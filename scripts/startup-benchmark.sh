@@ -0,0 +1,72 @@
+#!/usr/bin/env bash
+# Замер старта Filmorate без профиля fast-startup и с ним: время от запуска JVM до первого обслуженного
+# запроса и RSS процесса после прогрева. Печатает медиану по RUNS запускам.
+# Перед запуском: mvn -Pfast-startup package (нужны тонкий jar, target/dependency и target/filmorate.jsa).
+# Оба варианта запускаются с одного classpath, различаются только AOT-инициализацией и архивом классов
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+JAVA=${JAVA:-java}
+APP_JAR=${APP_JAR:-$(ls target/*-thin.jar 2>/dev/null | head -n 1)}
+DEPENDENCIES=${DEPENDENCIES:-target/dependency}
+ARCHIVE=${ARCHIVE:-target/filmorate.jsa}
+PORT=${PORT:-18080}
+RUNS=${RUNS:-5}
+WARMUP_REQUESTS=${WARMUP_REQUESTS:-2000}
+MAIN=ru.yandex.practicum.filmorate.FilmorateApplication
+URL="http://localhost:${PORT}/films"
+
+if [[ -z "$APP_JAR" || ! -f "$ARCHIVE" ]]; then
+    echo "No thin jar or class-data archive in target, run: mvn -Pfast-startup package" >&2
+    exit 1
+fi
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+# Один запуск: печатает "<мс до первого ответа> <RSS в КБ после прогрева>"
+run_once() {
+    local log
+    log=$(mktemp)
+    local started
+    started=$(now_ms)
+    "$JAVA" "$@" -cp "$APP_JAR:$DEPENDENCIES/*" "$MAIN" --server.port="$PORT" >"$log" 2>&1 &
+    local pid=$!
+    until curl -sf -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "Application exited before serving a request, log: $log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    local first_response=$(( $(now_ms) - started ))
+    seq "$WARMUP_REQUESTS" | xargs -P 8 -I{} curl -sf -o /dev/null "$URL"
+    local rss
+    rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    rm -f "$log"
+    echo "$first_response $rss"
+}
+
+measure() {
+    local label=$1
+    shift
+    local results=()
+    for ((i = 0; i < RUNS; i++)); do
+        results+=("$(run_once "$@")")
+    done
+    local startup rss
+    startup=$(printf '%s\n' "${results[@]}" | cut -d' ' -f1 | median)
+    rss=$(printf '%s\n' "${results[@]}" | cut -d' ' -f2 | median)
+    printf '%-14s first request %6d ms   RSS after warm-up %7d KB\n' "$label" "$startup" "$rss"
+}
+
+measure "baseline"
+measure "fast-startup" -Dspring.aot.enabled=true -XX:SharedArchiveFile="$ARCHIVE"
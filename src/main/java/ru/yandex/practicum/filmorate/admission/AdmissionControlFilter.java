@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Контроль допуска для пишущих запросов. Чтение пропускается без проверок, запись проходит
+// корзину токенов клиента, корзину эндпоинта и адаптивный лимит параллелизма.
+// Отказ формируется до DispatcherServlet из заранее подготовленного тела ответа.
+@Component
+@ConditionalOnProperty(name = "filmorate.admission.enabled", havingValue = "true", matchIfMissing = true)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    // Корзины заводятся только на известные маршруты записи, остальные пути делят одну корзину,
+    // поэтому клиент не может раздуть таблицу корзин произвольными URI
+    private static final Set<String> WRITE_ENDPOINTS = Set.of(
+            "POST /films", "PUT /films", "DELETE /films/{id}",
+            "PUT /films/{id}/like/{id}", "DELETE /films/{id}/like/{id}",
+            "POST /users", "PUT /users", "DELETE /users/{id}",
+            "PUT /users/{id}/friends/{id}", "DELETE /users/{id}/friends/{id}",
+            "POST /import/films", "POST /import/users", "POST /import/likes", "POST /import/friendships");
+    private static final String OTHER_ENDPOINT = "OTHER";
+    // Импорт - долгий поток; его время ответа ничего не говорит о перегрузке и опускало бы лимит остальным
+    private static final String IMPORT_PREFIX = "POST /import/";
+
+    private static final byte[] TOO_MANY_REQUESTS = "{\"error\":\"Too many requests\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OVERLOADED = "{\"error\":\"Service overloaded, retry later\"}".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_TRACKED_CLIENTS = 10_000;
+    private static final long IDLE_CLIENT_NANOS = 60_000_000_000L;
+
+    private final Map<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> endpointBuckets = new ConcurrentHashMap<>();
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final double clientRate;
+    private final double clientBurst;
+    private final double endpointRate;
+    private final double endpointBurst;
+
+    @Autowired
+    public AdmissionControlFilter(@Value("${filmorate.admission.client-rate:200}") double clientRate,
+                                  @Value("${filmorate.admission.client-burst:400}") double clientBurst,
+                                  @Value("${filmorate.admission.endpoint-rate:5000}") double endpointRate,
+                                  @Value("${filmorate.admission.endpoint-burst:10000}") double endpointBurst,
+                                  @Value("${filmorate.admission.concurrency.initial:32}") int initialLimit,
+                                  @Value("${filmorate.admission.concurrency.min:4}") int minLimit,
+                                  @Value("${filmorate.admission.concurrency.max:150}") int maxLimit,
+                                  @Value("${filmorate.admission.concurrency.target-latency-ms:50}") long targetLatencyMs,
+                                  @Value("${server.tomcat.threads.max:200}") int workerThreads) {
+        this(clientRate, clientBurst, endpointRate, endpointBurst,
+                new AdaptiveConcurrencyLimiter(initialLimit, minLimit, writeCap(maxLimit, workerThreads),
+                        targetLatencyMs, 0.9));
+    }
+
+    public AdmissionControlFilter(double clientRate, double clientBurst, double endpointRate, double endpointBurst,
+                                  AdaptiveConcurrencyLimiter limiter) {
+        this.clientRate = clientRate;
+        this.clientBurst = clientBurst;
+        this.endpointRate = endpointRate;
+        this.endpointBurst = endpointBurst;
+        this.limiter = limiter;
+    }
+
+    // Записи не получают больше трех четвертей потоков Tomcat: остаток всегда доступен чтению
+    private static int writeCap(int maxLimit, int workerThreads) {
+        int cap = Math.max(1, workerThreads * 3 / 4);
+        if (maxLimit > cap) {
+            log.warn("filmorate.admission.concurrency.max={} exceeds {} of {} worker threads, using {}",
+                    maxLimit, cap, workerThreads, cap);
+            return cap;
+        }
+        return maxLimit;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String endpoint = endpointKey(request);
+        if (!clientBucket(request.getRemoteAddr()).tryAcquire()
+                || !endpointBuckets.computeIfAbsent(endpoint, key -> new TokenBucket(endpointRate, endpointBurst))
+                .tryAcquire()) {
+            reject(response, 429, TOO_MANY_REQUESTS);
+            return;
+        }
+        if (endpoint.startsWith(IMPORT_PREFIX)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            reject(response, 503, OVERLOADED);
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - started);
+        }
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    private TokenBucket clientBucket(String client) {
+        TokenBucket bucket = clientBuckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (clientBuckets.size() >= MAX_TRACKED_CLIENTS) {
+            evictIdleClients();
+        }
+        return clientBuckets.computeIfAbsent(client, key -> new TokenBucket(clientRate, clientBurst));
+    }
+
+    private void evictIdleClients() {
+        long now = System.nanoTime();
+        clientBuckets.values().removeIf(bucket -> now - bucket.getLastUsed() > IDLE_CLIENT_NANOS);
+    }
+
+    public int getTrackedEndpoints() {
+        return endpointBuckets.size();
+    }
+
+    // PUT /films/12/like/7 -> PUT /films/{id}/like/{id}; незнакомые маршруты -> OTHER
+    private static String endpointKey(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        StringBuilder key = new StringBuilder(request.getMethod().length() + uri.length() + 8)
+                .append(request.getMethod()).append(' ');
+        int start = 0;
+        while (start < uri.length()) {
+            int end = uri.indexOf('/', start + 1);
+            if (end < 0) {
+                end = uri.length();
+            }
+            String segment = uri.substring(start, end);
+            key.append(isNumericSegment(segment) ? "/{id}" : segment);
+            start = end;
+        }
+        String endpoint = key.toString();
+        return WRITE_ENDPOINTS.contains(endpoint) ? endpoint : OTHER_ENDPOINT;
+    }
+
+    private static boolean isNumericSegment(String segment) {
+        if (segment.length() < 2) {
+            return false;
+        }
+        for (int i = 1; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void reject(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setHeader("Retry-After", "1");
+        response.setContentType("application/json");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exporter.ExportService;
+import ru.yandex.practicum.filmorate.exporter.ExportType;
+
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final ExportService exportService;
+
+    @Autowired
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    //выгрузка films, users, likes или friendships в NDJSON; длина заранее неизвестна - ответ идет чанками
+    @GetMapping("/{type}")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable String type,
+                                                        @RequestParam(defaultValue = "false") boolean gzip,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING,
+                                                                required = false) String acceptEncoding) {
+        ExportType exportType = ExportType.fromPath(type);
+        boolean compress = gzip || (acceptEncoding != null && acceptEncoding.contains("gzip"));
+        StreamingResponseBody body = out -> {
+            if (compress) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, GZIP_BUFFER_SIZE)) {
+                    exportService.export(exportType, gzipOut);
+                }
+            } else {
+                exportService.export(exportType, out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + exportType.name().toLowerCase()
+                        + (compress ? ".ndjson.gz\"" : ".ndjson\""));
+        if (compress) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+}
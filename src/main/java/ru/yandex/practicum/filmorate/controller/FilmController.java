@@ -1,26 +1,31 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.executor.HeavyQueryExecutor;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
 
     private final FilmService filmService;
+    private final HeavyQueryExecutor heavyQueries;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, HeavyQueryExecutor heavyQueries) {
         this.filmService = filmService;
+        this.heavyQueries = heavyQueries;
     }
 
     //создание фильма
@@ -29,10 +34,16 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
-    //обновление фильма
+    //обновление фильма; версия из If-Match имеет приоритет над version в теле
     @PutMapping
-    public Film update(@Valid @RequestBody Film film) {
-        return filmService.update(film);
+    public ResponseEntity<Film> update(@Valid @RequestBody Film film,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = EntityTags.parseIfMatch(ifMatch);
+        if (expectedVersion != null) {
+            film.setVersion(expectedVersion);
+        }
+        Film updated = filmService.update(film);
+        return ResponseEntity.ok().eTag(EntityTags.of(updated.getVersion())).body(updated);
     }
 
     //получение всех фильмов
@@ -43,8 +54,16 @@ public class FilmController {
 
     //получение фильма по ID
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable Long id) {
-        return filmService.getFilmById(id);
+    public ResponseEntity<Film> getFilmById(@PathVariable Long id) {
+        Film film = filmService.getFilmById(id);
+        return ResponseEntity.ok().eTag(EntityTags.of(film.getVersion())).body(film);
+    }
+
+    //удаление фильма вместе с лайками
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteFilm(@PathVariable Long id) {
+        filmService.delete(id);
+        return ResponseEntity.noContent().build();
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -65,9 +84,9 @@ public class FilmController {
         return ResponseEntity.ok().build();
     }
 
-    //получение популярных фильмов
+    //получение популярных фильмов; сортировка идет в пуле тяжелых запросов, а не в потоке Tomcat
     @GetMapping("/popular")
-    public Collection<Film> getTopFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getTopFilms(count);
+    public CompletableFuture<Collection<Film>> getTopFilms(@RequestParam(defaultValue = "10") int count) {
+        return heavyQueries.submit(() -> filmService.getTopFilms(count));
     }
 }
\ No newline at end of file
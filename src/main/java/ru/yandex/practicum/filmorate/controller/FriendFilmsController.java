@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FriendFilmsService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/users")
+public class FriendFilmsController {
+
+    private final FriendFilmsService friendFilmsService;
+
+    @Autowired
+    public FriendFilmsController(FriendFilmsService friendFilmsService) {
+        this.friendFilmsService = friendFilmsService;
+    }
+
+    // Фильмы, которые лайкнуло больше всего друзей пользователя
+    @GetMapping("/{id}/friends/popular")
+    public List<Film> getPopularAmongFriends(@PathVariable Long id,
+                                             @RequestParam(defaultValue = "10") int count) throws NotFoundException {
+        return friendFilmsService.getPopularAmongFriends(id, count);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.importer.BulkImportService;
+import ru.yandex.practicum.filmorate.importer.ImportReport;
+import ru.yandex.practicum.filmorate.importer.ImportType;
+import ru.yandex.practicum.filmorate.importer.RecordFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/import")
+public class ImportController {
+
+    private final BulkImportService importService;
+
+    @Autowired
+    public ImportController(BulkImportService importService) {
+        this.importService = importService;
+    }
+
+    //пакетный импорт films, users, likes или friendships из NDJSON/CSV в теле запроса
+    @PostMapping("/{type}")
+    public ImportReport importRecords(@PathVariable String type,
+                                      @RequestParam(required = false) String format,
+                                      @RequestHeader(value = "Content-Type", required = false) String contentType,
+                                      InputStream body) throws IOException {
+        return importService.importRecords(ImportType.fromPath(type), RecordFormat.resolve(format, contentType), body);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.executor.ExecutorStats;
+import ru.yandex.practicum.filmorate.executor.HeavyQueryExecutor;
+import ru.yandex.practicum.filmorate.replication.ReplicaRouter;
+import ru.yandex.practicum.filmorate.replication.ReplicationStats;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final HeavyQueryExecutor heavyQueries;
+    private final ReplicaRouter replicaRouter;
+
+    @Autowired
+    public MetricsController(FilmService filmService, UserService userService, HeavyQueryExecutor heavyQueries,
+                             ReplicaRouter replicaRouter) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.heavyQueries = heavyQueries;
+        this.replicaRouter = replicaRouter;
+    }
+
+    // Сколько вызовов тяжелых чтений обслужено чужим вычислением или микрокешем
+    @GetMapping("/coalescing")
+    public List<SingleFlight.Stats> getCoalescingStats() {
+        List<SingleFlight.Stats> stats = new ArrayList<>(filmService.getCoalescingStats());
+        stats.addAll(userService.getCoalescingStats());
+        return stats;
+    }
+
+    // Загрузка пулов: потоки, очередь, отказы и таймауты
+    @GetMapping("/executors")
+    public List<ExecutorStats> getExecutorStats() {
+        return List.of(heavyQueries.getStats());
+    }
+
+    // Отставание реплик от журнала и доля чтений, обслуженных репликами
+    @GetMapping("/replication")
+    public ReplicationStats getReplicationStats() {
+        return replicaRouter.getStats();
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.service.GlobalStats;
+import ru.yandex.practicum.filmorate.service.StatsService;
+
+@RestController
+@RequestMapping("/stats")
+public class StatsController {
+
+    private final StatsService statsService;
+
+    @Autowired
+    public StatsController(StatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    // Итоги и гистограммы ведутся по событиям записи, запрос не обходит хранилища
+    @GetMapping
+    public GlobalStats getStats() {
+        return statsService.getStats();
+    }
+}
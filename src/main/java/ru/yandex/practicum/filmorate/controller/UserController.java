@@ -2,25 +2,32 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.executor.HeavyQueryExecutor;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
     private final UserService userService;
+    private final HeavyQueryExecutor heavyQueries;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, HeavyQueryExecutor heavyQueries) {
         this.userService = userService;
+        this.heavyQueries = heavyQueries;
     }
 
     @GetMapping
@@ -34,14 +41,29 @@ public class UserController {
         return userService.create(user);
     }
 
+    // Версия из If-Match имеет приоритет над version в теле
     @PutMapping
-    public User update(@Valid @RequestBody User user) throws NotFoundException, ValidationException {
-        return userService.update(user);
+    public ResponseEntity<User> update(@Valid @RequestBody User user,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws NotFoundException, ValidationException {
+        Long expectedVersion = EntityTags.parseIfMatch(ifMatch);
+        if (expectedVersion != null) {
+            user.setVersion(expectedVersion);
+        }
+        User updated = userService.update(user);
+        return ResponseEntity.ok().eTag(EntityTags.of(updated.getVersion())).body(updated);
     }
 
     @GetMapping("/{id}")
-    public User getUserById(@PathVariable Long id) throws NotFoundException, ValidationException {
-        return userService.findById(id);
+    public ResponseEntity<User> getUserById(@PathVariable Long id) throws NotFoundException, ValidationException {
+        User user = userService.findById(id);
+        return ResponseEntity.ok().eTag(EntityTags.of(user.getVersion())).body(user);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void delete(@PathVariable Long id) throws NotFoundException {
+        userService.delete(id);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -56,13 +78,22 @@ public class UserController {
         userService.removeFriend(id, friendId);
     }
 
+    // Запросы по графу дружбы выполняются в пуле тяжелых запросов, поток Tomcat освобождается сразу
     @GetMapping("/{id}/friends")
-    public Collection<User> getFriends(@PathVariable Long id) throws NotFoundException {
-        return userService.getFriends(id);
+    public CompletableFuture<Collection<User>> getFriends(@PathVariable Long id) {
+        return heavyQueries.submit(() -> userService.getFriends(id));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public Collection<User> getCommonFriends(@PathVariable Long id, @PathVariable Long otherId) throws NotFoundException {
-        return userService.getCommonFriends(id, otherId);
+    public CompletableFuture<Collection<User>> getCommonFriends(@PathVariable Long id,
+                                                                @PathVariable Long otherId) {
+        return heavyQueries.submit(() -> userService.getCommonFriends(id, otherId));
+    }
+
+    // Кратчайшая цепочка дружбы между пользователями, включая их самих
+    @GetMapping("/{id}/path/{otherId}")
+    public CompletableFuture<List<User>> getPath(@PathVariable Long id, @PathVariable Long otherId,
+                                                 @RequestParam(defaultValue = "6") int maxDepth) {
+        return heavyQueries.submit(() -> userService.findPath(id, otherId, maxDepth));
     }
 }
\ No newline at end of file
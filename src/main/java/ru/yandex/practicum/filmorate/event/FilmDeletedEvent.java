@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.event;
+
+import java.util.Set;
+
+// Публикуется после удаления фильма; likedUserIds - лайкнувшие его на момент удаления
+public record FilmDeletedEvent(long filmId, Set<Long> likedUserIds) {
+}
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.event;
+
+// Публикуется после создания или обновления полей фильма
+public record FilmSavedEvent(long filmId) {
+}
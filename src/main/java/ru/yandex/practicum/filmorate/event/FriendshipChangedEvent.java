@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.event;
+
+// Публикуется только после настоящего добавления или удаления дружбы; связь симметрична
+public record FriendshipChangedEvent(long userId, long friendId, boolean added) {
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.event;
+
+import ru.yandex.practicum.filmorate.importer.ImportType;
+
+// Публикуется после массового импорта: отдельные события на каждую запись не рассылаются
+public record ImportCompletedEvent(ImportType type, long imported) {
+}
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.event;
+
+// Публикуется только после настоящего добавления или удаления лайка: повторный лайк события не дает
+public record LikeChangedEvent(long filmId, long userId, boolean added) {
+}
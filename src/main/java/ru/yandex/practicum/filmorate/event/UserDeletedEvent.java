@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.event;
+
+import java.util.Set;
+
+// Публикуется после удаления пользователя; friendIds - его друзья на момент удаления
+public record UserDeletedEvent(long userId, Set<Long> friendIds) {
+}
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.event;
+
+// Публикуется после создания или обновления полей пользователя
+public record UserSavedEvent(long userId) {
+}
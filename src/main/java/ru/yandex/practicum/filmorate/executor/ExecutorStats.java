@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.executor;
+
+public record ExecutorStats(String name, int poolSize, int maxPoolSize, int activeThreads, int queued,
+                            int queueCapacity, long completed, long rejected, long timedOut) {
+
+    // Доля занятых потоков и мест в очереди: при 1.0 новые запросы получают 503
+    public double getSaturation() {
+        return (double) (activeThreads + queued) / (maxPoolSize + queueCapacity);
+    }
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.executor;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Отдельный ограниченный пул для тяжелых чтений (друзья, общие друзья, цепочки дружбы, топ фильмов),
+// чтобы они не занимали потоки Tomcat и не задерживали дешевые запросы. Переполненная очередь сразу дает 503.
+// По таймауту запрос завершается 503 и задача снимается из очереди. Уже запущенную не прерываем через
+// interrupt: он закрывает FileChannel файлового хранилища (ClosedByInterruptException). Вместо этого
+// длинные циклы проверяют QueryCancellation.checkpoint и бросают вычисление, как только результат завершен.
+@Component
+@Slf4j
+public class HeavyQueryExecutor {
+
+    private static final String NAME = "heavy-queries";
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final int queueCapacity;
+    private final long timeoutMs;
+    // Переносит контекст запроса (например, требование к свежести чтения) в поток пула
+    private final TaskDecorator decorator;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public HeavyQueryExecutor(int threads, int queueCapacity, long timeoutMs) {
+        this(threads, queueCapacity, timeoutMs, task -> task);
+    }
+
+    @Autowired
+    public HeavyQueryExecutor(@Value("${filmorate.heavy-queries.threads:0}") int threads,
+                              @Value("${filmorate.heavy-queries.queue-capacity:256}") int queueCapacity,
+                              @Value("${filmorate.heavy-queries.timeout-ms:2000}") long timeoutMs,
+                              ObjectProvider<TaskDecorator> decorators) {
+        this(threads, queueCapacity, timeoutMs, decorators.getIfUnique(() -> task -> task));
+    }
+
+    private HeavyQueryExecutor(int threads, int queueCapacity, long timeoutMs, TaskDecorator decorator) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity;
+        this.timeoutMs = timeoutMs;
+        this.decorator = decorator;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads(NAME), new ThreadPoolExecutor.AbortPolicy());
+        this.timer = new ScheduledThreadPoolExecutor(1, daemonThreads(NAME + "-timeout"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> query) {
+        return submit(query, timeoutMs);
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> query, long queryTimeoutMs) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(decorator.decorate(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                QueryCancellation.set(result);
+                try {
+                    result.complete(query.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    QueryCancellation.set(null);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Too many heavy queries in progress, retry later");
+        }
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            // Место в очереди освобождается до ответа: клиент, получивший 503, может сразу повторить запрос
+            cancel(task);
+            if (result.completeExceptionally(
+                    new ServiceUnavailableException("Query timed out after " + queryTimeoutMs + " ms"))) {
+                timedOut.increment();
+            }
+        }, queryTimeoutMs, TimeUnit.MILLISECONDS);
+        result.whenComplete((value, error) -> {
+            timeout.cancel(false);
+            if (result.isCancelled()) {
+                cancel(task);
+            }
+        });
+        return result;
+    }
+
+    public ExecutorStats getStats() {
+        return new ExecutorStats(NAME, executor.getPoolSize(), executor.getMaximumPoolSize(),
+                executor.getActiveCount(), executor.getQueue().size(), queueCapacity,
+                executor.getCompletedTaskCount(), rejected.sum(), timedOut.sum());
+    }
+
+    // Освобождает место в очереди; уже запущенное вычисление остановится на ближайшем checkpoint
+    private void cancel(Future<?> task) {
+        if (task.cancel(false)) {
+            executor.remove((Runnable) task);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
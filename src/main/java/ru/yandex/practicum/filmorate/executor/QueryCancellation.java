@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.executor;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+// Кооперативная отмена тяжелого запроса. HeavyQueryExecutor связывает поток пула с future результата,
+// а длинные циклы (поиск цепочки дружбы, отбор топа, обходы лайков) периодически вызывают checkpoint:
+// если результат уже завершен таймаутом или отменой, вычисление бросается и освобождает поток.
+// Вне пула тяжелых запросов checkpoint ничего не делает.
+public final class QueryCancellation {
+
+    // Проверка раз в CHECK_INTERVAL итераций: чтение ThreadLocal не попадает в каждую итерацию цикла
+    private static final int CHECK_INTERVAL = 1024;
+    private static final ThreadLocal<Future<?>> RESULT = new ThreadLocal<>();
+
+    private QueryCancellation() {
+    }
+
+    public static void checkpoint() throws CancellationException {
+        Future<?> result = RESULT.get();
+        if (result != null && result.isDone()) {
+            throw new CancellationException("Query result is no longer awaited");
+        }
+    }
+
+    // Для счетчика итераций цикла: проверяет только каждую CHECK_INTERVAL-ю, начиная с нулевой
+    public static void checkpoint(long iteration) throws CancellationException {
+        if ((iteration & (CHECK_INTERVAL - 1)) == 0) {
+            checkpoint();
+        }
+    }
+
+    static void set(Future<?> result) {
+        if (result == null) {
+            RESULT.remove();
+        } else {
+            RESULT.set(result);
+        }
+    }
+}
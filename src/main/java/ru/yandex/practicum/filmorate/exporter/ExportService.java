@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.exporter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+// Выгрузка в NDJSON по одной записи за раз: в памяти нет ни списка результатов, ни готового ответа.
+// Лайки и дружба выгружаются отдельными потоками ребер, а не вложенными массивами.
+// Источник - snapshot() хранилища: согласованный на момент вызова срез, который хранилища обходят лениво.
+@Service
+@Slf4j
+public class ExportService {
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ExportService(FilmStorage filmStorage, UserStorage userStorage, ObjectMapper objectMapper) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.objectMapper = objectMapper;
+    }
+
+    public long export(ExportType type, OutputStream out) throws IOException {
+        long count = 0;
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            switch (type) {
+                case FILMS -> {
+                    for (Film film : filmStorage.snapshot()) {
+                        writer.write(new FilmRecord(film.getId(), film.getName(), film.getDescription(),
+                                film.getReleaseDate(), film.getDuration()));
+                        count++;
+                    }
+                }
+                case USERS -> {
+                    for (User user : userStorage.snapshot()) {
+                        writer.write(new UserRecord(user.getId(), user.getEmail(), user.getLogin(), user.getName(),
+                                user.getBirthday()));
+                        count++;
+                    }
+                }
+                case LIKES -> {
+                    for (Film film : filmStorage.snapshot()) {
+                        for (Long userId : film.getLikedUsers()) {
+                            writer.write(new Like(film.getId(), userId));
+                            count++;
+                        }
+                    }
+                }
+                case FRIENDSHIPS -> {
+                    // Дружба взаимна - каждое ребро выгружается один раз, от меньшего id к большему
+                    for (User user : userStorage.snapshot()) {
+                        for (Long friendId : user.getFriends()) {
+                            if (user.getId() < friendId) {
+                                writer.write(new Friendship(user.getId(), friendId));
+                                count++;
+                            }
+                        }
+                    }
+                }
+            }
+            if (count > 0) {
+                writer.flush();
+                out.write('\n');
+            }
+        }
+        log.info("Exported {} {} records", count, type.name().toLowerCase());
+        return count;
+    }
+
+    public record FilmRecord(Long id, String name, String description, LocalDate releaseDate, int duration) {
+    }
+
+    public record UserRecord(Long id, String email, String login, String name, LocalDate birthday) {
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.exporter;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+public enum ExportType {
+    FILMS,
+    USERS,
+    LIKES,
+    FRIENDSHIPS;
+
+    public static ExportType fromPath(String value) {
+        for (ExportType type : values()) {
+            if (type.name().equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        throw new ValidationException("Unknown export type: " + value);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Консольный клиент импорта: потоково отправляет файл на POST /import/{type}, не читая его в память.
+//   java -cp target/classes ru.yandex.practicum.filmorate.importer.BulkImportCli films.ndjson films
+//   java -cp target/classes ru.yandex.practicum.filmorate.importer.BulkImportCli likes.csv likes http://localhost:8080
+public class BulkImportCli {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: BulkImportCli <file> <films|users|likes|friendships> [base-url]");
+            System.exit(2);
+        }
+        Path file = Path.of(args[0]);
+        ImportType type = ImportType.fromPath(args[1]);
+        URI baseUrl = URI.create(args.length > 2 ? args[2] : "http://localhost:8080");
+        boolean csv = file.getFileName().toString().toLowerCase().endsWith(".csv");
+
+        HttpRequest request = HttpRequest.newBuilder(baseUrl.resolve("/import/" + type.name().toLowerCase()))
+                .header("Content-Type", csv ? "text/csv" : "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofFile(file))
+                .build();
+        long started = System.nanoTime();
+        HttpResponse<String> response = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build()
+                .send(request, HttpResponse.BodyHandlers.ofString());
+        System.out.println(response.body());
+        System.err.printf("HTTP %d, %d bytes in %d ms%n", response.statusCode(), Files.size(file),
+                (System.nanoTime() - started) / 1_000_000);
+        System.exit(response.statusCode() / 100 == 2 ? 0 : 1);
+    }
+}
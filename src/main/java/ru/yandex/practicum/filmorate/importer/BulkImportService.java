@@ -0,0 +1,212 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.ImportCompletedEvent;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmValidator;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserValidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// Потоковый импорт: вход читается пакетами по batchSize строк, строки пакета разбираются и проверяются
+// параллельно, затем корректные записи применяются к хранилищу одним пакетным вызовом.
+// Если пакетный вызов отклонен (дубликат, несуществующий id), пакет применяется по одной записи,
+// чтобы привязать ошибку к конкретной строке. Ошибки записей не прерывают импорт.
+@Service
+@Slf4j
+public class BulkImportService {
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BulkImportService(FilmStorage filmStorage, UserStorage userStorage, ObjectMapper objectMapper,
+                             int batchSize) {
+        this(filmStorage, userStorage, objectMapper, batchSize, event -> {
+        });
+    }
+
+    @Autowired
+    public BulkImportService(FilmStorage filmStorage, UserStorage userStorage, ObjectMapper objectMapper,
+                             @Value("${filmorate.import.batch-size:10000}") int batchSize,
+                             ApplicationEventPublisher eventPublisher) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public ImportReport importRecords(ImportType type, RecordFormat format, InputStream input) throws IOException {
+        ImportReport report = new ImportReport(type, format);
+        long started = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+
+        long lineNumber = 0;
+        List<String> header = null;
+        if (format == RecordFormat.CSV) {
+            String headerLine = reader.readLine();
+            lineNumber++;
+            if (headerLine == null) {
+                throw new ValidationException("CSV input must start with a header line");
+            }
+            header = CsvLineParser.parse(headerLine.trim());
+        }
+
+        List<String> lines = new ArrayList<>(batchSize);
+        List<Long> lineNumbers = new ArrayList<>(batchSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            lines.add(line);
+            lineNumbers.add(lineNumber);
+            if (lines.size() == batchSize) {
+                processBatch(type, header, lines, lineNumbers, report);
+                lines.clear();
+                lineNumbers.clear();
+            }
+        }
+        if (!lines.isEmpty()) {
+            processBatch(type, header, lines, lineNumbers, report);
+        }
+
+        report.finish(System.nanoTime() - started);
+        eventPublisher.publishEvent(new ImportCompletedEvent(type, report.getImported()));
+        log.info("Import of {} finished: {} imported, {} rejected in {} ms ({} records/s)", type,
+                report.getImported(), report.getRejected(), report.getElapsedMillis(), report.getRecordsPerSecond());
+        return report;
+    }
+
+    private void processBatch(ImportType type, List<String> header, List<String> lines, List<Long> lineNumbers,
+                              ImportReport report) {
+        switch (type) {
+            case FILMS -> apply(parse(lines, lineNumbers, header, Film.class, FilmValidator::validate),
+                    report, filmStorage::createAll, filmStorage::create);
+            case USERS -> apply(parse(lines, lineNumbers, header, User.class, UserValidator::validate),
+                    report, userStorage::createAll, userStorage::create);
+            case LIKES -> apply(parse(lines, lineNumbers, header, Like.class, BulkImportService::validateLike),
+                    report, filmStorage::addLikes, like -> filmStorage.addLike(like.filmId(), like.userId()));
+            case FRIENDSHIPS -> apply(parse(lines, lineNumbers, header, Friendship.class,
+                            BulkImportService::validateFriendship),
+                    report, userStorage::addFriendships, f -> userStorage.addFriend(f.userId(), f.friendId()));
+        }
+    }
+
+    // Разбор и проверка строк пакета параллельно; порядок записей сохраняется
+    private <T> List<ParsedRecord<T>> parse(List<String> lines, List<Long> lineNumbers, List<String> header,
+                                            Class<T> type, Consumer<T> validator) {
+        return IntStream.range(0, lines.size())
+                .parallel()
+                .mapToObj(i -> {
+                    try {
+                        T value = header == null
+                                ? objectMapper.readValue(lines.get(i), type)
+                                : objectMapper.treeToValue(csvToNode(header, lines.get(i)), type);
+                        validator.accept(value);
+                        return new ParsedRecord<>(lineNumbers.get(i), value, null);
+                    } catch (Exception e) {
+                        return new ParsedRecord<T>(lineNumbers.get(i), null, describe(e));
+                    }
+                })
+                .toList();
+    }
+
+    private <T> void apply(List<ParsedRecord<T>> records, ImportReport report,
+                           Consumer<List<T>> batchApply, Consumer<T> singleApply) {
+        List<ParsedRecord<T>> valid = new ArrayList<>(records.size());
+        for (ParsedRecord<T> record : records) {
+            if (record.error() != null) {
+                report.addError(record.line(), record.error());
+            } else {
+                valid.add(record);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        try {
+            batchApply.accept(valid.stream().map(ParsedRecord::value).toList());
+            report.addImported(valid.size());
+        } catch (RuntimeException batchError) {
+            log.debug("Batch rejected ({}), applying records one by one", batchError.getMessage());
+            for (ParsedRecord<T> record : valid) {
+                try {
+                    singleApply.accept(record.value());
+                    report.addImported(1);
+                } catch (RuntimeException e) {
+                    report.addError(record.line(), describe(e));
+                }
+            }
+        }
+    }
+
+    private ObjectNode csvToNode(List<String> header, String line) {
+        List<String> values = CsvLineParser.parse(line);
+        if (values.size() != header.size()) {
+            throw new ValidationException("Expected " + header.size() + " columns but found " + values.size());
+        }
+        ObjectNode node = objectMapper.createObjectNode();
+        for (int i = 0; i < header.size(); i++) {
+            if (!values.get(i).isEmpty()) {
+                node.put(header.get(i), values.get(i));
+            }
+        }
+        return node;
+    }
+
+    private static void validateLike(Like like) {
+        if (like.filmId() == null || like.userId() == null) {
+            throw new ValidationException("filmId and userId are required");
+        }
+    }
+
+    private static void validateFriendship(Friendship friendship) {
+        if (friendship.userId() == null || friendship.friendId() == null) {
+            throw new ValidationException("userId and friendId are required");
+        }
+        if (friendship.userId().equals(friendship.friendId())) {
+            throw new ValidationException("User cannot be a friend of themselves");
+        }
+    }
+
+    private static String describe(Exception e) {
+        if (e instanceof NullPointerException) {
+            return "Missing required field";
+        }
+        String message = e.getMessage();
+        if (message == null) {
+            return e.getClass().getSimpleName();
+        }
+        // У ошибок Jackson полезна только первая строка сообщения
+        int newline = message.indexOf('\n');
+        return newline < 0 ? message : message.substring(0, newline);
+    }
+
+    private record ParsedRecord<T>(long line, T value, String error) {
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Итог импорта: счетчики и первые ошибки по номерам строк входного файла
+@Getter
+public class ImportReport {
+
+    private static final int MAX_REPORTED_ERRORS = 1_000;
+
+    private final ImportType type;
+    private final RecordFormat format;
+    private long processed;
+    private long imported;
+    private long rejected;
+    private long elapsedMillis;
+    private long recordsPerSecond;
+    private final List<RecordError> errors = new ArrayList<>();
+
+    public ImportReport(ImportType type, RecordFormat format) {
+        this.type = type;
+        this.format = format;
+    }
+
+    void addImported(int count) {
+        processed += count;
+        imported += count;
+    }
+
+    void addError(long line, String message) {
+        processed++;
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RecordError(line, message));
+        }
+    }
+
+    void finish(long elapsedNanos) {
+        elapsedMillis = elapsedNanos / 1_000_000;
+        recordsPerSecond = elapsedNanos == 0 ? processed : processed * 1_000_000_000L / elapsedNanos;
+    }
+
+    public record RecordError(long line, String error) {
+    }
+}
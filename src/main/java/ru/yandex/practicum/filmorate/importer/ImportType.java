@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+public enum ImportType {
+    FILMS,
+    USERS,
+    LIKES,
+    FRIENDSHIPS;
+
+    public static ImportType fromPath(String value) {
+        for (ImportType type : values()) {
+            if (type.name().equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        throw new ValidationException("Unknown import type: " + value);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+public enum RecordFormat {
+    // Один JSON-объект на строку
+    NDJSON,
+    // Первая строка - заголовок с именами полей, как в JSON-представлении
+    CSV;
+
+    // Явный параметр format важнее Content-Type; по умолчанию NDJSON
+    public static RecordFormat resolve(String format, String contentType) {
+        if (format != null && !format.isBlank()) {
+            for (RecordFormat value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new ValidationException("Unknown import format: " + format);
+        }
+        if (contentType != null && contentType.toLowerCase().contains("csv")) {
+            return CSV;
+        }
+        return NDJSON;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+import java.util.SplittableRandom;
+
+// Идентификаторы засеянных сущностей; ранги Ципфа отображаются на фильмы в порядке создания
+public class Dataset {
+
+    private final long[] userIds;
+    private final long[] filmIds;
+    private final ZipfSampler filmSampler;
+
+    public Dataset(long[] userIds, long[] filmIds, double zipfExponent) {
+        this.userIds = userIds;
+        this.filmIds = filmIds;
+        this.filmSampler = new ZipfSampler(filmIds.length, zipfExponent);
+    }
+
+    public long randomFilm(SplittableRandom random) {
+        return filmIds[filmSampler.sample(random)];
+    }
+
+    public long randomUser(SplittableRandom random) {
+        return userIds[random.nextInt(userIds.length)];
+    }
+
+    public long randomUserExcept(long userId, SplittableRandom random) {
+        long other = randomUser(random);
+        while (other == userId) {
+            other = randomUser(random);
+        }
+        return other;
+    }
+
+    public long[] getUserIds() {
+        return userIds;
+    }
+
+    public long[] getFilmIds() {
+        return filmIds;
+    }
+}
@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+// Засевает экземпляр через публичное API: пользователи, фильмы, лайки по Ципфу
+// и граф дружбы со степенным распределением степеней (модель Барабаши-Альберт)
+@Slf4j
+public class DatasetSeeder {
+
+    private static final int MAX_IN_FLIGHT = 64;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_SHED_RETRIES = 50;
+    private static final long SHED_BACKOFF_MILLIS = 200;
+
+    private final HttpClient client;
+    private final LoadGeneratorConfig config;
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public DatasetSeeder(HttpClient client, LoadGeneratorConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    public Dataset seed() {
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+        String runTag = Long.toString(System.currentTimeMillis(), 36);
+
+        long started = System.nanoTime();
+        long[] userIds = createAll(config.getUsers(), i -> userJson(runTag, i, random.split()), "/users");
+        long[] filmIds = createAll(config.getFilms(), i -> filmJson(i), "/films");
+        log.info("Created {} users and {} films in {} ms", userIds.length, filmIds.length, elapsedMillis(started));
+
+        Dataset dataset = new Dataset(userIds, filmIds, config.getZipfExponent());
+        int likes = seedLikes(dataset, random.split());
+        int edges = seedFriendGraph(userIds, random.split());
+        log.info("Seeded {} likes and {} friendships in {} ms, {} failed requests",
+                likes, edges, elapsedMillis(started), failures.get());
+        return dataset;
+    }
+
+    private long[] createAll(int count, IntFunction<String> body, String path) {
+        long[] ids = new long[count];
+        List<CompletableFuture<Void>> pending = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            HttpRequest request = HttpRequest.newBuilder(config.getBaseUrl().resolve(path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.apply(i)))
+                    .build();
+            pending.add(sendWithRetry(request).thenAccept(response -> {
+                if (response.statusCode() / 100 != 2) {
+                    throw new IllegalStateException("POST " + path + " failed with " + response.statusCode()
+                            + ": " + response.body());
+                }
+                ids[index] = JsonParser.parseString(response.body()).getAsJsonObject().get("id").getAsLong();
+            }));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        return ids;
+    }
+
+    // Каждый пользователь лайкает likesPerUser разных фильмов, фильмы выбираются по Ципфу
+    private int seedLikes(Dataset dataset, SplittableRandom random) {
+        int perUser = Math.min(config.getLikesPerUser(), dataset.getFilmIds().length);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (long userId : dataset.getUserIds()) {
+            Set<Long> liked = new HashSet<>();
+            int attempts = 0;
+            while (liked.size() < perUser) {
+                // Хвост распределения Ципфа почти не выпадает - добираем равномерно, чтобы не зациклиться
+                liked.add(++attempts < perUser * 20
+                        ? dataset.randomFilm(random)
+                        : dataset.getFilmIds()[random.nextInt(dataset.getFilmIds().length)]);
+            }
+            for (long filmId : liked) {
+                pending.add(put("/films/" + filmId + "/like/" + userId));
+            }
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        return pending.size();
+    }
+
+    // Преференциальное присоединение: новый узел связывается с m существующими с вероятностью,
+    // пропорциональной их степени; выбор равномерно из списка концов ребер дает ровно такую вероятность
+    private int seedFriendGraph(long[] userIds, SplittableRandom random) {
+        int m = Math.max(1, Math.min(config.getFriendsPerUser(), userIds.length - 1));
+        long[] endpoints = new long[2 * m * userIds.length + m * m];
+        int endpointCount = 0;
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+        for (int i = 0; i <= m && i < userIds.length; i++) {
+            for (int j = 0; j < i; j++) {
+                pending.add(put("/users/" + userIds[i] + "/friends/" + userIds[j]));
+                endpoints[endpointCount++] = userIds[i];
+                endpoints[endpointCount++] = userIds[j];
+            }
+        }
+        for (int i = m + 1; i < userIds.length; i++) {
+            Set<Long> targets = new HashSet<>();
+            while (targets.size() < m) {
+                targets.add(endpoints[random.nextInt(endpointCount)]);
+            }
+            for (long target : targets) {
+                pending.add(put("/users/" + userIds[i] + "/friends/" + target));
+                endpoints[endpointCount++] = userIds[i];
+                endpoints[endpointCount++] = target;
+            }
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        return pending.size();
+    }
+
+    private CompletableFuture<Void> put(String path) {
+        HttpRequest request = HttpRequest.newBuilder(config.getBaseUrl().resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return sendWithRetry(request).thenAccept(response -> {
+            if (response.statusCode() / 100 != 2) {
+                failures.incrementAndGet();
+            }
+        });
+    }
+
+    // Разрешение на запрос берется в вызывающем потоке и держится на все повторы: колбэки асинхронного
+    // клиента не блокируются на семафоре
+    private CompletableFuture<HttpResponse<String>> sendWithRetry(HttpRequest request) {
+        inFlight.acquireUninterruptibly();
+        return attempt(request, MAX_ATTEMPTS, MAX_SHED_RETRIES)
+                .whenComplete((response, error) -> inFlight.release());
+    }
+
+    // Ответы 5xx повторяются: засев не должен срываться из-за единичных ошибок сервера под нагрузкой.
+    // Отказы контроля допуска (429/503) повторяются после паузы по отдельному счетчику; когда он
+    // исчерпан, отказ возвращается вызывающему как ошибка
+    private CompletableFuture<HttpResponse<String>> attempt(HttpRequest request, int attempts, int shedRetries) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenCompose(response -> {
+            int status = response.statusCode();
+            if ((status == 429 || status == 503) && shedRetries > 0) {
+                Executor delayed = CompletableFuture.delayedExecutor(SHED_BACKOFF_MILLIS, TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(() -> request, delayed)
+                        .thenCompose(retry -> attempt(retry, attempts, shedRetries - 1));
+            }
+            return status >= 500 && attempts > 1
+                    ? attempt(request, attempts - 1, shedRetries)
+                    : CompletableFuture.completedFuture(response);
+        });
+    }
+
+    private static String userJson(String runTag, int index, SplittableRandom random) {
+        JsonObject user = new JsonObject();
+        user.addProperty("login", "load" + runTag + "_" + index);
+        user.addProperty("name", "Load user " + index);
+        user.addProperty("email", "load" + runTag + "_" + index + "@example.com");
+        user.addProperty("birthday", LocalDate.of(1960, 1, 1).plusDays(random.nextInt(365 * 45)).toString());
+        return user.toString();
+    }
+
+    private static String filmJson(int index) {
+        JsonObject film = new JsonObject();
+        film.addProperty("name", "Load film " + index);
+        film.addProperty("description", "Synthetic film #" + index);
+        film.addProperty("releaseDate", LocalDate.of(1950, 1, 1).plusDays(index % 25_000).toString());
+        film.addProperty("duration", 60 + index % 120);
+        return film.toString();
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Накопитель задержек по операциям; записи до окончания прогрева игнорируются
+public class LatencyRecorder {
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private volatile boolean recording;
+
+    public LatencyRecorder() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public void startRecording() {
+        recording = true;
+    }
+
+    public void stopRecording() {
+        recording = false;
+    }
+
+    public void record(Operation operation, long latencyNanos, int status) {
+        if (recording) {
+            stats.get(operation).record(latencyNanos, status);
+        }
+    }
+
+    public Map<Operation, OperationStats> getStats() {
+        return stats;
+    }
+
+    public static final class OperationStats {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+        private int rejected;
+
+        private synchronized void record(long latencyNanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (status == 429 || status == 503) {
+                rejected++;
+            } else if (status < 200 || status >= 300) {
+                errors++;
+            }
+        }
+
+        public synchronized int getCount() {
+            return count;
+        }
+
+        public synchronized int getErrors() {
+            return errors;
+        }
+
+        public synchronized int getRejected() {
+            return rejected;
+        }
+
+        public synchronized long[] sortedLatencies() {
+            long[] copy = Arrays.copyOf(latencies, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
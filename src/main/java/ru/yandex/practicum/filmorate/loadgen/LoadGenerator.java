@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+// Точка входа генератора нагрузки. Работает только против локально запущенного экземпляра:
+//   java -cp target/classes:<зависимости> ru.yandex.practicum.filmorate.loadgen.LoadGenerator \
+//       --users=10000 --films=5000 --model=open --rate=2000 --duration=60
+public class LoadGenerator {
+
+    public static void main(String[] args) {
+        try {
+            run(LoadGeneratorConfig.parse(args));
+            System.exit(0);
+        } catch (Exception e) {
+            System.err.println("Load generation failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void run(LoadGeneratorConfig config) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(4, config.getThreads())))
+                .build();
+
+        Dataset dataset;
+        if (config.isSkipSeed()) {
+            dataset = new Dataset(sequentialIds(config.getUsers()), sequentialIds(config.getFilms()),
+                    config.getZipfExponent());
+        } else {
+            dataset = new DatasetSeeder(client, config).seed();
+        }
+        if (config.isSeedOnly()) {
+            return;
+        }
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        double seconds = new WorkloadDriver(client, config, dataset, recorder).run();
+        new LoadReport(recorder, seconds).print(System.out);
+    }
+
+    // При --skip-seed считаем, что данные уже засеяны и id идут подряд с 1
+    private static long[] sequentialIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i + 1;
+        }
+        return ids;
+    }
+}
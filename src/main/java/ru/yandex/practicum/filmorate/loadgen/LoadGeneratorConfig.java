@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+import lombok.Getter;
+
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+// Параметры запуска генератора нагрузки в формате --key=value
+@Getter
+public class LoadGeneratorConfig {
+
+    private URI baseUrl = URI.create("http://localhost:8080");
+    private int users = 1_000;
+    private int films = 500;
+    private int likesPerUser = 20;
+    private double zipfExponent = 1.1;
+    private int friendsPerUser = 5;
+    private long seed = 42;
+    private WorkloadModel model = WorkloadModel.CLOSED;
+    private int threads = 16;
+    private double ratePerSecond = 500;
+    private long thinkTimeMillis = 0;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 5;
+    private boolean seedOnly = false;
+    private boolean skipSeed = false;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+    public static LoadGeneratorConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+
+        LoadGeneratorConfig config = new LoadGeneratorConfig();
+        config.baseUrl = URI.create(values.getOrDefault("base-url", config.baseUrl.toString()));
+        config.users = Integer.parseInt(values.getOrDefault("users", String.valueOf(config.users)));
+        config.films = Integer.parseInt(values.getOrDefault("films", String.valueOf(config.films)));
+        config.likesPerUser = Integer.parseInt(values.getOrDefault("likes-per-user", String.valueOf(config.likesPerUser)));
+        config.zipfExponent = Double.parseDouble(values.getOrDefault("zipf", String.valueOf(config.zipfExponent)));
+        config.friendsPerUser = Integer.parseInt(values.getOrDefault("friends-per-user", String.valueOf(config.friendsPerUser)));
+        config.seed = Long.parseLong(values.getOrDefault("seed", String.valueOf(config.seed)));
+        config.model = WorkloadModel.valueOf(values.getOrDefault("model", config.model.name()).toUpperCase());
+        config.threads = Integer.parseInt(values.getOrDefault("threads", String.valueOf(config.threads)));
+        config.ratePerSecond = Double.parseDouble(values.getOrDefault("rate", String.valueOf(config.ratePerSecond)));
+        config.thinkTimeMillis = Long.parseLong(values.getOrDefault("think-time-ms", String.valueOf(config.thinkTimeMillis)));
+        config.durationSeconds = Integer.parseInt(values.getOrDefault("duration", String.valueOf(config.durationSeconds)));
+        config.warmupSeconds = Integer.parseInt(values.getOrDefault("warmup", String.valueOf(config.warmupSeconds)));
+        config.seedOnly = Boolean.parseBoolean(values.getOrDefault("seed-only", "false"));
+        config.skipSeed = Boolean.parseBoolean(values.getOrDefault("skip-seed", "false"));
+        config.parseMix(values.getOrDefault("mix", Operation.DEFAULT_MIX));
+        config.validate();
+        return config;
+    }
+
+    // Формат: getFilm:40,popular:20,like:10
+    private void parseMix(String spec) {
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.byName(pair[0].trim()), weight);
+            }
+        }
+    }
+
+    private void validate() {
+        String host = baseUrl.getHost();
+        if (!"localhost".equals(host) && !host.startsWith("127.") && !"[::1]".equals(host)) {
+            throw new IllegalArgumentException("Load generator only runs against a local instance, got " + baseUrl);
+        }
+        if (users < 2 || films < 1) {
+            throw new IllegalArgumentException("At least 2 users and 1 film are required");
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix cannot be empty");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+// Сводка по эндпоинтам: пропускная способность и перцентили задержки в миллисекундах
+public class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LatencyRecorder recorder;
+    private final double measuredSeconds;
+
+    public LoadReport(LatencyRecorder recorder, double measuredSeconds) {
+        this.recorder = recorder;
+        this.measuredSeconds = measuredSeconds;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%-45s %9s %9s %7s %8s %8s %8s %8s %8s %8s%n",
+                "endpoint", "requests", "req/s", "errors", "shed", "p50", "p90", "p99", "p99.9", "max");
+        long total = 0;
+        for (Map.Entry<Operation, LatencyRecorder.OperationStats> entry : recorder.getStats().entrySet()) {
+            LatencyRecorder.OperationStats stats = entry.getValue();
+            long[] latencies = stats.sortedLatencies();
+            if (latencies.length == 0) {
+                continue;
+            }
+            total += latencies.length;
+            out.printf("%-45s %9d %9.1f %7d %8d", entry.getKey().getEndpoint(), latencies.length,
+                    latencies.length / measuredSeconds, stats.getErrors(), stats.getRejected());
+            for (double percentile : PERCENTILES) {
+                out.printf(" %8.2f", millis(percentile(latencies, percentile)));
+            }
+            out.printf(" %8.2f%n", millis(latencies[latencies.length - 1]));
+        }
+        out.printf("total: %d requests in %.1f s, %.1f req/s%n", total, measuredSeconds, total / measuredSeconds);
+    }
+
+    // Перцентиль по методу nearest-rank
+    public static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
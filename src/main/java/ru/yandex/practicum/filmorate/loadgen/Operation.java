@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+// Операции рабочей нагрузки; имя используется в --mix и как ключ в отчете
+public enum Operation {
+    GET_FILM("getFilm", "GET /films/{id}", false),
+    GET_FILMS("getFilms", "GET /films", false),
+    POPULAR("popular", "GET /films/popular", false),
+    GET_USER("getUser", "GET /users/{id}", false),
+    FRIENDS("friends", "GET /users/{id}/friends", false),
+    COMMON_FRIENDS("commonFriends", "GET /users/{id}/friends/common/{otherId}", false),
+    LIKE("like", "PUT /films/{id}/like/{userId}", true),
+    UNLIKE("unlike", "DELETE /films/{id}/like/{userId}", true),
+    ADD_FRIEND("addFriend", "PUT /users/{id}/friends/{friendId}", true);
+
+    public static final String DEFAULT_MIX =
+            "getFilm:35,popular:15,getUser:15,friends:10,commonFriends:10,like:10,addFriend:5";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final String shortName;
+    private final String endpoint;
+    private final boolean write;
+
+    Operation(String shortName, String endpoint, boolean write) {
+        this.shortName = shortName;
+        this.endpoint = endpoint;
+        this.write = write;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public boolean isWrite() {
+        return write;
+    }
+
+    public static Operation byName(String name) {
+        for (Operation operation : values()) {
+            if (operation.shortName.equalsIgnoreCase(name) || operation.name().equalsIgnoreCase(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + name);
+    }
+
+    // Фильмы выбираются по Zipf (популярные читают и лайкают чаще), пользователи - равномерно
+    public HttpRequest buildRequest(URI baseUrl, Dataset dataset, SplittableRandom random) {
+        long film = dataset.randomFilm(random);
+        long user = dataset.randomUser(random);
+        long other = dataset.randomUserExcept(user, random);
+        return switch (this) {
+            case GET_FILM -> get(baseUrl, "/films/" + film);
+            case GET_FILMS -> get(baseUrl, "/films");
+            case POPULAR -> get(baseUrl, "/films/popular?count=10");
+            case GET_USER -> get(baseUrl, "/users/" + user);
+            case FRIENDS -> get(baseUrl, "/users/" + user + "/friends");
+            case COMMON_FRIENDS -> get(baseUrl, "/users/" + user + "/friends/common/" + other);
+            case LIKE -> send(baseUrl, "PUT", "/films/" + film + "/like/" + user);
+            case UNLIKE -> send(baseUrl, "DELETE", "/films/" + film + "/like/" + user);
+            case ADD_FRIEND -> send(baseUrl, "PUT", "/users/" + user + "/friends/" + other);
+        };
+    }
+
+    private static HttpRequest get(URI baseUrl, String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private static HttpRequest send(URI baseUrl, String method, String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path))
+                .timeout(TIMEOUT)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+// Выполняет смесь операций в закрытой или открытой модели нагрузки
+@Slf4j
+public class WorkloadDriver {
+
+    // Предел одновременных запросов в открытой модели; сверх него запросы считаются отброшенными
+    private static final int MAX_OUTSTANDING = 10_000;
+
+    private final HttpClient client;
+    private final LoadGeneratorConfig config;
+    private final Dataset dataset;
+    private final LatencyRecorder recorder;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    public WorkloadDriver(HttpClient client, LoadGeneratorConfig config, Dataset dataset, LatencyRecorder recorder) {
+        this.client = client;
+        this.config = config;
+        this.dataset = dataset;
+        this.recorder = recorder;
+        this.operations = config.getMix().keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        int i = 0;
+        for (Map.Entry<Operation, Integer> entry : config.getMix().entrySet()) {
+            sum += entry.getValue();
+            cumulativeWeights[i++] = sum;
+        }
+    }
+
+    // Возвращает длительность фазы измерения в секундах
+    public double run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + config.getWarmupSeconds() * 1_000_000_000L;
+        long deadline = measureFrom + config.getDurationSeconds() * 1_000_000_000L;
+        log.info("Running {} workload: warmup {} s, measurement {} s", config.getModel(),
+                config.getWarmupSeconds(), config.getDurationSeconds());
+
+        Thread timer = new Thread(() -> {
+            LockSupport.parkNanos(measureFrom - System.nanoTime());
+            recorder.startRecording();
+            LockSupport.parkNanos(deadline - System.nanoTime());
+            recorder.stopRecording();
+        }, "loadgen-timer");
+        timer.start();
+
+        if (config.getModel() == WorkloadModel.CLOSED) {
+            runClosed(deadline);
+        } else {
+            runOpen(deadline);
+        }
+        timer.join();
+        return config.getDurationSeconds();
+    }
+
+    // Каждый поток - отдельный клиент: запрос, ожидание ответа, пауза на "обдумывание"
+    private void runClosed(long deadline) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        SplittableRandom root = new SplittableRandom(config.getSeed());
+        for (int t = 0; t < config.getThreads(); t++) {
+            SplittableRandom random = root.split();
+            Thread worker = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    Operation operation = nextOperation(random);
+                    HttpRequest request = operation.buildRequest(config.getBaseUrl(), dataset, random);
+                    long sent = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    recorder.record(operation, System.nanoTime() - sent, status);
+                    if (config.getThinkTimeMillis() > 0) {
+                        LockSupport.parkNanos(config.getThinkTimeMillis() * 1_000_000L);
+                    }
+                }
+            }, "loadgen-client-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    // Пуассоновский поток: задержка считается от запланированного момента отправки,
+    // поэтому очередь на стороне клиента не маскирует медленные ответы (coordinated omission)
+    private void runOpen(long deadline) {
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+        Semaphore outstanding = new Semaphore(MAX_OUTSTANDING);
+        double meanGapNanos = 1_000_000_000.0 / config.getRatePerSecond();
+        long next = System.nanoTime();
+        while (next < deadline) {
+            next += (long) (-Math.log(1.0 - random.nextDouble()) * meanGapNanos);
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = nextOperation(random);
+            long intended = next;
+            if (!outstanding.tryAcquire()) {
+                recorder.record(operation, System.nanoTime() - intended, -1);
+                continue;
+            }
+            client.sendAsync(operation.buildRequest(config.getBaseUrl(), dataset, random),
+                            HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        outstanding.release();
+                        recorder.record(operation, System.nanoTime() - intended,
+                                error == null ? response.statusCode() : -1);
+                    });
+        }
+        outstanding.acquireUninterruptibly(MAX_OUTSTANDING);
+    }
+
+    private Operation nextOperation(SplittableRandom random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+public enum WorkloadModel {
+    // Фиксированное число клиентов: следующий запрос только после ответа на предыдущий
+    CLOSED,
+    // Запросы приходят пуассоновским потоком с заданной интенсивностью независимо от ответов
+    OPEN
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.loadgen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Выборка рангов 0..n-1 по закону Ципфа: P(k) ~ 1 / (k + 1)^s.
+// Функция распределения считается один раз, выборка - бинарный поиск по ней.
+public class ZipfSampler {
+
+    private final double[] cdf;
+
+    public ZipfSampler(int n, double exponent) {
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    public int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cdf.length - 1);
+    }
+}
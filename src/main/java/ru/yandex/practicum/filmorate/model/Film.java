@@ -31,4 +31,7 @@ public class Film {
     private int duration;
 
     private Set<Long> likedUsers = new HashSet<>();
+
+    // Версия для оптимистичной блокировки: растет при каждом обновлении полей фильма
+    private Long version;
 }
\ No newline at end of file
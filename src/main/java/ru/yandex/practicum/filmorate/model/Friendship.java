@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Взаимная дружба двух пользователей
+public record Friendship(Long userId, Long friendId) {
+}
@@ -30,6 +30,13 @@ public class User {
 
     private Set<Long> friends;
 
+    // Версия для оптимистичной блокировки: растет при каждом обновлении полей пользователя
+    private Long version;
+
+    public static User of(Long id, String name, String email, String login, LocalDate birthday, Set<Long> friends) {
+        return of(id, name, email, login, birthday, friends, null);
+    }
+
     public Set<Long> getFriends() {
         return friends == null ? new HashSet<>() : friends; // Защита от null
     }
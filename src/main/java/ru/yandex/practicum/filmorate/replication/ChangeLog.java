@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.ImportCompletedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.event.UserSavedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Журнал изменений (CDC) первичных хранилищ. Сервисы публикуют события после записи, журнал читает
+// актуальное состояние затронутой сущности, выдает записи номер и отправляет ее в транспорт. Лайки и дружба
+// уходят дельтами по одной паре, а не полным образом сущности.
+// Номер последней записи запроса возвращается в заголовке X-Change-Sequence: клиент может передать его
+// в X-Read-After, чтобы прочитать свою запись. Без реплик журнал ничего не делает.
+@Component
+public class ChangeLog {
+
+    public static final String SEQUENCE_HEADER = "X-Change-Sequence";
+
+    private static final int PUBLISH_TIMES = 1 << 16;
+    private static final int STRIPES = 64;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ReplicationTransport transport;
+    private final boolean enabled;
+    // Время публикации последних записей по номеру: по нему считается отставание реплики
+    private final AtomicLongArray publishedAt = new AtomicLongArray(PUBLISH_TIMES);
+    private final AtomicLong lastSequence = new AtomicLong();
+    // Порядок записей нужен только внутри сущности: запись о фильме или пользователе идет под блокировкой
+    // его полосы, записи разных полос публикуются параллельно
+    private final Lock[] filmStripes = stripes();
+    private final Lock[] userStripes = stripes();
+
+    @Autowired
+    public ChangeLog(FilmStorage filmStorage, UserStorage userStorage, ReplicationTransport transport,
+                     @Value("${filmorate.replication.replicas:0}") int replicas) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.transport = transport;
+        this.enabled = replicas > 0;
+    }
+
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    // Сколько наносекунд назад опубликована запись; Long.MAX_VALUE, если она старше окна учета
+    public long ageNanos(long sequence) {
+        long last = lastSequence.get();
+        if (sequence > last) {
+            return 0;
+        }
+        if (last - sequence >= PUBLISH_TIMES) {
+            return Long.MAX_VALUE;
+        }
+        return System.nanoTime() - publishedAt.get((int) (sequence & (PUBLISH_TIMES - 1)));
+    }
+
+    @EventListener
+    public void onFilmSaved(FilmSavedEvent event) {
+        recordFilm(event.filmId());
+    }
+
+    @EventListener
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        recordFilm(event.filmId());
+    }
+
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long filmId = event.filmId();
+        long userId = event.userId();
+        withStripe(filmStripes, filmId, () -> {
+            boolean liked = filmStorage.hasLike(filmId, userId);
+            publish(sequence -> new ChangeRecord.LikeChanged(sequence, System.nanoTime(), filmId, userId, liked));
+        });
+    }
+
+    @EventListener
+    public void onUserSaved(UserSavedEvent event) {
+        recordUser(event.userId());
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        recordUser(event.userId());
+        event.friendIds().forEach(friendId -> recordFriendship(friendId, event.userId()));
+    }
+
+    // Дружба хранится у обоих пользователей: каждая сторона получает свою дельту под своей полосой
+    @EventListener
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        recordFriendship(event.userId(), event.friendId());
+        recordFriendship(event.friendId(), event.userId());
+    }
+
+    // Импорт идет мимо сервисов пакетами, поэтому реплики получают полный снимок затронутого хранилища.
+    // Снимок берется под всеми полосами хранилища, чтобы ни одна запись о сущности не обогнала его
+    @EventListener
+    public void onImportCompleted(ImportCompletedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        switch (event.type()) {
+            case FILMS, LIKES -> withAllStripes(filmStripes, () -> {
+                List<Film> films = List.copyOf(filmStorage.snapshot());
+                publish(sequence -> new ChangeRecord.FilmsReset(sequence, System.nanoTime(), films));
+            });
+            case USERS, FRIENDSHIPS -> withAllStripes(userStripes, () -> {
+                List<User> users = List.copyOf(userStorage.snapshot());
+                publish(sequence -> new ChangeRecord.UsersReset(sequence, System.nanoTime(), users));
+            });
+        }
+    }
+
+    private void recordFilm(long filmId) {
+        if (enabled) {
+            withStripe(filmStripes, filmId, () -> {
+                Film film = currentFilm(filmId);
+                publish(sequence -> new ChangeRecord.FilmChanged(sequence, System.nanoTime(), filmId, film));
+            });
+        }
+    }
+
+    private void recordUser(long userId) {
+        if (enabled) {
+            withStripe(userStripes, userId, () -> {
+                User user = currentUser(userId);
+                publish(sequence -> new ChangeRecord.UserChanged(sequence, System.nanoTime(), userId, user));
+            });
+        }
+    }
+
+    private void recordFriendship(long userId, long friendId) {
+        if (enabled) {
+            withStripe(userStripes, userId, () -> {
+                boolean friends = userStorage.areFriends(userId, friendId);
+                publish(sequence -> new ChangeRecord.FriendshipChanged(sequence, System.nanoTime(), userId, friendId,
+                        friends));
+            });
+        }
+    }
+
+    // Вызывается под блокировкой полосы: состояние уже прочитано, номер выдается последним шагом,
+    // поэтому ошибка чтения не оставляет в журнале пропущенного номера
+    private void publish(RecordFactory factory) {
+        long sequence = lastSequence.incrementAndGet();
+        ChangeRecord record = factory.create(sequence);
+        publishedAt.set((int) (sequence & (PUBLISH_TIMES - 1)), record.publishedAtNanos());
+        transport.publish(record);
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                response.setHeader(SEQUENCE_HEADER, Long.toString(sequence));
+            }
+        }
+    }
+
+    private static void withStripe(Lock[] stripes, long id, Runnable action) {
+        Lock stripe = stripes[(int) (Long.hashCode(id) & (STRIPES - 1))];
+        stripe.lock();
+        try {
+            action.run();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Полосы берутся всегда в одном порядке, поэтому два импорта не блокируют друг друга намертво
+    private static void withAllStripes(Lock[] stripes, Runnable action) {
+        int locked = 0;
+        try {
+            for (Lock stripe : stripes) {
+                stripe.lock();
+                locked++;
+            }
+            action.run();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    private static Lock[] stripes() {
+        Lock[] stripes = new Lock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        return stripes;
+    }
+
+    private Film currentFilm(long filmId) {
+        try {
+            return filmStorage.findById(filmId);
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    private User currentUser(long userId) {
+        try {
+            return userStorage.findById(userId);
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordFactory {
+        ChangeRecord create(long sequence);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+
+// Запись журнала изменений: образ сущности после изменения (null - сущность удалена), дельта лайка или
+// дружбы либо полный снимок после массового импорта. Состояние читается под блокировкой полосы сущности
+// вместе с выдачей номера, поэтому среди записей одной сущности запись с большим номером несет не более
+// старое состояние, и реплика сходится к первичному хранилищу.
+public sealed interface ChangeRecord {
+
+    long sequence();
+
+    long publishedAtNanos();
+
+    record FilmChanged(long sequence, long publishedAtNanos, long filmId, Film film) implements ChangeRecord {
+    }
+
+    record UserChanged(long sequence, long publishedAtNanos, long userId, User user) implements ChangeRecord {
+    }
+
+    // liked - стоит ли лайк после изменения, а не направление события: гонка добавления и снятия сходится
+    record LikeChanged(long sequence, long publishedAtNanos, long filmId, long userId, boolean liked)
+            implements ChangeRecord {
+    }
+
+    record FriendshipChanged(long sequence, long publishedAtNanos, long userId, long friendId, boolean friends)
+            implements ChangeRecord {
+    }
+
+    record FilmsReset(long sequence, long publishedAtNanos, List<Film> films) implements ChangeRecord {
+    }
+
+    record UsersReset(long sequence, long publishedAtNanos, List<User> users) implements ChangeRecord {
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+// Транспорт внутри процесса: у каждого подписчика своя очередь и свой поток применения.
+// Очереди не ограничены, чтобы медленная реплика не тормозила запись; ее отставание видно по pending
+@Component
+@Slf4j
+public class InProcessTransport implements ReplicationTransport {
+
+    private final Map<String, BlockingQueue<ChangeRecord>> queues = new ConcurrentHashMap<>();
+    private final Map<String, Thread> workers = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(ChangeRecord record) {
+        for (BlockingQueue<ChangeRecord> queue : queues.values()) {
+            queue.add(record);
+        }
+    }
+
+    @Override
+    public void subscribe(String subscriber, Consumer<ChangeRecord> consumer) {
+        BlockingQueue<ChangeRecord> queue = new LinkedBlockingQueue<>();
+        if (queues.putIfAbsent(subscriber, queue) != null) {
+            throw new IllegalStateException("Subscriber " + subscriber + " is already registered");
+        }
+        Thread worker = new Thread(() -> drain(subscriber, queue, consumer), "replication-" + subscriber);
+        worker.setDaemon(true);
+        workers.put(subscriber, worker);
+        worker.start();
+    }
+
+    @Override
+    public long pending(String subscriber) {
+        BlockingQueue<ChangeRecord> queue = queues.get(subscriber);
+        return queue == null ? 0 : queue.size();
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        workers.values().forEach(Thread::interrupt);
+    }
+
+    private static void drain(String subscriber, BlockingQueue<ChangeRecord> queue, Consumer<ChangeRecord> consumer) {
+        while (!Thread.currentThread().isInterrupted()) {
+            ChangeRecord record;
+            try {
+                record = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                consumer.accept(record);
+            } catch (RuntimeException e) {
+                // Образ или итоговое состояние пары: пропуск исправит следующее изменение той же сущности или пары
+                log.error("Replica {} failed to apply change {}", subscriber, record.sequence(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.replication;
+
+// Требование к свежести чтения текущего запроса из заголовка X-Read-After: номер записи журнала,
+// которую реплика должна успеть применить, или latest - последняя запись на момент чтения
+public final class ReadConsistency {
+
+    public static final String READ_AFTER_HEADER = "X-Read-After";
+
+    private static final ThreadLocal<String> READ_AFTER = new ThreadLocal<>();
+
+    private ReadConsistency() {
+    }
+
+    public static String current() {
+        return READ_AFTER.get();
+    }
+
+    static void set(String readAfter) {
+        if (readAfter == null) {
+            READ_AFTER.remove();
+        } else {
+            READ_AFTER.set(readAfter);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@Component
+public class ReadConsistencyFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReadConsistency.set(request.getHeader(ReadConsistency.READ_AFTER_HEADER));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadConsistency.set(null);
+        }
+    }
+}
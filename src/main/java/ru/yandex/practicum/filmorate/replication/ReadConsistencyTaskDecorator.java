@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+// Переносит требование X-Read-After в поток пула, где выполняется асинхронный запрос
+@Component
+public class ReadConsistencyTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable task) {
+        String readAfter = ReadConsistency.current();
+        return () -> {
+            ReadConsistency.set(readAfter);
+            try {
+                task.run();
+            } finally {
+                ReadConsistency.set(null);
+            }
+        };
+    }
+}
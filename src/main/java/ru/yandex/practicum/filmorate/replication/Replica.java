@@ -0,0 +1,312 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.PersistentTable;
+import ru.yandex.practicum.filmorate.storage.VersionedTable;
+import ru.yandex.practicum.filmorate.storage.film.FilmRanking;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendPathFinder;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Реплика для чтения: копия фильмов и пользователей, которую поток транспорта обновляет по журналу.
+// Читатели видят согласованные снимки VersionedTable, как и у первичного InMemory-хранилища.
+// Наружу реплика отдается как хранилища только для чтения; записи идут в первичные хранилища.
+public class Replica {
+
+    private final String name;
+    private final VersionedTable<Film> films = new VersionedTable<>();
+    private final VersionedTable<User> users = new VersionedTable<>();
+    private final FilmStorage filmView = new FilmView();
+    private final UserStorage userView = new UserView();
+
+    // Номера выше appliedSequence, которые уже применены и ждут пропущенных перед ними
+    private final Set<Long> appliedAhead = new HashSet<>();
+
+    private volatile long appliedSequence;
+
+    public Replica(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public FilmStorage films() {
+        return filmView;
+    }
+
+    public UserStorage users() {
+        return userView;
+    }
+
+    // Вызывается одним потоком транспорта. Записи одной сущности приходят в порядке номеров, записи разных
+    // сущностей - в любом: appliedSequence растет только до первого еще не пришедшего номера
+    public void apply(ChangeRecord record) {
+        long sequence = record.sequence();
+        if (sequence <= appliedSequence || !appliedAhead.add(sequence)) {
+            return;
+        }
+        try {
+            applyChange(record);
+        } finally {
+            // Запись, которую не удалось применить, тоже закрывает свой номер, иначе граница встанет навсегда
+            long applied = appliedSequence;
+            while (appliedAhead.remove(applied + 1)) {
+                applied++;
+            }
+            appliedSequence = applied;
+        }
+    }
+
+    private void applyChange(ChangeRecord record) {
+        if (record instanceof ChangeRecord.FilmChanged change) {
+            films.update(table -> change.film() == null ? table.without(change.filmId())
+                    : table.with(change.filmId(), change.film()));
+        } else if (record instanceof ChangeRecord.LikeChanged change) {
+            films.update(table -> withLike(table, change));
+        } else if (record instanceof ChangeRecord.UserChanged change) {
+            users.update(table -> change.user() == null ? table.without(change.userId())
+                    : table.with(change.userId(), change.user()));
+        } else if (record instanceof ChangeRecord.FriendshipChanged change) {
+            users.update(table -> withFriendship(table, change));
+        } else if (record instanceof ChangeRecord.FilmsReset reset) {
+            PersistentTable<Film>.Editor editor = PersistentTable.<Film>empty().edit();
+            reset.films().forEach(film -> editor.put(film.getId(), film));
+            films.update(table -> editor.build());
+        } else if (record instanceof ChangeRecord.UsersReset reset) {
+            PersistentTable<User>.Editor editor = PersistentTable.<User>empty().edit();
+            reset.users().forEach(user -> editor.put(user.getId(), user));
+            users.update(table -> editor.build());
+        }
+    }
+
+    // Копируется только затронутая сущность; дельта к удаленной или уже совпадающей сущности ничего не меняет
+    private static PersistentTable<Film> withLike(PersistentTable<Film> table, ChangeRecord.LikeChanged change) {
+        Film film = table.get(change.filmId());
+        if (film == null || film.getLikedUsers().contains(change.userId()) == change.liked()) {
+            return table;
+        }
+        Set<Long> likedUsers = new HashSet<>(film.getLikedUsers());
+        if (change.liked()) {
+            likedUsers.add(change.userId());
+        } else {
+            likedUsers.remove(change.userId());
+        }
+        return table.with(change.filmId(), copyOf(film, likedUsers));
+    }
+
+    private static PersistentTable<User> withFriendship(PersistentTable<User> table,
+                                                        ChangeRecord.FriendshipChanged change) {
+        User user = table.get(change.userId());
+        if (user == null || user.getFriends().contains(change.friendId()) == change.friends()) {
+            return table;
+        }
+        Set<Long> friends = new HashSet<>(user.getFriends());
+        if (change.friends()) {
+            friends.add(change.friendId());
+        } else {
+            friends.remove(change.friendId());
+        }
+        return table.with(change.userId(), copyOf(user, friends));
+    }
+
+    private static Film copyOf(Film source, Set<Long> likes) {
+        Film copy = new Film();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setDescription(source.getDescription());
+        copy.setReleaseDate(source.getReleaseDate());
+        copy.setDuration(source.getDuration());
+        copy.setLikedUsers(Set.copyOf(likes));
+        copy.setVersion(source.getVersion());
+        return copy;
+    }
+
+    private static User copyOf(User source, Set<Long> friends) {
+        return User.of(source.getId(), source.getName(), source.getEmail(), source.getLogin(),
+                source.getBirthday(), Set.copyOf(friends), source.getVersion());
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Read replica does not accept writes");
+    }
+
+    private class FilmView implements FilmStorage {
+
+        @Override
+        public Collection<Film> findAll() {
+            return films.snapshot();
+        }
+
+        @Override
+        public Collection<Film> snapshot() {
+            return films.snapshot();
+        }
+
+        @Override
+        public Film findById(Long id) throws NotFoundException {
+            if (id == null) {
+                throw new ValidationException(ExceptionMessages.FILM_ID_CANNOT_BE_NULL);
+            }
+            Film film = films.get(id);
+            if (film == null) {
+                throw new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, id));
+            }
+            return film;
+        }
+
+        @Override
+        public List<Film> getTopFilms(int count) {
+            return films.snapshot().stream()
+                    .sorted(FilmRanking.BY_LIKES)
+                    .limit(count)
+                    .toList();
+        }
+
+        @Override
+        public Film create(Film film) {
+            throw readOnly();
+        }
+
+        @Override
+        public Film update(Film film) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean addLike(Long filmId, Long userId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void removeLike(Long filmId, Long userId) {
+            throw readOnly();
+        }
+
+        @Override
+        public Film delete(Long id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void removeLikesOf(Long userId) {
+            throw readOnly();
+        }
+    }
+
+    private class UserView implements UserStorage {
+
+        @Override
+        public Collection<User> findAll() {
+            return users.snapshot();
+        }
+
+        @Override
+        public Collection<User> snapshot() {
+            return users.snapshot();
+        }
+
+        @Override
+        public User findById(Long id) throws NotFoundException {
+            return existing(users.snapshot(), id);
+        }
+
+        @Override
+        public Collection<User> getFriends(Long id) throws NotFoundException {
+            PersistentTable<User> table = users.snapshot();
+            return toUsers(table, existing(table, id).getFriends());
+        }
+
+        @Override
+        public Collection<User> getCommonFriends(Long userId, Long otherUserId) throws NotFoundException {
+            PersistentTable<User> table = users.snapshot();
+            Set<Long> common = new HashSet<>(existing(table, userId).getFriends());
+            common.retainAll(existing(table, otherUserId).getFriends());
+            return toUsers(table, common);
+        }
+
+        @Override
+        public List<User> findPath(Long userId, Long otherUserId, int maxDepth) throws NotFoundException {
+            PersistentTable<User> table = users.snapshot();
+            existing(table, userId);
+            existing(table, otherUserId);
+            long[] path = FriendPathFinder.shortestPath((id, action) -> {
+                User user = table.get(id);
+                if (user != null) {
+                    user.getFriends().forEach(action::accept);
+                }
+            }, userId, otherUserId, maxDepth);
+            if (path == null) {
+                return List.of();
+            }
+            List<User> result = new ArrayList<>(path.length);
+            for (long id : path) {
+                result.add(table.get(id));
+            }
+            return result;
+        }
+
+        @Override
+        public User create(User user) {
+            throw readOnly();
+        }
+
+        @Override
+        public User update(User user) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean addFriend(Long userId, Long friendId) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean removeFriend(Long userId, Long friendId) {
+            throw readOnly();
+        }
+
+        @Override
+        public User delete(Long id) {
+            throw readOnly();
+        }
+
+        private User existing(PersistentTable<User> table, Long id) {
+            if (id == null) {
+                throw new ValidationException(ExceptionMessages.USER_ID_CANNOT_BE_NULL);
+            }
+            User user = table.get(id);
+            if (user == null) {
+                throw new NotFoundException(String.format(ExceptionMessages.USER_NOT_FOUND, id));
+            }
+            return user;
+        }
+
+        private List<User> toUsers(PersistentTable<User> table, Collection<Long> ids) {
+            List<User> result = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                User user = table.get(id);
+                if (user != null) {
+                    result.add(user);
+                }
+            }
+            result.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Выбор хранилища для чтения: реплики по кругу, но только те, что отстают не больше max-staleness-ms
+// и уже применили номер из X-Read-After. Если подходящей реплики нет, читается первичное хранилище,
+// поэтому устаревание ограничено, а чтение своих записей доступно по запросу.
+@Component
+@Slf4j
+public class ReplicaRouter {
+
+    private static final ReplicaRouter DISABLED = new ReplicaRouter();
+
+    private final ChangeLog changeLog;
+    private final ReplicationTransport transport;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxStalenessNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+
+    private ReplicaRouter() {
+        this.changeLog = null;
+        this.transport = null;
+        this.maxStalenessNanos = 0;
+    }
+
+    @Autowired
+    public ReplicaRouter(ChangeLog changeLog, ReplicationTransport transport,
+                         @Value("${filmorate.replication.replicas:0}") int replicaCount,
+                         @Value("${filmorate.replication.max-staleness-ms:100}") long maxStalenessMs) {
+        this.changeLog = changeLog;
+        this.transport = transport;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+        for (int i = 1; i <= replicaCount; i++) {
+            Replica replica = new Replica("replica-" + i);
+            transport.subscribe(replica.getName(), replica::apply);
+            replicas.add(replica);
+        }
+        if (replicaCount > 0) {
+            log.info("Serving reads from {} replicas with staleness bound {} ms", replicaCount, maxStalenessMs);
+        }
+    }
+
+    // Все чтения идут в первичные хранилища
+    public static ReplicaRouter disabled() {
+        return DISABLED;
+    }
+
+    public FilmStorage films(FilmStorage primary) {
+        Replica replica = choose();
+        return replica == null ? primary : replica.films();
+    }
+
+    public UserStorage users(UserStorage primary) {
+        Replica replica = choose();
+        return replica == null ? primary : replica.users();
+    }
+
+    // Запрос задал свой минимальный номер: его нельзя обслуживать вычислением, начатым для других
+    public boolean isPinned() {
+        return !replicas.isEmpty() && ReadConsistency.current() != null;
+    }
+
+    public ReplicationStats getStats() {
+        long last = changeLog == null ? 0 : changeLog.getLastSequence();
+        List<ReplicationStats.ReplicaStats> replicaStats = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            long applied = replica.getAppliedSequence();
+            long age = changeLog.ageNanos(applied + 1);
+            replicaStats.add(new ReplicationStats.ReplicaStats(replica.getName(), applied, last - applied,
+                    transport.pending(replica.getName()),
+                    age == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(age)));
+        }
+        return new ReplicationStats(last, replicaReads.sum(), primaryReads.sum(), replicaStats);
+    }
+
+    private Replica choose() {
+        if (replicas.isEmpty()) {
+            return null;
+        }
+        long required = requiredSequence();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            long applied = replica.getAppliedSequence();
+            // Возраст первой непримененной записи и есть отставание реплики
+            if (applied >= required && changeLog.ageNanos(applied + 1) <= maxStalenessNanos) {
+                replicaReads.increment();
+                return replica;
+            }
+        }
+        primaryReads.increment();
+        return null;
+    }
+
+    private long requiredSequence() {
+        String readAfter = ReadConsistency.current();
+        if (readAfter == null || readAfter.isBlank()) {
+            return 0;
+        }
+        if ("latest".equalsIgnoreCase(readAfter.trim())) {
+            return changeLog.getLastSequence();
+        }
+        try {
+            return Long.parseLong(readAfter.trim());
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Invalid " + ReadConsistency.READ_AFTER_HEADER + " header: " + readAfter);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import java.util.List;
+
+public record ReplicationStats(long lastSequence, long replicaReads, long primaryReads, List<ReplicaStats> replicas) {
+
+    public record ReplicaStats(String name, long appliedSequence, long lagRecords, long pending, long stalenessMs) {
+    }
+}
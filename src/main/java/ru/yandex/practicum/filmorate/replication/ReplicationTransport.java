@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import java.util.function.Consumer;
+
+// Доставка журнала изменений репликам. Реализация обязана доставлять записи каждому подписчику
+// по одной и в порядке публикации
+public interface ReplicationTransport extends AutoCloseable {
+
+    void publish(ChangeRecord record);
+
+    void subscribe(String subscriber, Consumer<ChangeRecord> consumer);
+
+    // Записи, опубликованные, но еще не переданные подписчику
+    long pending(String subscriber);
+
+    @Override
+    void close();
+}
@@ -2,51 +2,117 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.event.ImportCompletedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.replication.ReplicaRouter;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class FilmService {
 
     private final FilmStorage filmStorage;
+    private final ApplicationEventPublisher eventPublisher;
+    // Одинаковые одновременные запросы топа считаются один раз
+    private final SingleFlight<Integer, List<Film>> topFilms;
+    // Чтения могут обслуживаться репликами, записи всегда идут в filmStorage
+    private final ReplicaRouter replicas;
 
-    @Autowired
     public FilmService(FilmStorage filmStorage) {
+        this(filmStorage, event -> {
+        }, 0, ReplicaRouter.disabled());
+    }
+
+    @Autowired
+    public FilmService(FilmStorage filmStorage, ApplicationEventPublisher eventPublisher,
+                       @Value("${filmorate.coalescing.cache-ttl-ms:0}") long cacheTtlMs, ReplicaRouter replicas) {
         this.filmStorage = filmStorage;
+        this.eventPublisher = eventPublisher;
+        this.replicas = replicas;
+        this.topFilms = new SingleFlight<>("films.top", cacheTtlMs);
     }
 
     public Collection<Film> getFilms() {
-        return filmStorage.findAll();
+        return replicas.films(filmStorage).findAll();
     }
 
     public Film createFilm(Film film) throws ValidationException {
-        return filmStorage.create(film);
+        Film created = filmStorage.create(film);
+        topFilms.invalidate();
+        eventPublisher.publishEvent(new FilmSavedEvent(created.getId()));
+        return created;
     }
 
     public Film update(Film film) throws NotFoundException, ValidationException {
-        return filmStorage.update(film);
+        Film updated = filmStorage.update(film);
+        topFilms.invalidate();
+        eventPublisher.publishEvent(new FilmSavedEvent(updated.getId()));
+        return updated;
     }
 
     public Film getFilmById(Long id) throws NotFoundException {
-        return filmStorage.findById(id);
+        return replicas.films(filmStorage).findById(id);
+    }
+
+    public void delete(Long id) throws NotFoundException {
+        Film film = filmStorage.delete(id);
+        topFilms.invalidate();
+        eventPublisher.publishEvent(new FilmDeletedEvent(id, Set.copyOf(film.getLikedUsers())));
+    }
+
+    // Каскад удаления пользователя: его лайки снимаются через обратный индекс хранилища
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        List<Long> likedFilmIds = new ArrayList<>(filmStorage.getLikedFilmIds(event.userId()));
+        filmStorage.removeLikesOf(event.userId());
+        topFilms.invalidate();
+        for (Long filmId : likedFilmIds) {
+            eventPublisher.publishEvent(new LikeChangedEvent(filmId, event.userId(), false));
+        }
+    }
+
+    @EventListener
+    public void onImportCompleted(ImportCompletedEvent event) {
+        topFilms.invalidate();
     }
 
     public void addLike(Long filmId, Long userId) throws NotFoundException {
-        filmStorage.addLike(filmId, userId);
+        // Повторный лайк ничего не меняет, и подписчики его не видят: статистика считает события как +1
+        if (filmStorage.addLike(filmId, userId)) {
+            topFilms.invalidate();
+            eventPublisher.publishEvent(new LikeChangedEvent(filmId, userId, true));
+        }
     }
 
     public void removeLike(Long filmId, Long userId) throws NotFoundException {
         filmStorage.removeLike(filmId, userId);
+        topFilms.invalidate();
+        eventPublisher.publishEvent(new LikeChangedEvent(filmId, userId, false));
     }
 
     public List<Film> getTopFilms(int count) {
-        return filmStorage.getTopFilms(count);
+        if (replicas.isPinned()) {
+            return replicas.films(filmStorage).getTopFilms(count);
+        }
+        return topFilms.execute(count, () -> replicas.films(filmStorage).getTopFilms(count));
+    }
+
+    public List<SingleFlight.Stats> getCoalescingStats() {
+        return List.of(topFilms.getStats());
     }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.ImportCompletedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.LongTopK;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Фильмы, популярные среди друзей пользователя: хранилище считает голоса друзей за один проход
+// (или по обратному индексу) в примитивную хеш-таблицу, лучшие count фильмов отбираются кучей LongTopK.
+// Результат (id фильмов) кешируется по пользователю и сбрасывается событиями об изменении лайков и дружбы.
+@Service
+@Slf4j
+public class FriendFilmsService {
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final int cacheSize;
+    private final Map<Long, CachedRanking> cache = new ConcurrentHashMap<>();
+    // Поколение кеша пользователя: запись, посчитанная до сброса, не считается актуальной
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    @Autowired
+    public FriendFilmsService(FilmStorage filmStorage, UserStorage userStorage,
+                              @Value("${filmorate.friend-films.cache-size:10000}") int cacheSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.cacheSize = cacheSize;
+    }
+
+    public List<Film> getPopularAmongFriends(Long userId, int count) throws NotFoundException, ValidationException {
+        if (count <= 0) {
+            throw new ValidationException("Count must be positive");
+        }
+        User user = userStorage.findById(userId);
+
+        long generation = generationOf(userId);
+        CachedRanking cached = cache.get(userId);
+        long[] filmIds;
+        if (cached != null && cached.generation() == generation && cached.covers(count)) {
+            filmIds = cached.filmIds();
+        } else {
+            filmIds = rank(user, count);
+            if (cache.size() >= cacheSize) {
+                evictOne();
+            }
+            cache.put(userId, new CachedRanking(filmIds, count, generation));
+        }
+
+        List<Film> films = new ArrayList<>(Math.min(count, filmIds.length));
+        for (int i = 0; i < filmIds.length && films.size() < count; i++) {
+            try {
+                films.add(filmStorage.findById(filmIds[i]));
+            } catch (NotFoundException e) {
+                // Фильм удален после подсчета - пропускаем
+            }
+        }
+        return films;
+    }
+
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        // Лайк друга меняет рейтинг у всех его друзей
+        try {
+            userStorage.findById(event.userId()).getFriends().forEach(this::invalidate);
+        } catch (NotFoundException e) {
+            // Лайкнувший удален: каскад удаления шлет событие на каждый его лайк, а его бывших друзей
+            // уже сбросило событие удаления, и в их рейтинги он больше не входит
+        }
+    }
+
+    @EventListener
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        invalidate(event.userId());
+        invalidate(event.friendId());
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        invalidate(event.userId());
+        event.friendIds().forEach(this::invalidate);
+    }
+
+    @EventListener
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        for (Long likerId : event.likedUserIds()) {
+            try {
+                userStorage.findById(likerId).getFriends().forEach(this::invalidate);
+            } catch (NotFoundException e) {
+                // Лайкнувший уже удален, его друзей сбросило событие удаления
+            }
+        }
+    }
+
+    @EventListener
+    public void onImportCompleted(ImportCompletedEvent event) {
+        invalidateAll();
+    }
+
+    private long[] rank(User user, int count) {
+        LongLongHashMap votes = filmStorage.countLikesBy(user.getFriends());
+        LongTopK top = new LongTopK(Math.min(count, votes.size()));
+        votes.forEach(top::offer);
+        return top.drainSorted();
+    }
+
+    private long generationOf(long userId) {
+        return globalGeneration.get() + generations.getOrDefault(userId, 0L);
+    }
+
+    private void invalidate(long userId) {
+        generations.merge(userId, 1L, Long::sum);
+        cache.remove(userId);
+    }
+
+    private void invalidateAll() {
+        globalGeneration.incrementAndGet();
+        cache.clear();
+    }
+
+    private void evictOne() {
+        Iterator<Long> keys = cache.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    // limit - count, для которого считался рейтинг; если фильмов оказалось меньше, рейтинг полный
+    private record CachedRanking(long[] filmIds, int limit, long generation) {
+        boolean covers(int count) {
+            return count <= limit || filmIds.length < limit;
+        }
+    }
+}
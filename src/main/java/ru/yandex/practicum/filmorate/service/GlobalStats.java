@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record GlobalStats(long users, long films, long likes, long friendships,
+                          List<Bucket> filmsByLikes, List<Bucket> usersByFriends, List<DailyLikers> activeLikers) {
+
+    // Число сущностей, у которых от min до max лайков (друзей) включительно
+    public record Bucket(long min, long max, long count) {
+    }
+
+    // Приближенное число различных пользователей, поставивших лайк за день
+    public record DailyLikers(LocalDate day, long distinctUsers) {
+    }
+}
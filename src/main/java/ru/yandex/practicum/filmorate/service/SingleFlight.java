@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Схлопывание одинаковых одновременных запросов: первый вызов с ключом считает результат, остальные ждут его.
+// Вызов присоединяется только к вычислению, начатому после последнего invalidate(), поэтому запрос,
+// пришедший после записи, не получит результат, посчитанный до нее.
+// Опциональный микрокеш хранит результат ttl и не сбрасывается записями: ttl явно ограничивает устаревание.
+// Результат разделяется между вызывающими и не должен изменяться.
+public class SingleFlight<K, V> {
+
+    private static final int MAX_CACHED = 10_000;
+
+    private final String name;
+    private final long ttlNanos;
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final Map<K, Cached<V>> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    public SingleFlight(String name, long ttlMillis) {
+        this.name = name;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    public V execute(K key, Supplier<V> computation) {
+        calls.increment();
+        if (key == null) {
+            executions.increment();
+            return computation.get();
+        }
+        if (ttlNanos > 0) {
+            Cached<V> cached = cache.get(key);
+            if (cached != null && cached.expiresAt() - System.nanoTime() > 0) {
+                cacheHits.increment();
+                return cached.value();
+            }
+        }
+        Flight<V> own = new Flight<>(generation.get());
+        Flight<V> current = inFlight.putIfAbsent(key, own);
+        while (current != null) {
+            if (current.generation >= own.generation) {
+                coalesced.increment();
+                return await(current.result);
+            }
+            // Вычисление начато до записи: занимаем его место, опоздавшие присоединятся к нашему
+            if (inFlight.replace(key, current, own)) {
+                break;
+            }
+            current = inFlight.putIfAbsent(key, own);
+        }
+        executions.increment();
+        try {
+            V value = computation.get();
+            if (ttlNanos > 0) {
+                cacheResult(key, value);
+            }
+            own.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    // Вызывается после каждой записи, влияющей на результат
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private void cacheResult(K key, V value) {
+        long now = System.nanoTime();
+        if (cache.size() >= MAX_CACHED) {
+            cache.values().removeIf(cached -> cached.expiresAt() - now <= 0);
+            if (cache.size() >= MAX_CACHED) {
+                return;
+            }
+        }
+        cache.put(key, new Cached<>(value, now + ttlNanos));
+    }
+
+    public Stats getStats() {
+        return new Stats(name, calls.sum(), executions.sum(), coalesced.sum(), cacheHits.sum());
+    }
+
+    private static <V> V await(CompletableFuture<V> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared computation", e);
+        } catch (ExecutionException e) {
+            // Ошибка первого вызова (например, 404) отдается всем, кто его ждал
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    public record Stats(String name, long calls, long executions, long coalesced, long cacheHits) {
+
+        // Доля вызовов, обслуженных без собственного вычисления
+        public double getCoalescingRatio() {
+            return calls == 0 ? 0 : (double) (coalesced + cacheHits) / calls;
+        }
+    }
+
+    private static final class Flight<V> {
+        private final long generation;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private record Cached<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.ImportCompletedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.event.UserSavedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.HyperLogLog;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Общая статистика для GET /stats, которая ведется по событиям записи, а не обходом хранилищ.
+// События приходят только на настоящие изменения, поэтому лайк и дружба применяются как +1/-1 к запомненному
+// числу без чтения хранилища. Число меняется внутри compute своей записи ConcurrentHashMap: события разных
+// фильмов (пользователей) не ждут друг друга, итоги и гистограммы по степеням двойки - LongAdder.
+// Различные лайкнувшие за день считаются HyperLogLog под блокировкой своего дня; хранятся последние liker-days дней.
+@Service
+@Slf4j
+public class StatsService {
+
+    private static final int BUCKETS = 64;
+    private static final int LIKER_PRECISION = 14;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final Clock clock;
+    private final int likerDays;
+
+    private final ConcurrentHashMap<Long, Long> likesByFilm = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> friendsByUser = new ConcurrentHashMap<>();
+    private final LongAdder[] filmsByLikes = adders(BUCKETS);
+    private final LongAdder[] usersByFriends = adders(BUCKETS);
+    private final ConcurrentSkipListMap<LocalDate, HyperLogLog> likersByDay = new ConcurrentSkipListMap<>();
+    private final LongAdder totalLikes = new LongAdder();
+    // Каждая дружба учтена у обоих пользователей
+    private final LongAdder totalFriendLinks = new LongAdder();
+    // События берут общую блокировку чтения и идут параллельно; исключительно ее берет только пересчет после импорта
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public StatsService(FilmStorage filmStorage, UserStorage userStorage,
+                        @Value("${filmorate.stats.liker-days:7}") int likerDays) {
+        this(filmStorage, userStorage, likerDays, Clock.systemDefaultZone());
+    }
+
+    public StatsService(FilmStorage filmStorage, UserStorage userStorage, int likerDays, Clock clock) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likerDays = likerDays;
+        this.clock = clock;
+        rebuild();
+    }
+
+    public GlobalStats getStats() {
+        List<GlobalStats.DailyLikers> likers = new ArrayList<>(likersByDay.size());
+        for (Map.Entry<LocalDate, HyperLogLog> entry : likersByDay.entrySet()) {
+            HyperLogLog sketch = entry.getValue();
+            synchronized (sketch) {
+                likers.add(new GlobalStats.DailyLikers(entry.getKey(), sketch.estimate()));
+            }
+        }
+        return new GlobalStats(friendsByUser.size(), likesByFilm.size(), totalLikes.sum(),
+                totalFriendLinks.sum() / 2, histogram(filmsByLikes), histogram(usersByFriends), likers);
+    }
+
+    @EventListener
+    public void onFilmSaved(FilmSavedEvent event) {
+        // Обновление фильма лайков не меняет, а create любого хранилища отбрасывает лайки из тела запроса:
+        // новый фильм начинается с нуля
+        withEventLock(() -> track(likesByFilm, filmsByLikes, event.filmId()));
+    }
+
+    @EventListener
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        withEventLock(() -> forget(likesByFilm, filmsByLikes, totalLikes, event.filmId()));
+    }
+
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        withEventLock(() -> {
+            adjust(likesByFilm, filmsByLikes, totalLikes, event.filmId(), event.added() ? 1 : -1);
+            if (event.added()) {
+                addLiker(event.userId());
+            }
+        });
+    }
+
+    @EventListener
+    public void onUserSaved(UserSavedEvent event) {
+        withEventLock(() -> track(friendsByUser, usersByFriends, event.userId()));
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        withEventLock(() -> {
+            forget(friendsByUser, usersByFriends, totalFriendLinks, event.userId());
+            for (Long friendId : event.friendIds()) {
+                adjust(friendsByUser, usersByFriends, totalFriendLinks, friendId, -1);
+            }
+        });
+    }
+
+    @EventListener
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        long delta = event.added() ? 1 : -1;
+        withEventLock(() -> {
+            adjust(friendsByUser, usersByFriends, totalFriendLinks, event.userId(), delta);
+            adjust(friendsByUser, usersByFriends, totalFriendLinks, event.friendId(), delta);
+        });
+    }
+
+    // Импорт идет мимо сервисов пакетами, поэтому итоги один раз пересчитываются по снимку
+    @EventListener
+    public void onImportCompleted(ImportCompletedEvent event) {
+        rebuild();
+    }
+
+    private void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            likesByFilm.clear();
+            friendsByUser.clear();
+            reset(filmsByLikes);
+            reset(usersByFriends);
+            totalLikes.reset();
+            totalFriendLinks.reset();
+            for (Film film : filmStorage.snapshot()) {
+                long likes = film.getLikedUsers().size();
+                likesByFilm.put(film.getId(), likes);
+                filmsByLikes[bucket(likes)].increment();
+                totalLikes.add(likes);
+            }
+            for (User user : userStorage.snapshot()) {
+                long friends = user.getFriends().size();
+                friendsByUser.put(user.getId(), friends);
+                usersByFriends[bucket(friends)].increment();
+                totalFriendLinks.add(friends);
+            }
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+        log.debug("Stats rebuilt: {} films, {} users", likesByFilm.size(), friendsByUser.size());
+    }
+
+    private void withEventLock(Runnable action) {
+        rebuildLock.readLock().lock();
+        try {
+            action.run();
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void addLiker(long userId) {
+        LocalDate today = LocalDate.now(clock);
+        HyperLogLog sketch = likersByDay.computeIfAbsent(today, day -> new HyperLogLog(LIKER_PRECISION));
+        synchronized (sketch) {
+            sketch.add(userId);
+        }
+        while (likersByDay.size() > likerDays) {
+            likersByDay.pollFirstEntry();
+        }
+    }
+
+    private static void track(ConcurrentHashMap<Long, Long> counts, LongAdder[] histogram, long id) {
+        counts.computeIfAbsent(id, key -> {
+            histogram[0].increment();
+            return 0L;
+        });
+    }
+
+    // Событие об уже удаленной сущности пропускается, чтобы не вернуть ее в итоги
+    private static void adjust(ConcurrentHashMap<Long, Long> counts, LongAdder[] histogram, LongAdder total,
+                               long id, long delta) {
+        counts.computeIfPresent(id, (key, previous) -> {
+            long next = Math.max(0, previous + delta);
+            histogram[bucket(previous)].decrement();
+            histogram[bucket(next)].increment();
+            total.add(next - previous);
+            return next;
+        });
+    }
+
+    private static void forget(ConcurrentHashMap<Long, Long> counts, LongAdder[] histogram, LongAdder total,
+                               long id) {
+        counts.computeIfPresent(id, (key, previous) -> {
+            histogram[bucket(previous)].decrement();
+            total.add(-previous);
+            return null;
+        });
+    }
+
+    // 0 -> 0, 1 -> 1, 2..3 -> 2, 4..7 -> 3 и т.д.
+    private static int bucket(long value) {
+        return value == 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value);
+    }
+
+    // Корзины от нулевой до последней непустой, чтобы у графика были и пустые промежутки
+    private static List<GlobalStats.Bucket> histogram(LongAdder[] adders) {
+        long[] counts = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            counts[i] = adders[i].sum();
+        }
+        int last = counts.length - 1;
+        while (last > 0 && counts[last] == 0) {
+            last--;
+        }
+        List<GlobalStats.Bucket> buckets = new ArrayList<>(last + 1);
+        buckets.add(new GlobalStats.Bucket(0, 0, counts[0]));
+        for (int i = 1; i <= last; i++) {
+            long min = 1L << (i - 1);
+            long max = i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+            buckets.add(new GlobalStats.Bucket(min, max, counts[i]));
+        }
+        return buckets;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static void reset(LongAdder[] adders) {
+        for (LongAdder adder : adders) {
+            adder.reset();
+        }
+    }
+}
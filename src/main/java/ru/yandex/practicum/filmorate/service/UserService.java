@@ -2,55 +2,134 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.ImportCompletedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.event.UserSavedEvent;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.replication.ReplicaRouter;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class UserService {
 
+    public static final int MAX_PATH_DEPTH = 12;
+
     private final UserStorage userStorage;
+    private final ApplicationEventPublisher eventPublisher;
+    // Одинаковые одновременные запросы друзей и общих друзей считаются один раз
+    private final SingleFlight<Long, Collection<User>> friends;
+    private final SingleFlight<List<Long>, Collection<User>> commonFriends;
+    // Чтения могут обслуживаться репликами, записи всегда идут в userStorage
+    private final ReplicaRouter replicas;
 
-    @Autowired
     public UserService(UserStorage userStorage) {
+        this(userStorage, event -> {
+        }, 0, ReplicaRouter.disabled());
+    }
+
+    @Autowired
+    public UserService(UserStorage userStorage, ApplicationEventPublisher eventPublisher,
+                       @Value("${filmorate.coalescing.cache-ttl-ms:0}") long cacheTtlMs, ReplicaRouter replicas) {
         this.userStorage = userStorage;
+        this.eventPublisher = eventPublisher;
+        this.replicas = replicas;
+        this.friends = new SingleFlight<>("users.friends", cacheTtlMs);
+        this.commonFriends = new SingleFlight<>("users.common-friends", cacheTtlMs);
     }
 
     public Collection<User> findAll() {
-        return userStorage.findAll();
+        return replicas.users(userStorage).findAll();
     }
 
     public User create(User user) throws ValidationException, DuplicatedDataException {
-        return userStorage.create(user);
+        User created = userStorage.create(user);
+        eventPublisher.publishEvent(new UserSavedEvent(created.getId()));
+        return created;
     }
 
     public User update(User user) throws NotFoundException, ValidationException {
-        return userStorage.update(user);
+        User updated = userStorage.update(user);
+        invalidateFriendViews();
+        eventPublisher.publishEvent(new UserSavedEvent(updated.getId()));
+        return updated;
     }
 
     public User findById(Long id) throws NotFoundException, ValidationException {
-        return userStorage.findById(id);
+        return replicas.users(userStorage).findById(id);
+    }
+
+    public void delete(Long id) throws NotFoundException {
+        User user = userStorage.delete(id);
+        invalidateFriendViews();
+        eventPublisher.publishEvent(new UserDeletedEvent(id, Set.copyOf(user.getFriends())));
     }
 
     public void addFriend(Long userId, Long friendId) throws NotFoundException {
-        userStorage.addFriend(userId, friendId);
+        if (userStorage.addFriend(userId, friendId)) {
+            invalidateFriendViews();
+            eventPublisher.publishEvent(new FriendshipChangedEvent(userId, friendId, true));
+        }
     }
 
     public void removeFriend(Long userId, Long friendId) throws NotFoundException {
-        userStorage.removeFriend(userId, friendId);
+        if (userStorage.removeFriend(userId, friendId)) {
+            invalidateFriendViews();
+            eventPublisher.publishEvent(new FriendshipChangedEvent(userId, friendId, false));
+        }
     }
 
     public Collection<User> getFriends(Long id) throws NotFoundException {
-        return userStorage.getFriends(id);
+        if (replicas.isPinned()) {
+            return replicas.users(userStorage).getFriends(id);
+        }
+        return friends.execute(id, () -> replicas.users(userStorage).getFriends(id));
     }
 
     public Collection<User> getCommonFriends(Long userId, Long otherUserId) throws NotFoundException {
-        return userStorage.getCommonFriends(userId, otherUserId);
+        if (userId == null || otherUserId == null || replicas.isPinned()) {
+            return replicas.users(userStorage).getCommonFriends(userId, otherUserId);
+        }
+        // Общие друзья симметричны, поэтому пары (a, b) и (b, a) схлопываются в один ключ
+        List<Long> key = userId <= otherUserId ? List.of(userId, otherUserId) : List.of(otherUserId, userId);
+        return commonFriends.execute(key, () -> replicas.users(userStorage).getCommonFriends(userId, otherUserId));
+    }
+
+    @EventListener
+    public void onImportCompleted(ImportCompletedEvent event) {
+        invalidateFriendViews();
+    }
+
+    public List<SingleFlight.Stats> getCoalescingStats() {
+        return List.of(friends.getStats(), commonFriends.getStats());
+    }
+
+    public List<User> findPath(Long userId, Long otherUserId, int maxDepth) throws NotFoundException, ValidationException {
+        if (maxDepth < 1 || maxDepth > MAX_PATH_DEPTH) {
+            throw new ValidationException("maxDepth must be between 1 and " + MAX_PATH_DEPTH);
+        }
+        List<User> path = replicas.users(userStorage).findPath(userId, otherUserId, maxDepth);
+        if (path.isEmpty()) {
+            throw new NotFoundException(String.format("No friendship path between users %d and %d within %d steps",
+                    userId, otherUserId, maxDepth));
+        }
+        return path;
+    }
+
+    private void invalidateFriendViews() {
+        friends.invalidate();
+        commonFriends.invalidate();
     }
-}
\ No newline at end of file
+}
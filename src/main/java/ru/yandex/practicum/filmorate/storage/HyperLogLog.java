@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage;
+
+// Приближенный подсчет различных long: 2^precision однобайтовых регистров, в каждом максимальный ранг
+// (позиция первой единицы) хешей, попавших в регистр. Ошибка около 1.04 / sqrt(2^precision).
+// Число регистров каждого ранга ведется при добавлении, поэтому оценка считается за O(64), без обхода регистров.
+// Не потокобезопасен.
+public final class HyperLogLog {
+
+    private static final int MAX_RANK = 64;
+
+    private final int precision;
+    private final byte[] registers;
+    private final int[] registersByRank = new int[MAX_RANK + 1];
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+        registersByRank[0] = registers.length;
+    }
+
+    public void add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision) + 1, 64 - precision + 1);
+        int current = registers[index];
+        if (rank > current) {
+            registersByRank[current]--;
+            registersByRank[rank]++;
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        for (int rank = 0; rank <= MAX_RANK; rank++) {
+            if (registersByRank[rank] != 0) {
+                sum += registersByRank[rank] * Math.scalb(1.0, -rank);
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double raw = alpha * m * m / sum;
+        // На малых множествах много пустых регистров, и линейный подсчет по ним точнее
+        int empty = registersByRank[0];
+        if (raw <= 2.5 * m && empty > 0) {
+            return Math.round(m * Math.log((double) m / empty));
+        }
+        return Math.round(raw);
+    }
+
+    // Финализатор MurmurHash3: все 64 бита хеша зависят от всех битов id
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage;
+
+// Отбор k лучших пар (id, score) за один проход: куча-минимум на k элементов в примитивных массивах,
+// в корне худший из отобранных, новый кандидат вытесняет его, если лучше.
+// Порядок: больше score, при равенстве меньший id. Не потокобезопасен.
+public final class LongTopK {
+
+    private final long[] ids;
+    private final long[] scores;
+    private int size;
+
+    public LongTopK(int k) {
+        this.ids = new long[Math.max(k, 0)];
+        this.scores = new long[Math.max(k, 0)];
+    }
+
+    public void offer(long id, long score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && better(id, score, ids[0], scores[0])) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    // id отобранных от лучшего к худшему; куча при этом опустошается
+    public long[] drainSorted() {
+        // Извлечение корня по одному дает порядок от худшего к лучшему - заполняем с конца
+        long[] result = new long[size];
+        for (int last = size - 1; last >= 0; last--) {
+            result[last] = ids[0];
+            ids[0] = ids[last];
+            scores[0] = scores[last];
+            siftDown(0, last);
+        }
+        size = 0;
+        return result;
+    }
+
+    private static boolean better(long id, long score, long otherId, long otherScore) {
+        return score != otherScore ? score > otherScore : id < otherId;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(ids[parent], scores[parent], ids[index], scores[index])) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int heapSize) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && better(ids[worst], scores[worst], ids[left], scores[left])) {
+                worst = left;
+            }
+            if (right < heapSize && better(ids[worst], scores[worst], ids[right], scores[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        long score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Неизменяемая таблица "id -> значение" в виде двухуровневого массива: корень указывает на блоки по 1024 ячейки.
+// Изменение копирует только затронутые блоки и корень, остальные блоки разделяются со старой версией,
+// поэтому старые снимки остаются валидными, а лишняя память ограничена числом измененных блоков.
+// Как коллекция отдает значения в порядке возрастания id.
+public final class PersistentTable<T> extends AbstractCollection<T> {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final PersistentTable<?> EMPTY = new PersistentTable<>(new Object[0][], 0, 0);
+
+    private final Object[][] chunks;
+    private final int size;
+    private final long version;
+
+    private PersistentTable(Object[][] chunks, int size, long version) {
+        this.chunks = chunks;
+        this.size = size;
+        this.version = version;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentTable<T> empty() {
+        return (PersistentTable<T>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long id) {
+        if (id < 0) {
+            return null;
+        }
+        long chunkIndex = id >>> CHUNK_BITS;
+        if (chunkIndex >= chunks.length) {
+            return null;
+        }
+        Object[] chunk = chunks[(int) chunkIndex];
+        return chunk == null ? null : (T) chunk[(int) (id & CHUNK_MASK)];
+    }
+
+    public PersistentTable<T> with(long id, T value) {
+        return edit().put(id, value).build();
+    }
+
+    public PersistentTable<T> without(long id) {
+        return edit().put(id, null).build();
+    }
+
+    // Пакет изменений: каждый блок копируется не более одного раза на весь пакет
+    public Editor edit() {
+        return new Editor();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int chunkIndex;
+            private int slot = -1;
+            private T next = advance();
+
+            @SuppressWarnings("unchecked")
+            private T advance() {
+                while (chunkIndex < chunks.length) {
+                    Object[] chunk = chunks[chunkIndex];
+                    if (chunk != null) {
+                        while (++slot < CHUNK_SIZE) {
+                            if (chunk[slot] != null) {
+                                return (T) chunk[slot];
+                            }
+                        }
+                    }
+                    chunkIndex++;
+                    slot = -1;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    public final class Editor {
+        private Object[][] root = chunks;
+        private boolean rootCopied;
+        private boolean[] chunkCopied = new boolean[chunks.length];
+        private int newSize = size;
+        private boolean changed;
+
+        private Editor() {
+        }
+
+        public Editor put(long id, T value) {
+            if (id < 0 || (id >>> CHUNK_BITS) >= Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Id out of range: " + id);
+            }
+            int chunkIndex = (int) (id >>> CHUNK_BITS);
+            int slot = (int) (id & CHUNK_MASK);
+            Object[] chunk = chunkIndex < root.length ? root[chunkIndex] : null;
+            Object previous = chunk == null ? null : chunk[slot];
+            if (previous == value) {
+                return this;
+            }
+            if (chunkIndex >= root.length) {
+                int length = Math.max(chunkIndex + 1, root.length * 2);
+                root = Arrays.copyOf(root, length);
+                chunkCopied = Arrays.copyOf(chunkCopied, length);
+                rootCopied = true;
+            } else if (!rootCopied) {
+                root = root.clone();
+                rootCopied = true;
+            }
+            if (!chunkCopied[chunkIndex]) {
+                chunk = chunk == null ? new Object[CHUNK_SIZE] : chunk.clone();
+                root[chunkIndex] = chunk;
+                chunkCopied[chunkIndex] = true;
+            }
+            chunk[slot] = value;
+            if (previous == null) {
+                newSize++;
+            } else if (value == null) {
+                newSize--;
+            }
+            changed = true;
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(long id) {
+            int chunkIndex = (int) (id >>> CHUNK_BITS);
+            if (id < 0 || chunkIndex >= root.length || root[chunkIndex] == null) {
+                return null;
+            }
+            return (T) root[chunkIndex][(int) (id & CHUNK_MASK)];
+        }
+
+        public PersistentTable<T> build() {
+            return changed ? new PersistentTable<>(root, newSize, version + 1) : PersistentTable.this;
+        }
+    }
+}
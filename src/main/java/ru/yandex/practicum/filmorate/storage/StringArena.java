@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Арена строк: все строки лежат подряд в одном byte[] в UTF-8, ссылка на строку - int.
+// Одинаковые строки хранятся один раз (поиск по хешу байтов с открытой адресацией).
+// Место не освобождается: замененные строки остаются в арене. Не потокобезопасна.
+public final class StringArena {
+
+    public static final int NULL_REF = -1;
+
+    private byte[] data = new byte[1 << 12];
+    private int dataSize;
+    private int[] offsets = new int[256];
+    private int count;
+    // Ячейка хранит ссылку + 1, 0 - пустая ячейка
+    private int[] table = new int[512];
+
+    public int intern(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int mask = table.length - 1;
+        int slot = hash(bytes) & mask;
+        while (table[slot] != 0) {
+            int ref = table[slot] - 1;
+            if (equalsAt(ref, bytes)) {
+                return ref;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int ref = append(bytes);
+        table[slot] = ref + 1;
+        if (count * 2 > table.length) {
+            rehash();
+        }
+        return ref;
+    }
+
+    public String get(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        int start = start(ref);
+        return new String(data, start, offsets[ref] - start, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long byteSize() {
+        return dataSize;
+    }
+
+    // offsets[ref] - конец строки ref, начало - конец предыдущей
+    private int start(int ref) {
+        return ref == 0 ? 0 : offsets[ref - 1];
+    }
+
+    private int append(byte[] bytes) {
+        if (dataSize + bytes.length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataSize + bytes.length));
+        }
+        System.arraycopy(bytes, 0, data, dataSize, bytes.length);
+        dataSize += bytes.length;
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count] = dataSize;
+        return count++;
+    }
+
+    private boolean equalsAt(int ref, byte[] bytes) {
+        int start = start(ref);
+        return Arrays.equals(data, start, offsets[ref], bytes, 0, bytes.length);
+    }
+
+    private void rehash() {
+        int[] newTable = new int[table.length * 2];
+        int mask = newTable.length - 1;
+        for (int ref = 0; ref < count; ref++) {
+            int start = start(ref);
+            int slot = hash(data, start, offsets[ref]) & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = ref + 1;
+        }
+        table = newTable;
+    }
+
+    private static int hash(byte[] bytes) {
+        return hash(bytes, 0, bytes.length);
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Метки удаленных id на время ttl. Запросы, начавшиеся до удаления, проверяют метку после своей записи
+// и откатывают ее, если сущность за это время удалили. ttl у всех меток один, поэтому очередь в порядке
+// пометки упорядочена и по сроку: новое удаление снимает с головы только просроченные метки, O(1) амортизированно.
+public class Tombstones {
+
+    private final Map<Long, Long> deadlines = new ConcurrentHashMap<>();
+    private final Queue<Mark> expiry = new ConcurrentLinkedQueue<>();
+    private final long ttlNanos;
+
+    public Tombstones(long ttlMillis) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    public void mark(long id) {
+        long now = System.nanoTime();
+        Mark head;
+        while ((head = expiry.peek()) != null && head.deadline() - now <= 0) {
+            // Голову мог снять параллельный вызов; повторная пометка id оставляет более поздний срок
+            if (expiry.remove(head)) {
+                deadlines.remove(head.id(), head.deadline());
+            }
+        }
+        long deadline = System.nanoTime() + ttlNanos;
+        deadlines.put(id, deadline);
+        expiry.add(new Mark(id, deadline));
+    }
+
+    public boolean contains(long id) {
+        Long deadline = deadlines.get(id);
+        return deadline != null && deadline - System.nanoTime() > 0;
+    }
+
+    public int size() {
+        return deadlines.size();
+    }
+
+    private record Mark(long id, long deadline) {
+    }
+}
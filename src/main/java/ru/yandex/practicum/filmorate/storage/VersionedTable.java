@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// Изменяемая ссылка на текущую версию PersistentTable. Читатели берут снимок без блокировок,
+// писатели строят новую версию и публикуют ее атомарной заменой (CAS). При гонке изменение
+// пересчитывается от новой версии, поэтому функция изменения не должна иметь побочных эффектов.
+public class VersionedTable<T> {
+
+    private final AtomicReference<PersistentTable<T>> head = new AtomicReference<>(PersistentTable.empty());
+
+    public PersistentTable<T> snapshot() {
+        return head.get();
+    }
+
+    public T get(long id) {
+        return head.get().get(id);
+    }
+
+    public PersistentTable<T> update(UnaryOperator<PersistentTable<T>> change) {
+        while (true) {
+            PersistentTable<T> current = head.get();
+            PersistentTable<T> next = change.apply(current);
+            if (next == current || head.compareAndSet(current, next)) {
+                return next;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    public void put(long id, T value) {
+        update(table -> table.with(id, value));
+    }
+}
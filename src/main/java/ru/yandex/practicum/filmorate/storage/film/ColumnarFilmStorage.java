@@ -0,0 +1,562 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.executor.QueryCancellation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.LongTopK;
+import ru.yandex.practicum.filmorate.storage.StringArena;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Фильмы хранятся по колонкам: строка таблицы - id - 1, поэтому колонка id не нужна.
+// Длительность, дата релиза (дни эпохи) и версия - примитивные массивы, тексты - ссылки в арену строк,
+// лайки - отсортированный long[] на фильм плюс колонка их количества для сканирования топа.
+// Объекты Film собираются только на границе API. Удаленные строки отмечаются в BitSet, id не переиспользуются.
+// Снимок запоминает ссылки на колонки и открывает новую эпоху; первая запись после снимка копирует колонки,
+// а строку лайков - при первом ее изменении, поэтому снимок остается согласованным без копирования фильмов.
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.films", havingValue = "columnar")
+@Slf4j
+public class ColumnarFilmStorage implements FilmStorage {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long[] NO_LIKES = new long[0];
+
+    private final UserStorage userStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StringArena strings = new StringArena();
+    // Эпоха растет с каждым снимком: колонки и строки лайков из текущей эпохи снимкам не видны и меняются на месте
+    private final AtomicLong snapshotEpoch = new AtomicLong();
+
+    private BitSet deleted = new BitSet();
+    private long columnsEpoch;
+
+    private int rows;
+    private int[] names = new int[INITIAL_CAPACITY];
+    private int[] descriptions = new int[INITIAL_CAPACITY];
+    private int[] releaseDays = new int[INITIAL_CAPACITY];
+    private int[] durations = new int[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int[] likeCounts = new int[INITIAL_CAPACITY];
+    private long[][] likes = new long[INITIAL_CAPACITY][];
+    private long[] likesEpochs = new long[INITIAL_CAPACITY];
+
+    @Autowired
+    public ColumnarFilmStorage(UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        log.info("Processing Get-request...");
+        return snapshot();
+    }
+
+    // Колонки на момент вызова; Film собираются по одной строке во время обхода, общего списка фильмов нет.
+    // Запись после вызова копирует колонку, а не меняет ее, поэтому обход видит ровно состояние на момент вызова
+    @Override
+    public Collection<Film> snapshot() {
+        Columns columns;
+        lock.readLock().lock();
+        try {
+            columns = columns();
+            snapshotEpoch.incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+        int liveRows = columns.rows() - columns.deleted().cardinality();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Film> iterator() {
+                return new Iterator<>() {
+                    private int row = columns.deleted().nextClearBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return row < columns.rows();
+                    }
+
+                    @Override
+                    public Film next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Film film;
+                        // Арена строк растет при записи, чтение из нее - под блокировкой
+                        lock.readLock().lock();
+                        try {
+                            film = columns.materialize(row, strings);
+                        } finally {
+                            lock.readLock().unlock();
+                        }
+                        row = columns.deleted().nextClearBit(row + 1);
+                        return film;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return liveRows;
+            }
+        };
+    }
+
+    @Override
+    public Film findById(Long id) throws NotFoundException {
+        if (id == null) {
+            throw new ValidationException(ExceptionMessages.FILM_ID_CANNOT_BE_NULL);
+        }
+        lock.readLock().lock();
+        try {
+            return materialize(existingRow(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Film create(Film film) throws ValidationException {
+        FilmValidator.validate(film);
+        film.setLikedUsers(new HashSet<>());
+        lock.writeLock().lock();
+        try {
+            append(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return film;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> newFilms) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(rows + newFilms.size());
+            for (Film film : newFilms) {
+                film.setLikedUsers(new HashSet<>());
+                append(film);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Imported {} films", newFilms.size());
+        return newFilms;
+    }
+
+    @Override
+    public Film update(Film film) throws NotFoundException, ValidationException {
+        FilmValidator.validate(film);
+        if (film.getId() == null) {
+            throw new ValidationException(ExceptionMessages.FILM_ID_CANNOT_BE_NULL);
+        }
+        lock.writeLock().lock();
+        try {
+            int row = existingRow(film.getId());
+            if (film.getVersion() != null && film.getVersion() != versions[row]) {
+                throw new VersionConflictException(String.format(ExceptionMessages.FILM_VERSION_CONFLICT,
+                        film.getId(), film.getVersion(), versions[row]));
+            }
+            ownColumns();
+            names[row] = strings.intern(film.getName());
+            descriptions[row] = strings.intern(film.getDescription());
+            releaseDays[row] = toEpochDay(film.getReleaseDate());
+            durations[row] = film.getDuration();
+            versions[row]++;
+            return materialize(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Film delete(Long id) throws NotFoundException {
+        lock.writeLock().lock();
+        try {
+            int row = existingRow(id);
+            Film film = materialize(row);
+            ownColumns();
+            deleted.set(row);
+            likes[row] = null;
+            likeCounts[row] = 0;
+            log.info("Film with ID = {} deleted along with {} likes", id, film.getLikedUsers().size());
+            return film;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) throws NotFoundException {
+        findById(filmId);
+        userStorage.findById(userId);
+        boolean added;
+        lock.writeLock().lock();
+        try {
+            added = insertLike(existingRow(filmId), userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User with ID = {} liked the film with ID = {}", userId, filmId);
+        return added;
+    }
+
+    @Override
+    public void addLikes(List<Like> newLikes) throws NotFoundException {
+        // Сначала проверяем весь пакет, чтобы при ошибке ничего не применять
+        Map<Long, List<Long>> likesByFilm = new HashMap<>();
+        for (Like like : newLikes) {
+            findById(like.filmId());
+            userStorage.findById(like.userId());
+            likesByFilm.computeIfAbsent(like.filmId(), id -> new ArrayList<>()).add(like.userId());
+        }
+        lock.writeLock().lock();
+        try {
+            ownColumns();
+            for (Map.Entry<Long, List<Long>> entry : likesByFilm.entrySet()) {
+                int row = existingRow(entry.getKey());
+                // Строка лайков фильма перестраивается один раз на пакет
+                long[] merged = Arrays.copyOf(likesOf(row), likeCounts[row] + entry.getValue().size());
+                int size = likeCounts[row];
+                for (Long userId : entry.getValue()) {
+                    merged[size++] = userId;
+                }
+                Arrays.sort(merged, 0, size);
+                int unique = distinct(merged, size);
+                likes[row] = unique == merged.length ? merged : Arrays.copyOf(merged, unique);
+                likeCounts[row] = unique;
+                likesEpochs[row] = snapshotEpoch.get();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Imported {} likes", newLikes.size());
+    }
+
+    @Override
+    public void removeLike(Long filmId, Long userId) throws NotFoundException {
+        findById(filmId);
+        userStorage.findById(userId);
+        lock.writeLock().lock();
+        try {
+            if (!deleteLike(existingRow(filmId), userId)) {
+                throw new NotFoundException(String.format("User with ID = %d did not like the film with ID = %d", userId, filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User with ID = {} unliked the film with ID = {}", userId, filmId);
+    }
+
+    @Override
+    public void removeLikesOf(Long userId) {
+        int removed = 0;
+        lock.writeLock().lock();
+        try {
+            for (int row = 0; row < rows; row++) {
+                if (likeCounts[row] > 0 && deleteLike(row, userId)) {
+                    removed++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Removed {} likes of deleted user with ID = {}", removed, userId);
+    }
+
+    @Override
+    public boolean hasLike(Long filmId, Long userId) {
+        lock.readLock().lock();
+        try {
+            if (filmId < 1 || filmId > rows || deleted.get((int) (filmId - 1))) {
+                return false;
+            }
+            int row = (int) (filmId - 1);
+            return likeCounts[row] > 0 && Arrays.binarySearch(likes[row], 0, likeCounts[row], userId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<Long> getLikedFilmIds(Long userId) {
+        // Обратного индекса нет ради объема кучи: двоичный поиск по строкам лайков
+        List<Long> filmIds = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < rows; row++) {
+                if (likeCounts[row] > 0 && Arrays.binarySearch(likes[row], 0, likeCounts[row], userId) >= 0) {
+                    filmIds.add(row + 1L);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return filmIds;
+    }
+
+    @Override
+    public LongLongHashMap countLikesBy(Set<Long> userIds) {
+        LongLongHashMap votes = new LongLongHashMap();
+        if (userIds.isEmpty()) {
+            return votes;
+        }
+        // Один проход по строкам лайков на весь набор пользователей
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < rows; row++) {
+                int likeCount = likeCounts[row];
+                if (likeCount == 0) {
+                    continue;
+                }
+                long count = 0;
+                if (likeCount <= userIds.size()) {
+                    long[] rowLikes = likes[row];
+                    for (int i = 0; i < likeCount; i++) {
+                        if (userIds.contains(rowLikes[i])) {
+                            count++;
+                        }
+                    }
+                } else {
+                    for (Long userId : userIds) {
+                        if (Arrays.binarySearch(likes[row], 0, likeCount, userId) >= 0) {
+                            count++;
+                        }
+                    }
+                }
+                if (count > 0) {
+                    votes.put(row + 1L, count);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return votes;
+    }
+
+    @Override
+    public List<Film> getTopFilms(int count) {
+        log.info("Getting top-{} films by number of likes", count);
+        lock.readLock().lock();
+        try {
+            // Сканируется только колонка количества лайков, Film собираются лишь для отобранных
+            LongTopK top = new LongTopK(Math.min(count, rows));
+            for (int row = 0; row < rows; row++) {
+                QueryCancellation.checkpoint(row);
+                if (!deleted.get(row)) {
+                    top.offer(row + 1L, likeCounts[row]);
+                }
+            }
+            long[] ids = top.drainSorted();
+            List<Film> result = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                result.add(materialize((int) (id - 1)));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(Film film) {
+        ensureCapacity(rows + 1);
+        int row = rows++;
+        film.setId(row + 1L);
+        film.setVersion(1L);
+        names[row] = strings.intern(film.getName());
+        descriptions[row] = strings.intern(film.getDescription());
+        releaseDays[row] = toEpochDay(film.getReleaseDate());
+        durations[row] = film.getDuration();
+        versions[row] = 1;
+        long[] filmLikes = film.getLikedUsers() == null ? NO_LIKES
+                : film.getLikedUsers().stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        likes[row] = filmLikes.length == 0 ? null : filmLikes;
+        likeCounts[row] = filmLikes.length;
+        likesEpochs[row] = snapshotEpoch.get();
+    }
+
+    private Film materialize(int row) {
+        return columns().materialize(row, strings);
+    }
+
+    private Columns columns() {
+        return new Columns(rows, names, descriptions, releaseDays, durations, versions, likeCounts, likes, deleted);
+    }
+
+    // Первая запись после снимка копирует колонки, которые снимок мог запомнить
+    private void ownColumns() {
+        long epoch = snapshotEpoch.get();
+        if (columnsEpoch == epoch) {
+            return;
+        }
+        names = names.clone();
+        descriptions = descriptions.clone();
+        releaseDays = releaseDays.clone();
+        durations = durations.clone();
+        versions = versions.clone();
+        likeCounts = likeCounts.clone();
+        likes = likes.clone();
+        deleted = (BitSet) deleted.clone();
+        columnsEpoch = epoch;
+    }
+
+    // Строка лайков, которую можно менять на месте: созданная до последнего снимка сначала копируется
+    private long[] ownLikes(int row) {
+        ownColumns();
+        long epoch = snapshotEpoch.get();
+        long[] filmLikes = likesOf(row);
+        if (likesEpochs[row] != epoch && filmLikes.length > 0) {
+            filmLikes = filmLikes.clone();
+            likes[row] = filmLikes;
+        }
+        likesEpochs[row] = epoch;
+        return filmLikes;
+    }
+
+    private int existingRow(long id) {
+        if (id < 1 || id > rows) {
+            throw new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, id));
+        }
+        int row = (int) (id - 1);
+        if (deleted.get(row)) {
+            throw new NotFoundException(String.format(ExceptionMessages.FILM_DELETED, id));
+        }
+        return row;
+    }
+
+    private long[] likesOf(int row) {
+        return likes[row] == null ? NO_LIKES : likes[row];
+    }
+
+    // Вставка в отсортированную строку; массив растет с запасом, занято likeCounts[row] ячеек
+    private boolean insertLike(int row, long userId) {
+        int size = likeCounts[row];
+        int position = Arrays.binarySearch(likesOf(row), 0, size, userId);
+        if (position >= 0) {
+            return false;
+        }
+        long[] filmLikes = ownLikes(row);
+        position = -position - 1;
+        if (size == filmLikes.length) {
+            filmLikes = Arrays.copyOf(filmLikes, Math.max(4, size + (size >> 1)));
+            likes[row] = filmLikes;
+        }
+        System.arraycopy(filmLikes, position, filmLikes, position + 1, size - position);
+        filmLikes[position] = userId;
+        likeCounts[row] = size + 1;
+        return true;
+    }
+
+    private boolean deleteLike(int row, long userId) {
+        int size = likeCounts[row];
+        int position = Arrays.binarySearch(likesOf(row), 0, size, userId);
+        if (position < 0) {
+            return false;
+        }
+        long[] filmLikes = ownLikes(row);
+        System.arraycopy(filmLikes, position + 1, filmLikes, position, size - position - 1);
+        likeCounts[row] = size - 1;
+        return true;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= names.length) {
+            return;
+        }
+        int capacity = Math.max(required, names.length + (names.length >> 1));
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        releaseDays = Arrays.copyOf(releaseDays, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        likeCounts = Arrays.copyOf(likeCounts, capacity);
+        likes = Arrays.copyOf(likes, capacity);
+        likesEpochs = Arrays.copyOf(likesEpochs, capacity);
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        return date == null ? Integer.MIN_VALUE : Math.toIntExact(date.toEpochDay());
+    }
+
+    private static int distinct(long[] sorted, int size) {
+        if (size == 0) {
+            return 0;
+        }
+        int unique = 1;
+        for (int i = 1; i < size; i++) {
+            if (sorted[i] != sorted[unique - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return unique;
+    }
+
+    // Ссылки на колонки; строки лайков меняются на месте только в текущей эпохе, поэтому копируются при сборке
+    private record Columns(int rows, int[] names, int[] descriptions, int[] releaseDays, int[] durations,
+                           long[] versions, int[] likeCounts, long[][] likes, BitSet deleted) {
+
+        private Film materialize(int row, StringArena strings) {
+            Film film = new Film();
+            film.setId(row + 1L);
+            film.setName(strings.get(names[row]));
+            film.setDescription(strings.get(descriptions[row]));
+            film.setReleaseDate(releaseDays[row] == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(releaseDays[row]));
+            film.setDuration(durations[row]);
+            film.setVersion(versions[row]);
+            // HashSet с упаковкой не строится
+            long[] rowLikes = likes[row] == null ? NO_LIKES : likes[row];
+            film.setLikedUsers(new SortedLikes(Arrays.copyOf(rowLikes, likeCounts[row])));
+            return film;
+        }
+    }
+
+    // Неизменяемый набор поверх отсортированного long[]: contains - двоичный поиск
+    private static final class SortedLikes extends AbstractSet<Long> {
+        private final long[] userIds;
+
+        private SortedLikes(long[] userIds) {
+            this.userIds = userIds;
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            return value instanceof Long userId && Arrays.binarySearch(userIds, userId) >= 0;
+        }
+
+        @Override
+        public Iterator<Long> iterator() {
+            return Arrays.stream(userIds).iterator();
+        }
+
+        @Override
+        public int size() {
+            return userIds.length;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Comparator;
+import java.util.Set;
+
+public final class FilmRanking {
+
+    // Больше лайков - выше; при равенстве меньший id первым, чтобы порядок был детерминированным
+    public static final Comparator<Film> BY_LIKES = Comparator
+            .comparingInt((Film f) -> -f.getLikedUsers().size())
+            .thenComparing(Film::getId);
+
+    // Сколько пользователей из userIds лайкнули фильм; обходится меньший из двух наборов
+    public static long votes(Film film, Set<Long> userIds) {
+        Set<Long> likes = film.getLikedUsers();
+        Set<Long> smaller = likes.size() <= userIds.size() ? likes : userIds;
+        Set<Long> larger = smaller == likes ? userIds : likes;
+        long count = 0;
+        for (Long userId : smaller) {
+            if (larger.contains(userId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private FilmRanking() {
+    }
+}
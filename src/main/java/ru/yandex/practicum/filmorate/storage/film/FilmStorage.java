@@ -1,25 +1,108 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.executor.QueryCancellation;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public interface FilmStorage {
 
     Collection<Film> findAll();
 
+    // Согласованный на момент вызова набор сущностей; обход не блокирует пишущие потоки
+    default Collection<Film> snapshot() {
+        return List.copyOf(findAll());
+    }
+
     Film findById(Long id) throws NotFoundException;
 
+    // Фильм создается без лайков: лайки из тела запроса не переносятся, они ставятся только через addLike
     Film create(Film film);
 
     Film update(Film film) throws NotFoundException;
 
     //Film
-    void addLike(Long filmId, Long userId) throws NotFoundException;
+    // false, если лайк уже стоял
+    boolean addLike(Long filmId, Long userId) throws NotFoundException;
 
     void removeLike(Long filmId, Long userId) throws NotFoundException;
 
+    // Стоит ли лайк сейчас; false, если фильма нет. Реализации без общих образов отвечают без копирования фильма
+    default boolean hasLike(Long filmId, Long userId) {
+        try {
+            return findById(filmId).getLikedUsers().contains(userId);
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
     List<Film> getTopFilms(int count);
+
+    // Удаляет фильм вместе с его лайками и возвращает последнюю версию
+    Film delete(Long id) throws NotFoundException;
+
+    // Снимает все лайки удаленного пользователя одним изменением, чтобы топ не видел промежуточного состояния
+    void removeLikesOf(Long userId);
+
+    // id фильмов, которые лайкнул пользователь; реализации с обратным индексом отвечают без обхода фильмов
+    default Collection<Long> getLikedFilmIds(Long userId) {
+        List<Long> filmIds = new ArrayList<>();
+        long scanned = 0;
+        for (Film film : snapshot()) {
+            QueryCancellation.checkpoint(scanned++);
+            if (film.getLikedUsers().contains(userId)) {
+                filmIds.add(film.getId());
+            }
+        }
+        return filmIds;
+    }
+
+    // filmId -> сколько пользователей из userIds лайкнули фильм. Один обход фильмов на весь набор, а не на
+    // каждого пользователя; реализации с обратным индексом идут по индексу
+    default LongLongHashMap countLikesBy(Set<Long> userIds) {
+        LongLongHashMap votes = new LongLongHashMap();
+        if (userIds.isEmpty()) {
+            return votes;
+        }
+        long scanned = 0;
+        for (Film film : snapshot()) {
+            QueryCancellation.checkpoint(scanned++);
+            long count = FilmRanking.votes(film, userIds);
+            if (count > 0) {
+                votes.put(film.getId(), count);
+            }
+        }
+        return votes;
+    }
+
+    // Пакетное создание уже проверенных фильмов; реализации могут резервировать id блоком.
+    // Лайки из входных данных не переносятся, они импортируются отдельно.
+    // Пакет применяется целиком или не применяется: при ошибке уже созданные записи удаляются
+    default List<Film> createAll(List<Film> films) {
+        List<Film> created = new ArrayList<>(films.size());
+        try {
+            for (Film film : films) {
+                film.setLikedUsers(new HashSet<>());
+                created.add(create(film));
+            }
+        } catch (RuntimeException e) {
+            created.forEach(film -> delete(film.getId()));
+            throw e;
+        }
+        return created;
+    }
+
+    // Пакетное добавление лайков; при первой ошибке бросает исключение, часть пакета может быть применена
+    default void addLikes(List<Like> likes) throws NotFoundException {
+        for (Like like : likes) {
+            addLike(like.filmId(), like.userId());
+        }
+    }
 }
\ No newline at end of file
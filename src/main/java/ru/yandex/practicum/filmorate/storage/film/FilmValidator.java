@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+
+public final class FilmValidator {
+
+    private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+
+    private FilmValidator() {
+    }
+
+    public static void validate(Film film) throws ValidationException {
+        if (film.getName() == null || film.getName().isBlank()) {
+            throw new ValidationException(ExceptionMessages.FILM_NAME_CANNOT_BE_EMPTY);
+        }
+        if (film.getDescription() != null && film.getDescription().length() > 200) {
+            throw new ValidationException(ExceptionMessages.FILM_DESCRIPTION_TOO_LONG);
+        }
+        if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
+            throw new ValidationException(ExceptionMessages.FILM_RELEASE_DATE_INVALID);
+        }
+        if (film.getDuration() <= 0) {
+            throw new ValidationException(ExceptionMessages.FILM_DURATION_INVALID);
+        }
+    }
+}
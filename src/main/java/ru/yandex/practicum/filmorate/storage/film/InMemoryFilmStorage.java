@@ -2,35 +2,65 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.executor.QueryCancellation;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.LongTopK;
+import ru.yandex.practicum.filmorate.storage.PersistentTable;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.VersionedTable;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.time.LocalDateTime;
-import java.time.chrono.ChronoLocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Фильмы хранятся неизменяемыми версиями в VersionedTable: чтение (включая findAll и топ) идет по
+// согласованному снимку без блокировок, запись создает новую версию фильма и публикует ее через CAS.
+// Возвращаемые объекты - опубликованные версии, изменять их нельзя.
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.films", havingValue = "memory", matchIfMissing = true)
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
+    private static final long DEFAULT_TOMBSTONE_TTL_MS = 60_000;
 
-    private static final Map<Long, Film> films = new HashMap<>();
+    private final VersionedTable<Film> films = new VersionedTable<>();
+    // Обратный индекс "пользователь -> лайкнутые фильмы"; сверяется с таблицей после публикации новой версии
+    private final Map<Long, Set<Long>> likedFilmIds = new ConcurrentHashMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
     private final UserStorage userStorage;
+    private final Tombstones deletedFilms;
+    private final Tombstones deletedUsers;
 
-    @Autowired
     public InMemoryFilmStorage(UserStorage userStorage) {
+        this(userStorage, DEFAULT_TOMBSTONE_TTL_MS);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(UserStorage userStorage,
+                               @Value("${filmorate.storage.tombstone-ttl-ms:60000}") long tombstoneTtlMs) {
         this.userStorage = userStorage;
+        this.deletedFilms = new Tombstones(tombstoneTtlMs);
+        this.deletedUsers = new Tombstones(tombstoneTtlMs);
     }
 
     @Override
     public Collection<Film> findAll() {
         log.info("Processing Get-request...");
-        return films.values();
+        return films.snapshot();
+    }
+
+    @Override
+    public Collection<Film> snapshot() {
+        return films.snapshot();
     }
 
     @Override
@@ -40,94 +70,295 @@ public class InMemoryFilmStorage implements FilmStorage {
         }
         Film film = films.get(id);
         if (film == null) {
-            throw new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, id));
+            throw notFound(id);
         }
         return film;
     }
 
+    @Override
+    public Film delete(Long id) throws NotFoundException {
+        findById(id);
+        deletedFilms.mark(id);
+        Film[] removed = new Film[1];
+        films.update(table -> {
+            Film film = table.get(id);
+            if (film == null) {
+                throw notFound(id);
+            }
+            removed[0] = film;
+            return table.without(id);
+        });
+        // Обратный индекс чистится только у лайкнувших: O(числа лайков фильма)
+        for (Long userId : removed[0].getLikedUsers()) {
+            syncLikeIndex(id, userId);
+        }
+        log.info("Film with ID = {} deleted along with {} likes", id, removed[0].getLikedUsers().size());
+        return removed[0];
+    }
+
+    @Override
+    public void removeLikesOf(Long userId) {
+        deletedUsers.mark(userId);
+        Set<Long> filmIds = likedFilmIds.remove(userId);
+        if (filmIds == null || filmIds.isEmpty()) {
+            return;
+        }
+        // Все лайки пользователя снимаются одной новой версией таблицы: O(числа его лайков)
+        films.update(table -> {
+            PersistentTable<Film>.Editor editor = table.edit();
+            for (Long filmId : filmIds) {
+                Film film = table.get(filmId);
+                if (film != null && film.getLikedUsers().contains(userId)) {
+                    Set<Long> likes = new HashSet<>(film.getLikedUsers());
+                    likes.remove(userId);
+                    editor.put(filmId, copyOf(film, likes));
+                }
+            }
+            return editor.build();
+        });
+        // Параллельная сверка могла вернуть фильм в индекс между удалением записи и публикацией
+        for (Long filmId : filmIds) {
+            syncLikeIndex(filmId, userId);
+        }
+        log.info("Removed {} likes of deleted user with ID = {}", filmIds.size(), userId);
+    }
+
     @Override
     public Film create(Film film) throws ValidationException {
-        validateFilm(film);
-        film.setId(getNextId());
-        films.put(film.getId(), film);
+        FilmValidator.validate(film);
+        film.setId(idSequence.incrementAndGet());
+        film.setVersion(1L);
+        film.setLikedUsers(new HashSet<>());
+        Film stored = copyOf(film, Set.of());
+        films.put(stored.getId(), stored);
         return film;
     }
 
     @Override
-    public Film update(Film film) throws NotFoundException, ValidationException {
-        validateFilm(film);
-        Film oldFilm = films.get(film.getId());
-        if (oldFilm == null) {
-            throw new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, film.getId()));
+    public List<Film> createAll(List<Film> newFilms) {
+        // Один блок id и одна публикация новой версии таблицы на весь пакет
+        long nextId = idSequence.getAndAdd(newFilms.size()) + 1;
+        List<Film> stored = new ArrayList<>(newFilms.size());
+        for (Film film : newFilms) {
+            film.setId(nextId++);
+            film.setLikedUsers(new HashSet<>());
+            film.setVersion(1L);
+            stored.add(copyOf(film, Set.of()));
         }
-        oldFilm.setName(film.getName());
-        oldFilm.setDescription(film.getDescription());
-        oldFilm.setReleaseDate(film.getReleaseDate());
-        oldFilm.setDuration(film.getDuration());
-        return oldFilm;
+        films.update(table -> {
+            PersistentTable<Film>.Editor editor = table.edit();
+            for (Film film : stored) {
+                editor.put(film.getId(), film);
+            }
+            return editor.build();
+        });
+        stored.forEach(this::indexLikes);
+        log.info("Imported {} films", newFilms.size());
+        return newFilms;
     }
 
     @Override
-    public void addLike(Long filmId, Long userId) throws NotFoundException {
-        Film film = findById(filmId); // Проверяем, существует ли фильм
-        if (film == null) {
-            throw new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, filmId));
+    public Film update(Film film) throws NotFoundException, ValidationException {
+        FilmValidator.validate(film);
+        if (film.getId() == null) {
+            throw new ValidationException(ExceptionMessages.FILM_ID_CANNOT_BE_NULL);
         }
+        PersistentTable<Film> table = films.update(current -> {
+            Film oldFilm = current.get(film.getId());
+            if (oldFilm == null) {
+                throw notFound(film.getId());
+            }
+            // Версия в запросе (или из If-Match) должна совпадать с текущей, иначе запись устарела
+            if (film.getVersion() != null && !film.getVersion().equals(oldFilm.getVersion())) {
+                throw new VersionConflictException(String.format(ExceptionMessages.FILM_VERSION_CONFLICT,
+                        film.getId(), film.getVersion(), oldFilm.getVersion()));
+            }
+            // Лайки меняются только через addLike/removeLike
+            Film updated = copyOf(film, oldFilm.getLikedUsers());
+            updated.setVersion(oldFilm.getVersion() + 1);
+            return current.with(film.getId(), updated);
+        });
+        return table.get(film.getId());
+    }
 
-        User user = userStorage.findById(userId);
-        if (user == null) {
-            throw new NotFoundException(String.format("not found", userId));
-        }
+    @Override
+    public boolean addLike(Long filmId, Long userId) throws NotFoundException {
+        findById(filmId);
+        userStorage.findById(userId);
 
-        film.getLikedUsers().add(userId);
+        boolean[] added = new boolean[1];
+        films.update(table -> {
+            Film film = table.get(filmId);
+            if (film == null) {
+                throw notFound(filmId);
+            }
+            added[0] = !film.getLikedUsers().contains(userId);
+            if (!added[0]) {
+                return table;
+            }
+            Set<Long> likes = new HashSet<>(film.getLikedUsers());
+            likes.add(userId);
+            return table.with(filmId, copyOf(film, likes));
+        });
+        if (added[0]) {
+            syncLikeIndex(filmId, userId);
+            if (revokeIfDeleted(filmId, userId)) {
+                throw deletedFilms.contains(filmId) ? notFound(filmId)
+                        : new NotFoundException(String.format(ExceptionMessages.USER_DELETED, userId));
+            }
+        }
         log.info("User with ID = {} liked the film with ID = {}", userId, filmId);
+        return added[0];
     }
 
     @Override
-    public void removeLike(Long filmId, Long userId) throws NotFoundException {
-        Film film = findById(filmId);
-        if (film == null) {
-            throw new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, filmId));
+    public void addLikes(List<Like> likes) throws NotFoundException {
+        // Сначала проверяем весь пакет, чтобы при ошибке ничего не применять
+        Map<Long, List<Long>> likesByFilm = new HashMap<>();
+        for (Like like : likes) {
+            findById(like.filmId());
+            userStorage.findById(like.userId());
+            likesByFilm.computeIfAbsent(like.filmId(), id -> new ArrayList<>()).add(like.userId());
         }
-
-        User user = userStorage.findById(userId);
-        if (user == null) {
-            throw new NotFoundException(String.format("not found", userId));
+        // Набор лайков каждого фильма копируется один раз на пакет
+        films.update(table -> {
+            PersistentTable<Film>.Editor editor = table.edit();
+            for (Map.Entry<Long, List<Long>> entry : likesByFilm.entrySet()) {
+                Film film = table.get(entry.getKey());
+                if (film == null) {
+                    throw notFound(entry.getKey());
+                }
+                Set<Long> filmLikes = new HashSet<>(film.getLikedUsers());
+                filmLikes.addAll(entry.getValue());
+                editor.put(film.getId(), copyOf(film, filmLikes));
+            }
+            return editor.build();
+        });
+        for (Like like : likes) {
+            syncLikeIndex(like.filmId(), like.userId());
         }
-
-        if (!film.getLikedUsers().contains(userId)) {
-            throw new NotFoundException(String.format("User with ID = %d did not like the film with ID = %d", userId, filmId));
+        for (Like like : likes) {
+            revokeIfDeleted(like.filmId(), like.userId());
         }
+        log.info("Imported {} likes", likes.size());
+    }
 
-        film.getLikedUsers().remove(userId);
+    @Override
+    public void removeLike(Long filmId, Long userId) throws NotFoundException {
+        findById(filmId);
+        userStorage.findById(userId);
+
+        films.update(table -> {
+            Film film = table.get(filmId);
+            if (film == null) {
+                throw notFound(filmId);
+            }
+            if (!film.getLikedUsers().contains(userId)) {
+                throw new NotFoundException(String.format("User with ID = %d did not like the film with ID = %d", userId, filmId));
+            }
+            Set<Long> likes = new HashSet<>(film.getLikedUsers());
+            likes.remove(userId);
+            return table.with(filmId, copyOf(film, likes));
+        });
+        syncLikeIndex(filmId, userId);
         log.info("User with ID = {} unliked the film with ID = {}", userId, filmId);
     }
 
     @Override
     public List<Film> getTopFilms(int count) {
         log.info("Getting top-{} films by number of likes", count);
-        return films.values().stream()
-                .sorted(Comparator.comparingInt(f -> -f.getLikedUsers().size()))
-                .limit(count)
-                .collect(Collectors.toList());
+        // Отбор k лучших за один проход по снимку вместо полной сортировки; проход можно прервать
+        PersistentTable<Film> snapshot = films.snapshot();
+        LongTopK top = new LongTopK(Math.min(count, snapshot.size()));
+        long scanned = 0;
+        for (Film film : snapshot) {
+            QueryCancellation.checkpoint(scanned++);
+            top.offer(film.getId(), film.getLikedUsers().size());
+        }
+        List<Film> result = new ArrayList<>();
+        for (long id : top.drainSorted()) {
+            result.add(snapshot.get(id));
+        }
+        return result;
     }
 
-    private long getNextId() {
-        return films.keySet().stream().mapToLong(id -> id).max().orElse(0) + 1;
+    @Override
+    public Collection<Long> getLikedFilmIds(Long userId) {
+        Set<Long> filmIds = likedFilmIds.get(userId);
+        return filmIds == null ? List.of() : Collections.unmodifiableSet(filmIds);
     }
 
-    private void validateFilm(Film film) throws ValidationException {
-        if (film.getName() == null || film.getName().isBlank()) {
-            throw new ValidationException(ExceptionMessages.FILM_NAME_CANNOT_BE_EMPTY);
+    @Override
+    public LongLongHashMap countLikesBy(Set<Long> userIds) {
+        LongLongHashMap votes = new LongLongHashMap();
+        for (Long userId : userIds) {
+            for (Long filmId : getLikedFilmIds(userId)) {
+                votes.addTo(filmId, 1);
+            }
         }
-        if (film.getDescription() != null && film.getDescription().length() > 200) {
-            throw new ValidationException(ExceptionMessages.FILM_DESCRIPTION_TOO_LONG);
+        return votes;
+    }
+
+    // Лайк, записанный одновременно с удалением фильма или пользователя, мог разминуться с каскадом.
+    // Индекс уже обновлен, а метка ставится до каскада, поэтому либо каскад видит лайк, либо мы видим метку
+    private boolean revokeIfDeleted(long filmId, long userId) {
+        if (!deletedFilms.contains(filmId) && !deletedUsers.contains(userId)) {
+            return false;
         }
-        if (film.getReleaseDate().isBefore(ChronoLocalDate.from(LocalDateTime.of(1895, 12, 28, 0, 0, 0)))) {
-            throw new ValidationException(ExceptionMessages.FILM_RELEASE_DATE_INVALID);
+        films.update(table -> {
+            Film film = table.get(filmId);
+            if (film == null || !film.getLikedUsers().contains(userId)) {
+                return table;
+            }
+            Set<Long> likes = new HashSet<>(film.getLikedUsers());
+            likes.remove(userId);
+            return table.with(filmId, copyOf(film, likes));
+        });
+        syncLikeIndex(filmId, userId);
+        return true;
+    }
+
+    private NotFoundException notFound(long id) {
+        if (deletedFilms.contains(id)) {
+            return new NotFoundException(String.format(ExceptionMessages.FILM_DELETED, id));
         }
-        if (film.getDuration() <= 0) {
-            throw new ValidationException(ExceptionMessages.FILM_DURATION_INVALID);
+        return new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, id));
+    }
+
+    private void indexLikes(Film film) {
+        for (Long userId : film.getLikedUsers()) {
+            syncLikeIndex(film.getId(), userId);
         }
     }
-}
\ No newline at end of file
+
+    // Публикации в таблицу и обновления индекса могут идти в разном порядке, поэтому индекс не получает
+    // "добавить" или "удалить", а сверяется с последней опубликованной версией фильма под блокировкой ключа
+    // пользователя. Последняя сверка по паре всегда видит последнюю публикацию, и индекс не расходится с таблицей
+    private void syncLikeIndex(long filmId, long userId) {
+        likedFilmIds.compute(userId, (id, filmIds) -> {
+            Film film = films.get(filmId);
+            if (film != null && film.getLikedUsers().contains(userId)) {
+                if (filmIds == null) {
+                    filmIds = ConcurrentHashMap.newKeySet();
+                }
+                filmIds.add(filmId);
+            } else if (filmIds != null) {
+                filmIds.remove(filmId);
+            }
+            return filmIds;
+        });
+    }
+
+    // Новая неизменяемая версия фильма: набор лайков замораживается, входной объект не разделяется
+    private static Film copyOf(Film source, Set<Long> likes) {
+        Film copy = new Film();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setDescription(source.getDescription());
+        copy.setReleaseDate(source.getReleaseDate());
+        copy.setDuration(source.getDuration());
+        copy.setLikedUsers(likes == null ? Set.of() : Set.copyOf(likes));
+        copy.setVersion(source.getVersion());
+        return copy;
+    }
+}
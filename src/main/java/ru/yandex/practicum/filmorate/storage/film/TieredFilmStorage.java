@@ -0,0 +1,422 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.executor.QueryCancellation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.LongTopK;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.tier.FilmCodec;
+import ru.yandex.practicum.filmorate.storage.tier.MappedSegmentFile;
+import ru.yandex.practicum.filmorate.storage.tier.TieredTable;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Фильмы в TieredTable: в куче держится не больше hotFilms часто запрашиваемых фильмов, остальные
+// вытесняются в файл и поднимаются обратно при обращении. В куче всегда остаются колонка количества лайков
+// и обратный индекс лайков, поэтому топ, голоса друзей и удаление пользователя не декодируют холодные фильмы. Запись и подъем из файла идут под блокировкой
+// записи; горячие попадания и обходы без подъема - под блокировкой чтения, параллельно друг с другом.
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.films", havingValue = "tiered")
+@Slf4j
+public class TieredFilmStorage implements FilmStorage {
+
+    private final UserStorage userStorage;
+    private final TieredTable<Film> films;
+    private static final long[] NO_FILMS = new long[0];
+
+    private final LongLongHashMap likeCounts = new LongLongHashMap();
+    // Пользователь -> отсортированные id понравившихся ему фильмов; массивы заменяются, а не меняются на месте
+    private final Map<Long, long[]> filmsByLiker = new HashMap<>();
+    private final Tombstones deletedFilms;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long idSequence;
+
+    @Autowired
+    public TieredFilmStorage(UserStorage userStorage,
+                             @Value("${filmorate.storage.tiered.dir:${java.io.tmpdir}/filmorate-tier}") Path directory,
+                             @Value("${filmorate.storage.tiered.hot-films:100000}") int hotFilms,
+                             @Value("${filmorate.storage.tombstone-ttl-ms:60000}") long tombstoneTtlMs) {
+        this.userStorage = userStorage;
+        this.films = new TieredTable<>(new MappedSegmentFile(directory, "films-"), new FilmCodec(), hotFilms);
+        this.deletedFilms = new Tombstones(tombstoneTtlMs);
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            log.info("Closing film tier: {} hot, {} cold, {} fault-ins, {} evictions, {} bytes spilled",
+                    films.getHotSize(), films.getColdSize(), films.getFaultIns(), films.getEvictions(),
+                    films.getFileBytes());
+            films.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public TieredTable<Film> getTable() {
+        return films;
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        log.info("Processing Get-request...");
+        return snapshot();
+    }
+
+    @Override
+    public Collection<Film> snapshot() {
+        // Под блокировкой только копируются ссылки и смещения; холодные декодируются при обходе
+        lock.readLock().lock();
+        try {
+            return films.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Film findById(Long id) throws NotFoundException {
+        if (id == null) {
+            throw new ValidationException(ExceptionMessages.FILM_ID_CANNOT_BE_NULL);
+        }
+        lock.readLock().lock();
+        try {
+            Film film = films.getIfHot(id);
+            if (film != null) {
+                return film;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Промах: подъем из файла меняет таблицу
+        lock.writeLock().lock();
+        try {
+            return existing(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Film create(Film film) throws ValidationException {
+        FilmValidator.validate(film);
+        film.setLikedUsers(new HashSet<>());
+        lock.writeLock().lock();
+        try {
+            store(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return film;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> newFilms) {
+        lock.writeLock().lock();
+        try {
+            for (Film film : newFilms) {
+                film.setLikedUsers(new HashSet<>());
+                store(film);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Imported {} films", newFilms.size());
+        return newFilms;
+    }
+
+    @Override
+    public Film update(Film film) throws NotFoundException, ValidationException {
+        FilmValidator.validate(film);
+        if (film.getId() == null) {
+            throw new ValidationException(ExceptionMessages.FILM_ID_CANNOT_BE_NULL);
+        }
+        lock.writeLock().lock();
+        try {
+            Film oldFilm = existing(film.getId());
+            // Версия в запросе (или из If-Match) должна совпадать с текущей, иначе запись устарела
+            if (film.getVersion() != null && !film.getVersion().equals(oldFilm.getVersion())) {
+                throw new VersionConflictException(String.format(ExceptionMessages.FILM_VERSION_CONFLICT,
+                        film.getId(), film.getVersion(), oldFilm.getVersion()));
+            }
+            // Лайки меняются только через addLike/removeLike
+            Film updated = copyOf(film, oldFilm.getLikedUsers());
+            updated.setVersion(oldFilm.getVersion() + 1);
+            films.put(updated.getId(), updated);
+            return updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Film delete(Long id) throws NotFoundException {
+        lock.writeLock().lock();
+        try {
+            Film film = existing(id);
+            deletedFilms.mark(id);
+            films.remove(id);
+            likeCounts.remove(id, 0);
+            for (Long userId : film.getLikedUsers()) {
+                unindexLike(userId, id);
+            }
+            log.info("Film with ID = {} deleted along with {} likes", id, film.getLikedUsers().size());
+            return film;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) throws NotFoundException {
+        findById(filmId);
+        userStorage.findById(userId);
+        boolean added;
+        lock.writeLock().lock();
+        try {
+            Film film = existing(filmId);
+            added = !film.getLikedUsers().contains(userId);
+            if (added) {
+                Set<Long> likes = new HashSet<>(film.getLikedUsers());
+                likes.add(userId);
+                putLikes(film, likes);
+                indexLike(userId, filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User with ID = {} liked the film with ID = {}", userId, filmId);
+        return added;
+    }
+
+    @Override
+    public void addLikes(List<Like> likes) throws NotFoundException {
+        // Сначала проверяем весь пакет, чтобы при ошибке ничего не применять
+        Map<Long, List<Long>> likesByFilm = new HashMap<>();
+        for (Like like : likes) {
+            findById(like.filmId());
+            userStorage.findById(like.userId());
+            likesByFilm.computeIfAbsent(like.filmId(), id -> new ArrayList<>()).add(like.userId());
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long filmId : likesByFilm.keySet()) {
+                existing(filmId);
+            }
+            // Набор лайков каждого фильма копируется один раз на пакет
+            for (Map.Entry<Long, List<Long>> entry : likesByFilm.entrySet()) {
+                Film film = films.get(entry.getKey());
+                Set<Long> filmLikes = new HashSet<>(film.getLikedUsers());
+                filmLikes.addAll(entry.getValue());
+                putLikes(film, filmLikes);
+                for (Long userId : entry.getValue()) {
+                    indexLike(userId, film.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Imported {} likes", likes.size());
+    }
+
+    @Override
+    public void removeLike(Long filmId, Long userId) throws NotFoundException {
+        findById(filmId);
+        userStorage.findById(userId);
+        lock.writeLock().lock();
+        try {
+            Film film = existing(filmId);
+            if (!film.getLikedUsers().contains(userId)) {
+                throw new NotFoundException(String.format("User with ID = %d did not like the film with ID = %d", userId, filmId));
+            }
+            Set<Long> likes = new HashSet<>(film.getLikedUsers());
+            likes.remove(userId);
+            putLikes(film, likes);
+            unindexLike(userId, filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User with ID = {} unliked the film with ID = {}", userId, filmId);
+    }
+
+    @Override
+    public void removeLikesOf(Long userId) {
+        lock.writeLock().lock();
+        try {
+            // Поднимаются только фильмы из обратного индекса, остальная таблица не читается
+            long[] filmIds = filmsByLiker.getOrDefault(userId, NO_FILMS);
+            filmsByLiker.remove(userId);
+            for (long filmId : filmIds) {
+                Film film = films.get(filmId);
+                Set<Long> likes = new HashSet<>(film.getLikedUsers());
+                likes.remove(userId);
+                putLikes(film, likes);
+            }
+            log.info("Removed {} likes of deleted user with ID = {}", filmIds.length, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean hasLike(Long filmId, Long userId) {
+        // Обратный индекс отвечает без подъема фильма из файла
+        lock.readLock().lock();
+        try {
+            return Arrays.binarySearch(filmsByLiker.getOrDefault(userId, NO_FILMS), filmId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<Long> getLikedFilmIds(Long userId) {
+        long[] filmIds;
+        lock.readLock().lock();
+        try {
+            filmIds = filmsByLiker.getOrDefault(userId, NO_FILMS);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Arrays.stream(filmIds).boxed().toList();
+    }
+
+    @Override
+    public LongLongHashMap countLikesBy(Set<Long> userIds) {
+        LongLongHashMap votes = new LongLongHashMap();
+        // Голоса считаются по обратному индексу: O(лайков этих пользователей), фильмы не декодируются
+        lock.readLock().lock();
+        try {
+            for (Long userId : userIds) {
+                for (long filmId : filmsByLiker.getOrDefault(userId, NO_FILMS)) {
+                    votes.addTo(filmId, 1);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return votes;
+    }
+
+    @Override
+    public List<Film> getTopFilms(int count) {
+        log.info("Getting top-{} films by number of likes", count);
+        lock.readLock().lock();
+        try {
+            // Сканируется только колонка количества лайков, декодируются лишь отобранные фильмы
+            LongTopK top = new LongTopK(Math.min(count, films.size()));
+            long[] scanned = new long[1];
+            likeCounts.forEach((id, likes) -> {
+                QueryCancellation.checkpoint(scanned[0]++);
+                top.offer(id, likes);
+            });
+            long[] ids = top.drainSorted();
+            List<Film> result = new ArrayList<>(ids.length);
+            // Холодные фильмы читаются без подъема: топ идет под блокировкой чтения
+            for (long id : ids) {
+                Film film = films.getIfHot(id);
+                result.add(film != null ? film : films.peek(id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void store(Film film) {
+        film.setId(++idSequence);
+        film.setVersion(1L);
+        Film stored = copyOf(film, film.getLikedUsers());
+        films.put(stored.getId(), stored);
+        likeCounts.put(stored.getId(), stored.getLikedUsers().size());
+        for (Long userId : stored.getLikedUsers()) {
+            indexLike(userId, stored.getId());
+        }
+    }
+
+    private void putLikes(Film film, Set<Long> likes) {
+        films.put(film.getId(), copyOf(film, likes));
+        likeCounts.put(film.getId(), likes.size());
+    }
+
+    private void indexLike(long userId, long filmId) {
+        long[] filmIds = filmsByLiker.getOrDefault(userId, NO_FILMS);
+        int position = Arrays.binarySearch(filmIds, filmId);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        long[] grown = new long[filmIds.length + 1];
+        System.arraycopy(filmIds, 0, grown, 0, position);
+        grown[position] = filmId;
+        System.arraycopy(filmIds, position, grown, position + 1, filmIds.length - position);
+        filmsByLiker.put(userId, grown);
+    }
+
+    private void unindexLike(long userId, long filmId) {
+        long[] filmIds = filmsByLiker.getOrDefault(userId, NO_FILMS);
+        int position = Arrays.binarySearch(filmIds, filmId);
+        if (position < 0) {
+            return;
+        }
+        if (filmIds.length == 1) {
+            filmsByLiker.remove(userId);
+            return;
+        }
+        long[] shrunk = new long[filmIds.length - 1];
+        System.arraycopy(filmIds, 0, shrunk, 0, position);
+        System.arraycopy(filmIds, position + 1, shrunk, position, shrunk.length - position);
+        filmsByLiker.put(userId, shrunk);
+    }
+
+    private Film existing(long id) {
+        Film film = films.get(id);
+        if (film == null) {
+            throw notFound(id);
+        }
+        return film;
+    }
+
+    private NotFoundException notFound(long id) {
+        if (deletedFilms.contains(id)) {
+            return new NotFoundException(String.format(ExceptionMessages.FILM_DELETED, id));
+        }
+        return new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, id));
+    }
+
+    private static Film copyOf(Film source, Set<Long> likes) {
+        Film copy = new Film();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setDescription(source.getDescription());
+        copy.setReleaseDate(source.getReleaseDate());
+        copy.setDuration(source.getDuration());
+        copy.setLikedUsers(likes == null ? Set.of() : Set.copyOf(likes));
+        copy.setVersion(source.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.storage.partition;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// Кольцо консистентного хеширования: id сущности -> номер партиции.
+// Каждая партиция представлена несколькими виртуальными узлами, чтобы ключи распределялись равномерно
+// и при изменении числа партиций переезжала только часть ключей.
+public class ConsistentHashRing {
+
+    private static final int DEFAULT_VIRTUAL_NODES = 64;
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+    private final int partitionCount;
+
+    public ConsistentHashRing(int partitionCount) {
+        this(partitionCount, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashRing(int partitionCount, int virtualNodes) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("Partition count must be positive");
+        }
+        this.partitionCount = partitionCount;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(mix(((long) partition << 32) | node), partition);
+            }
+        }
+    }
+
+    public int partitionFor(long id) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(mix(id));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    // Финализатор SplitMix64: последовательные id дают хорошо перемешанные хеши
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage.partition;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Collection;
+import java.util.List;
+
+// Граница партиции фильмов: операции адресуются по id, результаты возвращаются уже отсортированными,
+// чтобы координатор мог слить их k-путевым слиянием
+public interface FilmPartition {
+
+    Film get(long id);
+
+    // Все фильмы партиции, отсортированные по id
+    List<Film> findAll();
+
+    // Неизменяемый снимок партиции, отсортированный по id; обходится без блокировок
+    Collection<Film> snapshot();
+
+    void put(Film film);
+
+    Film update(Film film);
+
+    // Удаляет фильм и возвращает его последнюю версию или null
+    Film remove(long id);
+
+    // Снимает лайки пользователя со всех фильмов партиции, возвращает число снятых
+    int removeLikesOf(long userId);
+
+    boolean addLike(long filmId, long userId);
+
+    boolean removeLike(long filmId, long userId);
+
+    // Локальный топ партиции в порядке FilmRanking.BY_LIKES
+    List<Film> getTopFilms(int count);
+}
@@ -0,0 +1,186 @@
+package ru.yandex.practicum.filmorate.storage.partition;
+
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.executor.QueryCancellation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.LongTopK;
+import ru.yandex.practicum.filmorate.storage.PersistentTable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Партиция фильмов в памяти текущего процесса со своим доменом блокировок.
+// Читатели получают объекты без блокировки, поэтому каждая запись кладет новую копию фильма.
+// Фильмы лежат в PersistentTable: снимок партиции - текущая версия таблицы, без копирования.
+// id глобальные, поэтому блоки таблицы заполнены примерно на 1/N партиций - это плата за снимки за O(1)
+public class LocalFilmPartition implements FilmPartition {
+
+    private PersistentTable<Film> films = PersistentTable.empty();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public Film get(long id) {
+        lock.readLock().lock();
+        try {
+            return films.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> findAll() {
+        return new ArrayList<>(snapshot());
+    }
+
+    @Override
+    public Collection<Film> snapshot() {
+        return current();
+    }
+
+    @Override
+    public void put(Film film) {
+        lock.writeLock().lock();
+        try {
+            films = films.with(film.getId(), copyOf(film, film.getLikedUsers()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Film update(Film film) {
+        lock.writeLock().lock();
+        try {
+            Film oldFilm = films.get(film.getId());
+            if (oldFilm == null) {
+                return null;
+            }
+            if (film.getVersion() != null && !film.getVersion().equals(oldFilm.getVersion())) {
+                throw new VersionConflictException(String.format(ExceptionMessages.FILM_VERSION_CONFLICT,
+                        film.getId(), film.getVersion(), oldFilm.getVersion()));
+            }
+            Film updated = copyOf(film, oldFilm.getLikedUsers());
+            updated.setVersion(oldFilm.getVersion() + 1);
+            films = films.with(updated.getId(), updated);
+            return updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Film remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Film film = films.get(id);
+            films = films.without(id);
+            return film;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int removeLikesOf(long userId) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            PersistentTable<Film>.Editor editor = films.edit();
+            for (Film film : films) {
+                if (film.getLikedUsers().contains(userId)) {
+                    Set<Long> likes = new HashSet<>(film.getLikedUsers());
+                    likes.remove(userId);
+                    editor.put(film.getId(), copyOf(film, likes));
+                    removed++;
+                }
+            }
+            films = editor.build();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        lock.writeLock().lock();
+        try {
+            Film film = films.get(filmId);
+            if (film == null) {
+                return false;
+            }
+            Set<Long> likes = new HashSet<>(film.getLikedUsers());
+            boolean added = likes.add(userId);
+            if (added) {
+                films = films.with(filmId, copyOf(film, likes));
+            }
+            return added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        lock.writeLock().lock();
+        try {
+            Film film = films.get(filmId);
+            if (film == null) {
+                return false;
+            }
+            Set<Long> likes = new HashSet<>(film.getLikedUsers());
+            boolean removed = likes.remove(userId);
+            if (removed) {
+                films = films.with(filmId, copyOf(film, likes));
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> getTopFilms(int count) {
+        // Обход идет по снимку без блокировки, поэтому его можно бросить на checkpoint
+        PersistentTable<Film> snapshot = current();
+        LongTopK top = new LongTopK(Math.min(count, snapshot.size()));
+        long scanned = 0;
+        for (Film film : snapshot) {
+            QueryCancellation.checkpoint(scanned++);
+            top.offer(film.getId(), film.getLikedUsers().size());
+        }
+        List<Film> result = new ArrayList<>();
+        for (long id : top.drainSorted()) {
+            result.add(snapshot.get(id));
+        }
+        return result;
+    }
+
+    private PersistentTable<Film> current() {
+        lock.readLock().lock();
+        try {
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Film copyOf(Film source, Set<Long> likes) {
+        Film copy = new Film();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setDescription(source.getDescription());
+        copy.setReleaseDate(source.getReleaseDate());
+        copy.setDuration(source.getDuration());
+        copy.setLikedUsers(Set.copyOf(likes));
+        copy.setVersion(source.getVersion());
+        return copy;
+    }
+}
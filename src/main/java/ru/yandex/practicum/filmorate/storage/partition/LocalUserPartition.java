@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.storage.partition;
+
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.PersistentTable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Партиция в памяти текущего процесса со своим доменом блокировок.
+// Читатели получают объекты без блокировки, поэтому каждая запись кладет новую копию пользователя.
+// Пользователи лежат в PersistentTable, как и фильмы в LocalFilmPartition: снимок - текущая версия таблицы
+public class LocalUserPartition implements UserPartition {
+
+    private PersistentTable<User> users = PersistentTable.empty();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public User get(long id) {
+        lock.readLock().lock();
+        try {
+            return users.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> getAll(Collection<Long> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                User user = users.get(id);
+                if (user != null) {
+                    result.add(user);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparing(User::getId));
+        return result;
+    }
+
+    @Override
+    public List<User> findAll() {
+        return new ArrayList<>(snapshot());
+    }
+
+    @Override
+    public Collection<User> snapshot() {
+        lock.readLock().lock();
+        try {
+            return users;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(User user) {
+        lock.writeLock().lock();
+        try {
+            users = users.with(user.getId(), copyOf(user, user.getFriends()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public User update(User user) {
+        lock.writeLock().lock();
+        try {
+            User oldUser = users.get(user.getId());
+            if (oldUser == null) {
+                return null;
+            }
+            if (user.getVersion() != null && !user.getVersion().equals(oldUser.getVersion())) {
+                throw new VersionConflictException(String.format(ExceptionMessages.USER_VERSION_CONFLICT,
+                        user.getId(), user.getVersion(), oldUser.getVersion()));
+            }
+            // Друзья меняются только через addFriendLink/removeFriendLink
+            User updated = User.of(oldUser.getId(),
+                    user.getName() != null ? user.getName() : user.getLogin(),
+                    user.getEmail(),
+                    user.getLogin(),
+                    user.getBirthday(),
+                    oldUser.getFriends(),
+                    oldUser.getVersion() + 1);
+            users = users.with(updated.getId(), updated);
+            return updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public User remove(long id) {
+        lock.writeLock().lock();
+        try {
+            User user = users.get(id);
+            users = users.without(id);
+            return user;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addFriendLink(long userId, long friendId) {
+        lock.writeLock().lock();
+        try {
+            User user = users.get(userId);
+            if (user == null) {
+                return false;
+            }
+            Set<Long> friends = new HashSet<>(user.getFriends());
+            boolean added = friends.add(friendId);
+            if (added) {
+                users = users.with(userId, copyOf(user, friends));
+            }
+            return added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeFriendLink(long userId, long friendId) {
+        lock.writeLock().lock();
+        try {
+            User user = users.get(userId);
+            if (user == null) {
+                return false;
+            }
+            Set<Long> friends = new HashSet<>(user.getFriends());
+            boolean removed = friends.remove(friendId);
+            if (removed) {
+                users = users.with(userId, copyOf(user, friends));
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Long> getFriendIds(long userId) {
+        lock.readLock().lock();
+        try {
+            User user = users.get(userId);
+            return user == null ? Set.of() : user.getFriends();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static User copyOf(User source, Set<Long> friends) {
+        return User.of(source.getId(), source.getName(), source.getEmail(), source.getLogin(),
+                source.getBirthday(), Set.copyOf(friends), source.getVersion());
+    }
+}
@@ -0,0 +1,234 @@
+package ru.yandex.practicum.filmorate.storage.partition;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.film.FilmRanking;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmValidator;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Хранилище фильмов, разбитое на партиции по консистентному хешу id.
+// Полный список и топ собираются параллельно со всех партиций и сливаются k-путевым слиянием.
+// Лайк, записанный одновременно с удалением фильма или пользователя, откатывается по меткам удаления.
+// Изменения идут под общей блокировкой чтения cut; снимок берет версии всех партиций под блокировкой записи.
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.films", havingValue = "partitioned")
+@Slf4j
+public class PartitionedFilmStorage implements FilmStorage {
+
+    private static final long DEFAULT_TOMBSTONE_TTL_MS = 60_000;
+
+    private final List<FilmPartition> partitions;
+    private final ConsistentHashRing ring;
+    private final ScatterGather scatterGather;
+    private final UserStorage userStorage;
+    private final AtomicLong idSequence = new AtomicLong();
+    private final Tombstones deletedFilms;
+    private final Tombstones deletedUsers;
+    private final ReadWriteLock cut = new ReentrantReadWriteLock();
+
+    public PartitionedFilmStorage(UserStorage userStorage, int partitionCount) {
+        this(userStorage, partitionCount, DEFAULT_TOMBSTONE_TTL_MS);
+    }
+
+    @Autowired
+    public PartitionedFilmStorage(UserStorage userStorage,
+                                  @Value("${filmorate.storage.partitions:8}") int partitionCount,
+                                  @Value("${filmorate.storage.tombstone-ttl-ms:60000}") long tombstoneTtlMs) {
+        this.userStorage = userStorage;
+        this.deletedFilms = new Tombstones(tombstoneTtlMs);
+        this.deletedUsers = new Tombstones(tombstoneTtlMs);
+        this.ring = new ConsistentHashRing(partitionCount);
+        this.partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new LocalFilmPartition());
+        }
+        this.scatterGather = new ScatterGather(partitionCount, "film-partition");
+        log.info("Partitioned film storage started with {} partitions", partitionCount);
+    }
+
+    @PreDestroy
+    public void close() {
+        scatterGather.close();
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        log.info("Processing Get-request...");
+        return ScatterGather.merge(scatterGather.scatter(partitions, FilmPartition::findAll),
+                Comparator.comparing(Film::getId));
+    }
+
+    @Override
+    public Collection<Film> snapshot() {
+        List<Collection<Film>> tables = new ArrayList<>(partitions.size());
+        cut.writeLock().lock();
+        try {
+            for (FilmPartition partition : partitions) {
+                tables.add(partition.snapshot());
+            }
+        } finally {
+            cut.writeLock().unlock();
+        }
+        return ScatterGather.mergedView(tables, Comparator.comparing(Film::getId));
+    }
+
+    @Override
+    public Film findById(Long id) throws NotFoundException {
+        if (id == null) {
+            throw new ValidationException(ExceptionMessages.FILM_ID_CANNOT_BE_NULL);
+        }
+        Film film = partitionOf(id).get(id);
+        if (film == null) {
+            throw notFound(id);
+        }
+        return film;
+    }
+
+    @Override
+    public Film create(Film film) throws ValidationException {
+        FilmValidator.validate(film);
+        film.setId(idSequence.incrementAndGet());
+        film.setVersion(1L);
+        film.setLikedUsers(new HashSet<>());
+        cut.readLock().lock();
+        try {
+            partitionOf(film.getId()).put(film);
+        } finally {
+            cut.readLock().unlock();
+        }
+        return film;
+    }
+
+    @Override
+    public Film update(Film film) throws NotFoundException, ValidationException {
+        FilmValidator.validate(film);
+        if (film.getId() == null) {
+            throw new ValidationException(ExceptionMessages.FILM_ID_CANNOT_BE_NULL);
+        }
+        Film updated;
+        cut.readLock().lock();
+        try {
+            updated = partitionOf(film.getId()).update(film);
+        } finally {
+            cut.readLock().unlock();
+        }
+        if (updated == null) {
+            throw new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, film.getId()));
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) throws NotFoundException {
+        findById(filmId);
+        userStorage.findById(userId);
+        boolean added;
+        boolean rolledBack = false;
+        cut.readLock().lock();
+        try {
+            added = partitionOf(filmId).addLike(filmId, userId);
+            // Метка ставится до каскада: либо каскад видит лайк, либо мы видим метку и откатываем его
+            if (added && (deletedFilms.contains(filmId) || deletedUsers.contains(userId))) {
+                partitionOf(filmId).removeLike(filmId, userId);
+                rolledBack = true;
+            }
+        } finally {
+            cut.readLock().unlock();
+        }
+        if (rolledBack) {
+            throw deletedFilms.contains(filmId) ? notFound(filmId)
+                    : new NotFoundException(String.format(ExceptionMessages.USER_DELETED, userId));
+        }
+        log.info("User with ID = {} liked the film with ID = {}", userId, filmId);
+        return added;
+    }
+
+    @Override
+    public void removeLike(Long filmId, Long userId) throws NotFoundException {
+        findById(filmId);
+        userStorage.findById(userId);
+        boolean removed;
+        cut.readLock().lock();
+        try {
+            removed = partitionOf(filmId).removeLike(filmId, userId);
+        } finally {
+            cut.readLock().unlock();
+        }
+        if (!removed) {
+            throw new NotFoundException(String.format("User with ID = %d did not like the film with ID = %d", userId, filmId));
+        }
+        log.info("User with ID = {} unliked the film with ID = {}", userId, filmId);
+    }
+
+    @Override
+    public Film delete(Long id) throws NotFoundException {
+        findById(id);
+        deletedFilms.mark(id);
+        Film film;
+        cut.readLock().lock();
+        try {
+            film = partitionOf(id).remove(id);
+        } finally {
+            cut.readLock().unlock();
+        }
+        if (film == null) {
+            throw notFound(id);
+        }
+        log.info("Film with ID = {} deleted along with {} likes", id, film.getLikedUsers().size());
+        return film;
+    }
+
+    @Override
+    public void removeLikesOf(Long userId) {
+        deletedUsers.mark(userId);
+        // Обратного индекса у партиций нет: каждая параллельно проходит свои фильмы под своей блокировкой
+        int removed;
+        cut.readLock().lock();
+        try {
+            removed = scatterGather.scatter(partitions, p -> p.removeLikesOf(userId)).stream()
+                    .mapToInt(Integer::intValue)
+                    .sum();
+        } finally {
+            cut.readLock().unlock();
+        }
+        log.info("Removed {} likes of deleted user with ID = {}", removed, userId);
+    }
+
+    @Override
+    public List<Film> getTopFilms(int count) {
+        log.info("Getting top-{} films by number of likes", count);
+        // Глобальный топ-N обязательно входит в объединение локальных топ-N партиций
+        return ScatterGather.merge(scatterGather.scatter(partitions, p -> p.getTopFilms(count)),
+                FilmRanking.BY_LIKES, count);
+    }
+
+    private NotFoundException notFound(long id) {
+        if (deletedFilms.contains(id)) {
+            return new NotFoundException(String.format(ExceptionMessages.FILM_DELETED, id));
+        }
+        return new NotFoundException(String.format(ExceptionMessages.FILM_NOT_FOUND, id));
+    }
+
+    private FilmPartition partitionOf(long id) {
+        return partitions.get(ring.partitionFor(id));
+    }
+}
@@ -0,0 +1,288 @@
+package ru.yandex.practicum.filmorate.storage.partition;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserValidator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Хранилище пользователей, разбитое на партиции по консистентному хешу id.
+// Запросы по нескольким партициям выполняются параллельно (scatter-gather) со слиянием результатов.
+// Уникальность email общая для всех партиций, поэтому индекс email хранится у координатора.
+// Дружба пишется в две партиции без общей блокировки, поэтому удаление ставит метку до снятия связей,
+// а addFriend проверяет ее после записи и откатывает связь с удаленным пользователем.
+// Изменения идут под общей блокировкой чтения cut и друг другу не мешают; снимок берет версии всех партиций
+// под блокировкой записи за O(числа партиций), поэтому видит дружбу целиком и согласован между партициями.
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.users", havingValue = "partitioned")
+@Slf4j
+public class PartitionedUserStorage implements UserStorage {
+
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getId);
+    private static final long DEFAULT_TOMBSTONE_TTL_MS = 60_000;
+
+    private final List<UserPartition> partitions;
+    private final ConsistentHashRing ring;
+    private final ScatterGather scatterGather;
+    private final AtomicLong idSequence = new AtomicLong();
+    // email -> id; адрес занимается через putIfAbsent до записи в партицию, поэтому проверка и запись атомарны
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final Tombstones tombstones;
+    private final ReadWriteLock cut = new ReentrantReadWriteLock();
+
+    public PartitionedUserStorage(int partitionCount) {
+        this(partitionCount, DEFAULT_TOMBSTONE_TTL_MS);
+    }
+
+    @Autowired
+    public PartitionedUserStorage(@Value("${filmorate.storage.partitions:8}") int partitionCount,
+                                  @Value("${filmorate.storage.tombstone-ttl-ms:60000}") long tombstoneTtlMs) {
+        this.tombstones = new Tombstones(tombstoneTtlMs);
+        this.ring = new ConsistentHashRing(partitionCount);
+        this.partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new LocalUserPartition());
+        }
+        this.scatterGather = new ScatterGather(partitionCount, "user-partition");
+        log.info("Partitioned user storage started with {} partitions", partitionCount);
+    }
+
+    @PreDestroy
+    public void close() {
+        scatterGather.close();
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        log.info("Returning the list of users...");
+        return ScatterGather.merge(scatterGather.scatter(partitions, UserPartition::findAll), BY_ID);
+    }
+
+    @Override
+    public User create(User user) throws ValidationException, DuplicatedDataException {
+        UserValidator.validate(user);
+        long id = idSequence.incrementAndGet();
+        reserveEmail(user.getEmail(), id);
+        user.setId(id);
+        user.setVersion(1L);
+        user.setFriends(new HashSet<>());
+        cut.readLock().lock();
+        try {
+            partitionOf(user.getId()).put(user);
+        } finally {
+            cut.readLock().unlock();
+        }
+        log.info("User created: {}", user);
+        return user;
+    }
+
+    @Override
+    public User update(User newUser) throws NotFoundException, ValidationException {
+        if (newUser.getId() == null) {
+            throw new ValidationException("User ID cannot be null");
+        }
+        long id = newUser.getId();
+        User current = findById(id);
+        boolean emailChanged = !current.getEmail().equals(newUser.getEmail());
+        if (emailChanged) {
+            reserveEmail(newUser.getEmail(), id);
+        }
+        User updated;
+        cut.readLock().lock();
+        try {
+            updated = partitionOf(id).update(newUser);
+        } catch (RuntimeException e) {
+            if (emailChanged) {
+                idsByEmail.remove(newUser.getEmail(), id);
+            }
+            throw e;
+        } finally {
+            cut.readLock().unlock();
+        }
+        if (updated == null) {
+            if (emailChanged) {
+                idsByEmail.remove(newUser.getEmail(), id);
+            }
+            throw notFound(id);
+        }
+        if (emailChanged) {
+            idsByEmail.remove(current.getEmail(), id);
+        }
+        log.info("User with ID = {} updated: {}", updated.getId(), updated);
+        return updated;
+    }
+
+    @Override
+    public Collection<User> snapshot() {
+        List<Collection<User>> tables = new ArrayList<>(partitions.size());
+        cut.writeLock().lock();
+        try {
+            for (UserPartition partition : partitions) {
+                tables.add(partition.snapshot());
+            }
+        } finally {
+            cut.writeLock().unlock();
+        }
+        return ScatterGather.mergedView(tables, BY_ID);
+    }
+
+    @Override
+    public User findById(Long id) throws NotFoundException {
+        if (id == null) {
+            throw new ValidationException(ExceptionMessages.USER_ID_CANNOT_BE_NULL);
+        }
+        User user = partitionOf(id).get(id);
+        if (user == null) {
+            throw notFound(id);
+        }
+        return user;
+    }
+
+    @Override
+    public User delete(Long id) throws NotFoundException {
+        findById(id);
+        tombstones.mark(id);
+        User user;
+        cut.readLock().lock();
+        try {
+            user = partitionOf(id).remove(id);
+            if (user == null) {
+                throw notFound(id);
+            }
+            // Обратные связи снимаются в партициях друзей: O(степени)
+            for (Long friendId : user.getFriends()) {
+                partitionOf(friendId).removeFriendLink(friendId, id);
+            }
+        } finally {
+            cut.readLock().unlock();
+        }
+        idsByEmail.remove(user.getEmail(), id);
+        log.info("User with ID = {} deleted along with {} friendships", id, user.getFriends().size());
+        return user;
+    }
+
+    @Override
+    public boolean addFriend(Long userId, Long friendId) throws NotFoundException {
+        findById(userId);
+        findById(friendId);
+        boolean added;
+        Long deleted;
+        cut.readLock().lock();
+        try {
+            added = partitionOf(userId).addFriendLink(userId, friendId);
+            added |= partitionOf(friendId).addFriendLink(friendId, userId);
+            // Метка ставится до удаления: либо delete увидел нашу связь в друзьях удаляемого, либо мы видим метку
+            deleted = tombstones.contains(userId) ? userId : tombstones.contains(friendId) ? friendId : null;
+            if (deleted != null) {
+                partitionOf(userId).removeFriendLink(userId, friendId);
+                partitionOf(friendId).removeFriendLink(friendId, userId);
+            }
+        } finally {
+            cut.readLock().unlock();
+        }
+        if (deleted != null) {
+            throw notFound(deleted);
+        }
+        log.info("User with ID = {} added as a friend to user with ID = {}", friendId, userId);
+        return added;
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) throws NotFoundException {
+        findById(userId);
+        findById(friendId);
+        boolean removed;
+        cut.readLock().lock();
+        try {
+            removed = partitionOf(userId).removeFriendLink(userId, friendId);
+            removed |= partitionOf(friendId).removeFriendLink(friendId, userId);
+        } finally {
+            cut.readLock().unlock();
+        }
+        log.info("User with ID = {} has been removed from friends of user with ID = {}", friendId, userId);
+        return removed;
+    }
+
+    @Override
+    public Collection<User> getFriends(Long id) throws NotFoundException {
+        findById(id);
+        return fetchAll(partitionOf(id).getFriendIds(id));
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(Long userId, Long otherUserId) throws NotFoundException {
+        findById(userId);
+        findById(otherUserId);
+        List<Set<Long>> friendSets = scatterGather.scatter(List.of(userId, otherUserId),
+                id -> partitionOf(id).getFriendIds(id));
+        Set<Long> smaller = friendSets.get(0).size() <= friendSets.get(1).size() ? friendSets.get(0) : friendSets.get(1);
+        Set<Long> larger = smaller == friendSets.get(0) ? friendSets.get(1) : friendSets.get(0);
+        Set<Long> commonFriendIds = new HashSet<>();
+        for (Long id : smaller) {
+            if (larger.contains(id)) {
+                commonFriendIds.add(id);
+            }
+        }
+        return fetchAll(commonFriendIds);
+    }
+
+    // Группирует id по партициям, параллельно читает их и сливает результаты по id
+    private List<User> fetchAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<List<Long>> idsByPartition = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            idsByPartition.add(new ArrayList<>());
+        }
+        for (Long id : ids) {
+            idsByPartition.get(ring.partitionFor(id)).add(id);
+        }
+        List<Integer> involved = new ArrayList<>();
+        for (int i = 0; i < idsByPartition.size(); i++) {
+            if (!idsByPartition.get(i).isEmpty()) {
+                involved.add(i);
+            }
+        }
+        return ScatterGather.merge(scatterGather.scatter(involved,
+                i -> partitions.get(i).getAll(idsByPartition.get(i))), BY_ID);
+    }
+
+    private UserPartition partitionOf(long id) {
+        return partitions.get(ring.partitionFor(id));
+    }
+
+    private NotFoundException notFound(long id) {
+        if (tombstones.contains(id)) {
+            return new NotFoundException(String.format(ExceptionMessages.USER_DELETED, id));
+        }
+        return new NotFoundException(String.format(ExceptionMessages.USER_NOT_FOUND, id));
+    }
+
+    private void reserveEmail(String email, long id) throws DuplicatedDataException {
+        if (idsByEmail.putIfAbsent(email, id) != null) {
+            throw new DuplicatedDataException("A user with this email already exists");
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.storage.partition;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Параллельный обход партиций и слияние отсортированных частичных результатов.
+// Пул принадлежит хранилищу и закрывается вместе с ним
+public class ScatterGather implements AutoCloseable {
+
+    private final ExecutorService executor;
+
+    public ScatterGather(int threads, String name) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public <P, R> List<R> scatter(List<P> partitions, Function<P, R> task) {
+        if (partitions.size() == 1) {
+            return List.of(task.apply(partitions.get(0)));
+        }
+        List<CompletableFuture<R>> futures = new ArrayList<>(partitions.size());
+        for (P partition : partitions) {
+            futures.add(CompletableFuture.supplyAsync(() -> task.apply(partition), executor));
+        }
+        List<R> results = new ArrayList<>(partitions.size());
+        try {
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            // Пробрасываем исходное исключение партиции (NotFoundException и т.п.)
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    // k-путевое слияние отсортированных списков через кучу курсоров, не более limit элементов
+    public static <T> List<T> merge(List<List<T>> runs, Comparator<? super T> comparator, int limit) {
+        PriorityQueue<Cursor<T>> heap = new PriorityQueue<>(Math.max(1, runs.size()),
+                (a, b) -> comparator.compare(a.current(), b.current()));
+        int total = 0;
+        for (List<T> run : runs) {
+            total += run.size();
+            if (!run.isEmpty()) {
+                heap.add(new Cursor<>(run));
+            }
+        }
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+        while (!heap.isEmpty() && merged.size() < limit) {
+            Cursor<T> cursor = heap.poll();
+            merged.add(cursor.current());
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    public static <T> List<T> merge(List<List<T>> runs, Comparator<? super T> comparator) {
+        return merge(runs, comparator, Integer.MAX_VALUE);
+    }
+
+    // Ленивое k-путевое слияние отсортированных коллекций: элементы берутся из их итераторов по одному,
+    // общий список не строится
+    public static <T> Collection<T> mergedView(List<? extends Collection<T>> runs, Comparator<? super T> comparator) {
+        int total = runs.stream().mapToInt(Collection::size).sum();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                PriorityQueue<Head<T>> heap = new PriorityQueue<>(Math.max(1, runs.size()),
+                        (a, b) -> comparator.compare(a.current, b.current));
+                for (Collection<T> run : runs) {
+                    Iterator<T> iterator = run.iterator();
+                    if (iterator.hasNext()) {
+                        heap.add(new Head<>(iterator));
+                    }
+                }
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return !heap.isEmpty();
+                    }
+
+                    @Override
+                    public T next() {
+                        Head<T> head = heap.poll();
+                        if (head == null) {
+                            throw new NoSuchElementException();
+                        }
+                        T current = head.current;
+                        if (head.advance()) {
+                            heap.add(head);
+                        }
+                        return current;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return total;
+            }
+        };
+    }
+
+    private static final class Head<T> {
+        private final Iterator<T> iterator;
+        private T current;
+
+        private Head(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.current = iterator.next();
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            current = iterator.next();
+            return true;
+        }
+    }
+
+    private static final class Cursor<T> {
+        private final List<T> run;
+        private int position;
+
+        private Cursor(List<T> run) {
+            this.run = run;
+        }
+
+        private T current() {
+            return run.get(position);
+        }
+
+        private boolean advance() {
+            return ++position < run.size();
+        }
+    }
+}
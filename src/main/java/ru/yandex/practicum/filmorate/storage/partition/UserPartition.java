@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.storage.partition;
+
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Граница партиции пользователей: все операции адресуются по id и не требуют общей памяти,
+// поэтому локальную реализацию можно будет заменить на удаленный узел
+public interface UserPartition {
+
+    User get(long id);
+
+    // Пользователи с указанными id, отсортированные по id; отсутствующие пропускаются
+    List<User> getAll(Collection<Long> ids);
+
+    // Все пользователи партиции, отсортированные по id
+    List<User> findAll();
+
+    // Неизменяемый снимок партиции, отсортированный по id; обходится без блокировок
+    Collection<User> snapshot();
+
+    void put(User user);
+
+    User update(User user);
+
+    // Удаляет пользователя и возвращает его последнюю версию или null
+    User remove(long id);
+
+    // Односторонняя связь userId -> friendId; вторую половину добавляет партиция друга
+    boolean addFriendLink(long userId, long friendId);
+
+    boolean removeFriendLink(long userId, long friendId);
+
+    Set<Long> getFriendIds(long userId);
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.storage.tier;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class FilmCodec implements EntityCodec<Film> {
+
+    @Override
+    public void encode(Film film, DataOutputStream out) throws IOException {
+        out.writeLong(film.getId());
+        out.writeLong(film.getVersion() == null ? 0 : film.getVersion());
+        EntityCodec.writeString(out, film.getName());
+        EntityCodec.writeString(out, film.getDescription());
+        EntityCodec.writeDate(out, film.getReleaseDate());
+        out.writeInt(film.getDuration());
+        EntityCodec.writeIds(out, film.getLikedUsers());
+    }
+
+    @Override
+    public Film decode(ByteBuffer in) {
+        Film film = new Film();
+        film.setId(in.getLong());
+        film.setVersion(in.getLong());
+        film.setName(EntityCodec.readString(in));
+        film.setDescription(EntityCodec.readString(in));
+        film.setReleaseDate(EntityCodec.readDate(in));
+        film.setDuration(in.getInt());
+        film.setLikedUsers(EntityCodec.readIds(in));
+        return film;
+    }
+}
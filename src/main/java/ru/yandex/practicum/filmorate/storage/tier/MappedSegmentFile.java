@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.storage.tier;
+
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Файл только на дозапись, отображенный в память сегментами по 64 МБ. Запись - [int длина][байты],
+// адрес записи - смещение в файле. Запись не пересекает границу сегмента: остаток сегмента пропускается.
+// Старые версии записей не перезаписываются: место возвращает compact, переписывая живые записи в новый файл.
+// Файл временный и удаляется при закрытии. Не потокобезопасен.
+public class MappedSegmentFile implements AutoCloseable {
+
+    static final int SEGMENT_SIZE = 64 << 20;
+
+    private final Path directory;
+    private final String prefix;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private Path path;
+    private FileChannel channel;
+    private long end;
+
+    public MappedSegmentFile(Path directory, String prefix) {
+        this.directory = directory;
+        this.prefix = prefix;
+        try {
+            Files.createDirectories(directory);
+            this.path = Files.createTempFile(directory, prefix, ".seg");
+            this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create spill file in " + directory, e);
+        }
+    }
+
+    public long append(byte[] payload) {
+        return append(ByteBuffer.wrap(payload));
+    }
+
+    private long append(ByteBuffer payload) {
+        int length = payload.remaining();
+        int recordSize = Integer.BYTES + length;
+        if (recordSize > SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit a segment");
+        }
+        int position = (int) (end % SEGMENT_SIZE);
+        if (position + recordSize > SEGMENT_SIZE) {
+            end += SEGMENT_SIZE - position;
+            position = 0;
+        }
+        MappedByteBuffer segment = segment((int) (end / SEGMENT_SIZE));
+        segment.putInt(position, length);
+        segment.put(position + Integer.BYTES, payload, payload.position(), length);
+        long offset = end;
+        end += recordSize;
+        return offset;
+    }
+
+    // Представление записи без копирования: действительно, пока файл открыт
+    public ByteBuffer read(long offset) {
+        return read(segments, offset);
+    }
+
+    // Записи, дописанные до вызова. Записанное место не перезаписывается, а compact и close не снимают
+    // отображения сегментов, поэтому читатель остается действительным и читается без блокировок
+    public Reader reader() {
+        return new Reader(List.copyOf(segments));
+    }
+
+    // Занимаемое записью место в файле вместе с заголовком длины
+    public int recordSize(long offset) {
+        MappedByteBuffer segment = segments.get((int) (offset / SEGMENT_SIZE));
+        return Integer.BYTES + segment.getInt((int) (offset % SEGMENT_SIZE));
+    }
+
+    public long size() {
+        return end;
+    }
+
+    // Переписывает записи по смещениям из offsets в новый файл, заменяет ими старый и обновляет offsets.
+    // Прежние смещения после этого читаются только через полученные ранее Reader
+    public void compact(LongLongHashMap offsets) {
+        MappedSegmentFile target = new MappedSegmentFile(directory, prefix);
+        long[] ids = new long[offsets.size()];
+        long[] moved = new long[ids.length];
+        int[] count = new int[1];
+        try {
+            offsets.forEach((id, offset) -> {
+                ids[count[0]] = id;
+                moved[count[0]++] = target.append(read(offset));
+            });
+        } catch (RuntimeException e) {
+            target.close();
+            throw e;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            offsets.put(ids[i], moved[i]);
+        }
+        close();
+        path = target.path;
+        channel = target.channel;
+        segments.clear();
+        segments.addAll(target.segments);
+        end = target.end;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ByteBuffer read(List<MappedByteBuffer> segments, long offset) {
+        MappedByteBuffer segment = segments.get((int) (offset / SEGMENT_SIZE));
+        int position = (int) (offset % SEGMENT_SIZE);
+        int length = segment.getInt(position);
+        return segment.slice(position + Integer.BYTES, length);
+    }
+
+    private MappedByteBuffer segment(int index) {
+        while (segments.size() <= index) {
+            try {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map segment " + segments.size() + " of " + path, e);
+            }
+        }
+        return segments.get(index);
+    }
+
+    public static final class Reader {
+        private final List<MappedByteBuffer> segments;
+
+        private Reader(List<MappedByteBuffer> segments) {
+            this.segments = segments;
+        }
+
+        public ByteBuffer read(long offset) {
+            return MappedSegmentFile.read(segments, offset);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package ru.yandex.practicum.filmorate.storage.tier;
+
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Таблица "id -> сущность" из двух слоев: горячие сущности лежат в куче, холодные - в файле MappedSegmentFile.
+// Когда горячих больше hotCapacity, вытесняется пачка с наименьшим числом обращений; в файл пишутся только
+// измененные с прошлого вытеснения. Обращение к холодной сущности декодирует ее и возвращает в горячий слой.
+// Счетчики обращений делятся пополам после каждой пачки, чтобы старая популярность не держала сущность вечно.
+// Устаревшие копии в файле учитываются; когда их больше половины файла, живые записи переписываются в новый файл.
+// Не потокобезопасна: вызывающий держит собственную блокировку. getIfHot, peek, contains, forEach и snapshot
+// не меняют структуру таблицы и могут идти параллельно друг с другом, если вызывающий исключает остальные операции.
+public class TieredTable<T> implements AutoCloseable {
+
+    // Только что поднятая из файла сущность не должна вытесняться первой же пачкой
+    private static final int INITIAL_HITS = 4;
+    // Мелкий файл не пересоздается: выигрыш не окупает копирование
+    private static final long MIN_COMPACTION_GARBAGE = 64 << 10;
+
+    private final MappedSegmentFile file;
+    private final EntityCodec<T> codec;
+    private final int hotCapacity;
+    private final int evictionBatch;
+    private final Map<Long, Slot<T>> hot = new HashMap<>();
+    // Смещение актуальной копии в файле; есть у всех холодных и у неизмененных горячих
+    private final LongLongHashMap offsets = new LongLongHashMap();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream output = new DataOutputStream(buffer);
+
+    private int size;
+    private long faultIns;
+    private long evictions;
+    private long garbageBytes;
+    private long compactions;
+
+    public TieredTable(MappedSegmentFile file, EntityCodec<T> codec, int hotCapacity) {
+        if (hotCapacity < 1) {
+            throw new IllegalArgumentException("Hot capacity must be positive: " + hotCapacity);
+        }
+        this.file = file;
+        this.codec = codec;
+        this.hotCapacity = hotCapacity;
+        this.evictionBatch = Math.max(1, hotCapacity / 16);
+    }
+
+    public T get(long id) {
+        Slot<T> slot = hot.get(id);
+        if (slot != null) {
+            slot.hits++;
+            return slot.value;
+        }
+        long offset = offsets.get(id, -1);
+        if (offset < 0) {
+            return null;
+        }
+        T value = codec.decode(file.read(offset));
+        faultIns++;
+        hot.put(id, new Slot<>(value, INITIAL_HITS, true));
+        evictIfNeeded(id);
+        return value;
+    }
+
+    // Только горячее попадание, без подъема из файла. Счетчик обращений приблизительный: при параллельных
+    // вызовах инкременты могут теряться, для выбора вытесняемых это не важно
+    public T getIfHot(long id) {
+        Slot<T> slot = hot.get(id);
+        if (slot == null) {
+            return null;
+        }
+        slot.hits++;
+        return slot.value;
+    }
+
+    // Чтение без подъема в горячий слой: для обходов, которые иначе вытеснили бы всю горячую часть
+    public T peek(long id) {
+        Slot<T> slot = hot.get(id);
+        if (slot != null) {
+            return slot.value;
+        }
+        long offset = offsets.get(id, -1);
+        return offset < 0 ? null : codec.decode(file.read(offset));
+    }
+
+    public boolean contains(long id) {
+        return hot.containsKey(id) || offsets.containsKey(id);
+    }
+
+    public void put(long id, T value) {
+        Slot<T> slot = hot.get(id);
+        if (slot != null) {
+            slot.value = value;
+            slot.clean = false;
+            slot.hits++;
+        } else {
+            if (!offsets.containsKey(id)) {
+                size++;
+            }
+            hot.put(id, new Slot<>(value, INITIAL_HITS, false));
+        }
+        // Копия в файле устарела; место под нее вернет компактизация
+        discardCopy(id);
+        evictIfNeeded(id);
+        compactIfNeeded();
+    }
+
+    public T remove(long id) {
+        T value = peek(id);
+        if (value != null) {
+            hot.remove(id);
+            discardCopy(id);
+            size--;
+            compactIfNeeded();
+        }
+        return value;
+    }
+
+    // Обход всех сущностей в произвольном порядке без подъема холодных
+    public void forEach(Consumer<T> action) {
+        for (Slot<T> slot : hot.values()) {
+            action.accept(slot.value);
+        }
+        // Холодные декодируются прямо при обходе смещений, без промежуточного списка id
+        offsets.forEach((id, offset) -> {
+            if (!hot.containsKey(id)) {
+                action.accept(codec.decode(file.read(offset)));
+            }
+        });
+    }
+
+    // Содержимое на момент вызова в порядке id: ссылки на горячие значения и смещения холодных копий.
+    // Холодные декодируются по одной при обходе, сам обход идет без блокировки вызывающего
+    public Collection<T> snapshot() {
+        Map<Long, T> hotValues = new HashMap<>(hot.size() * 2);
+        LongLongHashMap coldOffsets = new LongLongHashMap(size - hot.size());
+        long[] ids = new long[size];
+        int[] count = new int[1];
+        hot.forEach((id, slot) -> {
+            hotValues.put(id, slot.value);
+            ids[count[0]++] = id;
+        });
+        offsets.forEach((id, offset) -> {
+            if (!hot.containsKey(id)) {
+                coldOffsets.put(id, offset);
+                ids[count[0]++] = id;
+            }
+        });
+        Arrays.sort(ids);
+        MappedSegmentFile.Reader reader = file.reader();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new Iterator<>() {
+                    private int position;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < ids.length;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        long id = ids[position++];
+                        T value = hotValues.get(id);
+                        return value != null ? value : codec.decode(reader.read(coldOffsets.get(id, -1)));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getHotSize() {
+        return hot.size();
+    }
+
+    public int getColdSize() {
+        return size - hot.size();
+    }
+
+    public long getFaultIns() {
+        return faultIns;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getFileBytes() {
+        return file.size();
+    }
+
+    public long getGarbageBytes() {
+        return garbageBytes;
+    }
+
+    public long getCompactions() {
+        return compactions;
+    }
+
+    @Override
+    public void close() {
+        file.close();
+    }
+
+    private void evictIfNeeded(long keepId) {
+        if (hot.size() <= hotCapacity) {
+            return;
+        }
+        List<Map.Entry<Long, Slot<T>>> candidates = new ArrayList<>(hot.entrySet());
+        candidates.removeIf(entry -> entry.getKey() == keepId);
+        candidates.sort(Comparator.comparingInt(entry -> entry.getValue().hits));
+        int batch = Math.min(candidates.size(), hot.size() - hotCapacity + evictionBatch - 1);
+        for (int i = 0; i < batch; i++) {
+            Map.Entry<Long, Slot<T>> entry = candidates.get(i);
+            Slot<T> slot = entry.getValue();
+            if (!slot.clean) {
+                offsets.put(entry.getKey(), file.append(encode(slot.value)));
+            }
+            hot.remove(entry.getKey());
+        }
+        evictions += batch;
+        for (Slot<T> slot : hot.values()) {
+            slot.hits >>>= 1;
+        }
+    }
+
+    private void discardCopy(long id) {
+        long offset = offsets.remove(id, -1);
+        if (offset >= 0) {
+            garbageBytes += file.recordSize(offset);
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (garbageBytes < MIN_COMPACTION_GARBAGE || garbageBytes * 2 < file.size()) {
+            return;
+        }
+        file.compact(offsets);
+        garbageBytes = 0;
+        compactions++;
+    }
+
+    private byte[] encode(T value) {
+        buffer.reset();
+        try {
+            codec.encode(value, output);
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static final class Slot<T> {
+        private T value;
+        private int hits;
+        // Копия в файле совпадает со значением, повторная запись при вытеснении не нужна
+        private boolean clean;
+
+        private Slot(T value, int hits, boolean clean) {
+            this.value = value;
+            this.hits = hits;
+            this.clean = clean;
+        }
+    }
+}
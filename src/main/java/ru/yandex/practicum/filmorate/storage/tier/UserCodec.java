@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage.tier;
+
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class UserCodec implements EntityCodec<User> {
+
+    @Override
+    public void encode(User user, DataOutputStream out) throws IOException {
+        out.writeLong(user.getId());
+        out.writeLong(user.getVersion() == null ? 0 : user.getVersion());
+        EntityCodec.writeString(out, user.getName());
+        EntityCodec.writeString(out, user.getEmail());
+        EntityCodec.writeString(out, user.getLogin());
+        EntityCodec.writeDate(out, user.getBirthday());
+        EntityCodec.writeIds(out, user.getFriends());
+    }
+
+    @Override
+    public User decode(ByteBuffer in) {
+        long id = in.getLong();
+        long version = in.getLong();
+        String name = EntityCodec.readString(in);
+        String email = EntityCodec.readString(in);
+        String login = EntityCodec.readString(in);
+        return User.of(id, name, email, login, EntityCodec.readDate(in), EntityCodec.readIds(in), version);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Поддерживает CSR-снимок графа дружбы. Записи попадают в очередь изменений, фоновый поток
+// периодически применяет их к снимку и публикует новую версию. Пока по пользователю есть
+// неприменённые изменения, он считается "грязным" и читается из живого набора друзей.
+@Slf4j
+public class FriendGraphIndex implements AutoCloseable {
+
+    private final Queue<FriendshipDelta> pending = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Integer> dirtyUsers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService rebuilder;
+    private volatile FriendGraphSnapshot snapshot = FriendGraphSnapshot.empty();
+
+    public FriendGraphIndex(long rebuildIntervalMillis) {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "friend-graph-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::rebuildQuietly, rebuildIntervalMillis, rebuildIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void recordAdd(long userId, long friendId) {
+        record(new FriendshipDelta(userId, friendId, true));
+    }
+
+    public void recordRemove(long userId, long friendId) {
+        record(new FriendshipDelta(userId, friendId, false));
+    }
+
+    public FriendGraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // true, если все изменения по пользователю уже есть в текущем снимке
+    public boolean isClean(long userId) {
+        return !dirtyUsers.containsKey(userId);
+    }
+
+    // Применяет накопленные изменения; вызывается фоновым потоком, можно вызвать и синхронно
+    public synchronized void rebuild() {
+        List<FriendshipDelta> batch = new ArrayList<>();
+        FriendshipDelta delta;
+        while ((delta = pending.poll()) != null) {
+            batch.add(delta);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        snapshot = snapshot.apply(batch);
+        // Счетчики снимаются только после публикации снимка, иначе читатель увидит "чистого" пользователя
+        // со старой строкой
+        for (FriendshipDelta applied : batch) {
+            dirtyUsers.computeIfPresent(applied.userId(), (id, count) -> count > 1 ? count - 1 : null);
+        }
+        log.debug("Friend graph snapshot v{} published: {} users, {} edges, {} deltas applied",
+                snapshot.getVersion(), snapshot.getUserCount(), snapshot.getEdgeCount(), batch.size());
+    }
+
+    @Override
+    public void close() {
+        rebuilder.shutdownNow();
+    }
+
+    private void record(FriendshipDelta delta) {
+        dirtyUsers.merge(delta.userId(), 1, Integer::sum);
+        pending.add(delta);
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Friend graph snapshot rebuild failed", e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+
+// Неизменяемый снимок графа дружбы в формате CSR (compressed sparse row):
+// userIds - отсортированные id вершин, строка i - neighbors[offsets[i]..offsets[i + 1]), тоже отсортированная.
+// Обход соседей идет по непрерывному long[] без разыменования объектов в куче.
+public final class FriendGraphSnapshot {
+
+    private static final long[] NO_NEIGHBORS = new long[0];
+    private static final FriendGraphSnapshot EMPTY = new FriendGraphSnapshot(new long[0], new int[]{0}, new long[0], 0);
+
+    private final long[] userIds;
+    private final int[] offsets;
+    private final long[] neighbors;
+    private final long version;
+
+    private FriendGraphSnapshot(long[] userIds, int[] offsets, long[] neighbors, long version) {
+        this.userIds = userIds;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.version = version;
+    }
+
+    public static FriendGraphSnapshot empty() {
+        return EMPTY;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getUserCount() {
+        return userIds.length;
+    }
+
+    public int getEdgeCount() {
+        return neighbors.length;
+    }
+
+    public int degree(long userId) {
+        int row = Arrays.binarySearch(userIds, userId);
+        return row < 0 ? 0 : offsets[row + 1] - offsets[row];
+    }
+
+    // Отсортированные id друзей; пустой массив, если вершины нет в снимке
+    public long[] neighbors(long userId) {
+        int row = Arrays.binarySearch(userIds, userId);
+        if (row < 0) {
+            return NO_NEIGHBORS;
+        }
+        return Arrays.copyOfRange(neighbors, offsets[row], offsets[row + 1]);
+    }
+
+    // Обход строки без копирования массива
+    public void forEachNeighbor(long userId, LongConsumer action) {
+        int row = Arrays.binarySearch(userIds, userId);
+        if (row < 0) {
+            return;
+        }
+        for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+            action.accept(neighbors[i]);
+        }
+    }
+
+    // Пересечение двух отсортированных строк слиянием за O(deg(a) + deg(b))
+    public long[] commonNeighbors(long userId, long otherUserId) {
+        int a = Arrays.binarySearch(userIds, userId);
+        int b = Arrays.binarySearch(userIds, otherUserId);
+        if (a < 0 || b < 0) {
+            return NO_NEIGHBORS;
+        }
+        int i = offsets[a];
+        int iEnd = offsets[a + 1];
+        int j = offsets[b];
+        int jEnd = offsets[b + 1];
+        long[] result = new long[Math.min(iEnd - i, jEnd - j)];
+        int size = 0;
+        while (i < iEnd && j < jEnd) {
+            long left = neighbors[i];
+            long right = neighbors[j];
+            if (left == right) {
+                result[size++] = left;
+                i++;
+                j++;
+            } else if (left < right) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    // Новый снимок с примененными изменениями. Незатронутые строки копируются блоками через arraycopy,
+    // затронутые - сливаются с отсортированными добавлениями/удалениями; старый снимок не меняется.
+    public FriendGraphSnapshot apply(List<FriendshipDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return this;
+        }
+        TreeMap<Long, RowChange> changes = new TreeMap<>();
+        for (FriendshipDelta delta : deltas) {
+            changes.computeIfAbsent(delta.userId(), id -> new RowChange()).record(delta.friendId(), delta.added());
+        }
+
+        int newUsers = 0;
+        int edgeGrowth = 0;
+        for (Map.Entry<Long, RowChange> entry : changes.entrySet()) {
+            if (Arrays.binarySearch(userIds, entry.getKey()) < 0) {
+                newUsers++;
+            }
+            edgeGrowth += entry.getValue().additions().length;
+        }
+
+        long[] newUserIds = new long[userIds.length + newUsers];
+        int[] newOffsets = new int[newUserIds.length + 1];
+        long[] newNeighbors = new long[neighbors.length + edgeGrowth];
+        int row = 0;
+        int newRow = 0;
+        int edge = 0;
+        Iterator<Map.Entry<Long, RowChange>> pending = changes.entrySet().iterator();
+        Map.Entry<Long, RowChange> change = pending.hasNext() ? pending.next() : null;
+
+        while (row < userIds.length || change != null) {
+            boolean takeOld = row < userIds.length && (change == null || userIds[row] <= change.getKey());
+            if (takeOld && (change == null || userIds[row] < change.getKey())) {
+                // Блок незатронутых строк до следующего изменения
+                int until = change == null ? userIds.length : lowerBound(userIds, row, change.getKey());
+                for (int r = row; r < until; r++) {
+                    newUserIds[newRow] = userIds[r];
+                    newOffsets[newRow] = edge + (offsets[r] - offsets[row]);
+                    newRow++;
+                }
+                int length = offsets[until] - offsets[row];
+                System.arraycopy(neighbors, offsets[row], newNeighbors, edge, length);
+                edge += length;
+                row = until;
+                continue;
+            }
+            long userId = change.getKey();
+            newUserIds[newRow] = userId;
+            newOffsets[newRow] = edge;
+            int start = takeOld ? offsets[row] : 0;
+            int end = takeOld ? offsets[row + 1] : 0;
+            edge = change.getValue().mergeInto(neighbors, start, end, newNeighbors, edge);
+            if (takeOld) {
+                row++;
+            }
+            newRow++;
+            change = pending.hasNext() ? pending.next() : null;
+        }
+        newOffsets[newRow] = edge;
+        return new FriendGraphSnapshot(newUserIds, newOffsets,
+                edge == newNeighbors.length ? newNeighbors : Arrays.copyOf(newNeighbors, edge), version + 1);
+    }
+
+    private static int lowerBound(long[] array, int from, long key) {
+        int index = Arrays.binarySearch(array, from, array.length, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // Итоговое изменение строки: последнее изменение по каждой связи побеждает
+    private static final class RowChange {
+        private final TreeMap<Long, Boolean> edges = new TreeMap<>();
+
+        private void record(long friendId, boolean added) {
+            edges.put(friendId, added);
+        }
+
+        private long[] additions() {
+            return edges.entrySet().stream()
+                    .filter(Map.Entry::getValue)
+                    .mapToLong(Map.Entry::getKey)
+                    .toArray();
+        }
+
+        // Слияние старой отсортированной строки с изменениями; возвращает новую позицию записи
+        private int mergeInto(long[] source, int from, int to, long[] target, int position) {
+            long[] changed = edges.keySet().stream().mapToLong(Long::longValue).toArray();
+            int i = from;
+            int c = 0;
+            while (i < to || c < changed.length) {
+                if (c == changed.length || (i < to && source[i] < changed[c])) {
+                    target[position++] = source[i++];
+                    continue;
+                }
+                long friendId = changed[c++];
+                if (i < to && source[i] == friendId) {
+                    i++;
+                }
+                if (edges.get(friendId)) {
+                    target[position++] = friendId;
+                }
+            }
+            return position;
+        }
+    }
+}
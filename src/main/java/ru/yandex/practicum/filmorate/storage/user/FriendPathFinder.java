@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.executor.QueryCancellation;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// Кратчайшая цепочка дружбы двунаправленным BFS: волны идут навстречу от обоих пользователей,
+// на каждом шаге расширяется меньший фронт. Посещенные вершины - примитивные карты "вершина -> родитель",
+// поэтому память растет с числом посещенных вершин, а не с размером графа.
+public final class FriendPathFinder {
+
+    // Источник соседей: CSR-снимок, живая таблица или партиции
+    @FunctionalInterface
+    public interface Neighbors {
+        void forEach(long userId, LongConsumer action);
+    }
+
+    private FriendPathFinder() {
+    }
+
+    // id пользователей цепочки от source до target включительно или null, если цепочки длиной
+    // не больше maxDepth нет
+    public static long[] shortestPath(Neighbors graph, long source, long target, int maxDepth) {
+        if (source == target) {
+            return new long[]{source};
+        }
+        Side forward = new Side(source);
+        Side backward = new Side(target);
+        int depth = 0;
+        while (depth < maxDepth && forward.frontierSize > 0 && backward.frontierSize > 0) {
+            boolean expandForward = forward.frontierSize <= backward.frontierSize;
+            Side side = expandForward ? forward : backward;
+            Side other = expandForward ? backward : forward;
+            long meeting = side.expand(graph, other);
+            depth++;
+            if (meeting != Side.NONE) {
+                return join(forward, backward, meeting);
+            }
+        }
+        return null;
+    }
+
+    // Половина от source до точки встречи разворачивается, вторая половина идет по родителям к target
+    private static long[] join(Side forward, Side backward, long meeting) {
+        long[] head = forward.chainTo(meeting);
+        long[] tail = backward.chainTo(meeting);
+        long[] path = new long[head.length + tail.length - 1];
+        for (int i = 0; i < head.length; i++) {
+            path[i] = head[head.length - 1 - i];
+        }
+        System.arraycopy(tail, 1, path, head.length, tail.length - 1);
+        return path;
+    }
+
+    private static final class Side {
+        private static final long NONE = Long.MIN_VALUE;
+
+        private final long root;
+        private final LongLongHashMap parents = new LongLongHashMap();
+        private long[] frontier;
+        private int frontierSize;
+        private long[] next = new long[16];
+        private int nextSize;
+        private long current;
+        private Side other;
+        private long meeting;
+
+        private Side(long root) {
+            this.root = root;
+            this.frontier = new long[]{root};
+            this.frontierSize = 1;
+            parents.put(root, root);
+        }
+
+        // Один уровень BFS. Все встречи на одном уровне дают цепочку одной длины,
+        // поэтому обход прекращается на первой найденной
+        private long expand(Neighbors graph, Side other) {
+            this.other = other;
+            this.meeting = NONE;
+            nextSize = 0;
+            for (int i = 0; i < frontierSize && meeting == NONE; i++) {
+                // Поиск по большому графу - самый долгий тяжелый запрос: бросаем его, если ответ уже не ждут
+                QueryCancellation.checkpoint(i);
+                current = frontier[i];
+                graph.forEach(current, this::visit);
+            }
+            long[] swap = frontier;
+            frontier = next;
+            frontierSize = nextSize;
+            next = swap;
+            return meeting;
+        }
+
+        private void visit(long neighbor) {
+            if (meeting != NONE || parents.containsKey(neighbor)) {
+                return;
+            }
+            parents.put(neighbor, current);
+            if (other.parents.containsKey(neighbor)) {
+                meeting = neighbor;
+                return;
+            }
+            if (nextSize == next.length) {
+                next = Arrays.copyOf(next, nextSize * 2);
+            }
+            next[nextSize++] = neighbor;
+        }
+
+        // Цепочка от вершины до корня этой стороны
+        private long[] chainTo(long vertex) {
+            long[] chain = new long[8];
+            int size = 0;
+            long node = vertex;
+            while (true) {
+                if (size == chain.length) {
+                    chain = Arrays.copyOf(chain, size * 2);
+                }
+                chain[size++] = node;
+                if (node == root) {
+                    return Arrays.copyOf(chain, size);
+                }
+                node = parents.get(node, root);
+            }
+        }
+    }
+}
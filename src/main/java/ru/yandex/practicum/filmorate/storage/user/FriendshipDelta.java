@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+// Изменение одной направленной связи userId -> friendId в графе дружбы
+public record FriendshipDelta(long userId, long friendId, boolean added) {
+}
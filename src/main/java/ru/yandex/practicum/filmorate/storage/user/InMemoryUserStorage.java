@@ -1,183 +1,439 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.PersistentTable;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.VersionedTable;
 
-import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+// Пользователи хранятся неизменяемыми версиями в VersionedTable: чтение идет по снимку без блокировок,
+// изменения дружбы обоих пользователей публикуются одной атомарной заменой таблицы
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.users", havingValue = "memory", matchIfMissing = true)
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
+    private static final long DEFAULT_GRAPH_REBUILD_INTERVAL_MS = 50;
+    private static final long DEFAULT_TOMBSTONE_TTL_MS = 60_000;
+
+    private final VersionedTable<User> users = new VersionedTable<>();
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final FriendGraphIndex friendGraph;
+    private final Object friendGraphRecordLock = new Object();
+    private final Tombstones tombstones;
+
+    public InMemoryUserStorage() {
+        this(DEFAULT_GRAPH_REBUILD_INTERVAL_MS);
+    }
+
+    public InMemoryUserStorage(long rebuildIntervalMs) {
+        this(rebuildIntervalMs, DEFAULT_TOMBSTONE_TTL_MS);
+    }
+
+    @Autowired
+    public InMemoryUserStorage(@Value("${filmorate.storage.friend-graph.rebuild-interval-ms:50}") long rebuildIntervalMs,
+                               @Value("${filmorate.storage.tombstone-ttl-ms:60000}") long tombstoneTtlMs) {
+        this.friendGraph = new FriendGraphIndex(rebuildIntervalMs);
+        this.tombstones = new Tombstones(tombstoneTtlMs);
+    }
+
+    @PreDestroy
+    public void close() {
+        friendGraph.close();
+    }
+
+    public FriendGraphIndex getFriendGraph() {
+        return friendGraph;
+    }
 
     @Override
     public Collection<User> findAll() {
         log.info("Returning the list of users...");
-        return users.values();
+        return users.snapshot();
+    }
+
+    @Override
+    public Collection<User> snapshot() {
+        return users.snapshot();
     }
 
     @Override
     public User create(User user) throws ValidationException, DuplicatedDataException {
-        validateEmail(user.getEmail());
-        validateLogin(user.getLogin());
-        if (user.getName() == null || user.getName().isBlank()) {
-            user.setName(user.getLogin());
-        }
-        validateBirthday(user.getBirthday());
-        duplicateCheck(user);
-        user.setId(getNextId());
+        UserValidator.validate(user);
+        long id = idSequence.incrementAndGet();
+        reserveEmail(user.getEmail(), id);
+        user.setId(id);
         user.setFriends(new HashSet<>());
-        users.put(user.getId(), user);
+        user.setVersion(1L);
+        users.put(id, copyOf(user, Set.of()));
         log.info("User created: {}", user);
         return user;
     }
 
+    @Override
+    public List<User> createAll(List<User> newUsers) throws DuplicatedDataException {
+        // Один блок id на весь пакет
+        long nextId = idSequence.getAndAdd(newUsers.size()) + 1;
+        List<String> reserved = new ArrayList<>(newUsers.size());
+        try {
+            for (User user : newUsers) {
+                reserveEmail(user.getEmail(), nextId + reserved.size());
+                reserved.add(user.getEmail());
+            }
+        } catch (DuplicatedDataException e) {
+            // Пакет применяется целиком или не применяется вовсе
+            reserved.forEach(idsByEmail::remove);
+            throw e;
+        }
+        List<User> stored = new ArrayList<>(newUsers.size());
+        for (User user : newUsers) {
+            user.setId(nextId++);
+            user.setFriends(new HashSet<>());
+            user.setVersion(1L);
+            stored.add(copyOf(user, Set.of()));
+        }
+        users.update(table -> {
+            PersistentTable<User>.Editor editor = table.edit();
+            for (User user : stored) {
+                editor.put(user.getId(), user);
+            }
+            return editor.build();
+        });
+        log.info("Imported {} users", newUsers.size());
+        return newUsers;
+    }
+
     @Override
     public User update(User newUser) throws NotFoundException, ValidationException {
         if (newUser.getId() == null) {
             throw new ValidationException("User ID cannot be null");
         }
-        if (!users.containsKey(newUser.getId())) {
-            throw new NotFoundException("User with ID = " + newUser.getId() + " not found");
+        long id = newUser.getId();
+        // Новый email занимается до публикации, как в create: два пользователя не получат один адрес
+        boolean claimed = claimEmail(newUser.getEmail(), id);
+        User[] previous = new User[1];
+        PersistentTable<User> table;
+        try {
+            table = users.update(current -> {
+                User oldUser = current.get(id);
+                if (oldUser == null) {
+                    throw notFound(id);
+                }
+                // Версия в запросе (или из If-Match) должна совпадать с текущей, иначе запись устарела
+                if (newUser.getVersion() != null && !newUser.getVersion().equals(oldUser.getVersion())) {
+                    throw new VersionConflictException(String.format(ExceptionMessages.USER_VERSION_CONFLICT,
+                            id, newUser.getVersion(), oldUser.getVersion()));
+                }
+                previous[0] = oldUser;
+                // Друзья меняются только через addFriend/removeFriend, иначе PUT затирал бы параллельные изменения
+                User updated = User.of(id,
+                        newUser.getName() != null ? newUser.getName() : newUser.getLogin(),
+                        newUser.getEmail(),
+                        newUser.getLogin(),
+                        newUser.getBirthday(),
+                        oldUser.getFriends(),
+                        oldUser.getVersion() + 1);
+                return current.with(id, updated);
+            });
+        } catch (RuntimeException e) {
+            if (claimed) {
+                idsByEmail.remove(newUser.getEmail(), id);
+            }
+            throw e;
         }
-        User oldUser = users.get(newUser.getId());
-        oldUser.setEmail(newUser.getEmail());
-        oldUser.setLogin(newUser.getLogin());
-        oldUser.setName(newUser.getName() != null ? newUser.getName() : newUser.getLogin());
-        oldUser.setBirthday(newUser.getBirthday());
-
-        if (newUser.getFriends() == null) {
-            newUser.setFriends(new HashSet<>());
+        User oldUser = previous[0];
+        User updated = table.get(id);
+        if (!Objects.equals(oldUser.getEmail(), updated.getEmail())) {
+            idsByEmail.remove(oldUser.getEmail(), id);
         }
-        oldUser.setFriends(new HashSet<>(newUser.getFriends()));
-
-        users.put(oldUser.getId(), oldUser);
-        log.info("User with ID = {} updated: {}", oldUser.getId(), oldUser);
-        return oldUser;
+        log.info("User with ID = {} updated: {}", id, updated);
+        return updated;
     }
 
     @Override
     public User findById(Long id) throws NotFoundException {
         if (id == null) {
-            throw new ValidationException("ID cannot be null");
+            throw new ValidationException(ExceptionMessages.USER_ID_CANNOT_BE_NULL);
         }
         User user = users.get(id);
         if (user == null) {
-            throw new NotFoundException("User with ID = " + id + " not found");
+            throw notFound(id);
         }
-        log.info("User found: {}", user);
+        log.debug("User found: {}", user);
         return user;
     }
 
     @Override
-    public void addFriend(Long userId, Long friendId) throws NotFoundException {
-        User user = findById(userId);
-        User friend = findById(friendId);
-
-        if (user.getFriends() == null) {
-            user.setFriends(new HashSet<>());
-        }
-        if (friend.getFriends() == null) {
-            friend.setFriends(new HashSet<>());
+    public User delete(Long id) throws NotFoundException {
+        findById(id);
+        tombstones.mark(id);
+        User[] removed = new User[1];
+        users.update(table -> {
+            User user = table.get(id);
+            if (user == null) {
+                throw notFound(id);
+            }
+            removed[0] = user;
+            // Дружба двусторонняя, поэтому достаточно пройти по друзьям удаляемого: O(степени)
+            PersistentTable<User>.Editor editor = table.edit().put(id, null);
+            for (Long friendId : user.getFriends()) {
+                if (!friendId.equals(id) && editor.get(friendId) != null) {
+                    unlink(editor, friendId, id);
+                }
+            }
+            return editor.build();
+        });
+        User user = removed[0];
+        idsByEmail.remove(user.getEmail(), id);
+        for (Long friendId : user.getFriends()) {
+            recordFriendship(id, friendId);
+            recordFriendship(friendId, id);
         }
+        log.info("User with ID = {} deleted along with {} friendships", id, user.getFriends().size());
+        return user;
+    }
 
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
+    @Override
+    public boolean addFriend(Long userId, Long friendId) throws NotFoundException {
+        findById(userId);
+        findById(friendId);
 
-        update(user);
-        update(friend);
+        boolean[] added = new boolean[2];
+        users.update(table -> {
+            PersistentTable<User>.Editor editor = table.edit();
+            added[0] = link(editor, userId, friendId);
+            added[1] = link(editor, friendId, userId);
+            return editor.build();
+        });
+        if (added[0]) {
+            recordFriendship(userId, friendId);
+        }
+        if (added[1]) {
+            recordFriendship(friendId, userId);
+        }
 
         log.info("User with ID = {} added as a friend to user with ID = {}", friendId, userId);
+        return added[0] || added[1];
     }
 
     @Override
-    public User removeFriend(Long userId, Long friendId) throws NotFoundException {
-        User user = findById(userId);
-        User friend = findById(friendId);
+    public boolean removeFriend(Long userId, Long friendId) throws NotFoundException {
+        findById(userId);
+        findById(friendId);
 
-        if (user.getFriends() == null) {
-            user.setFriends(new HashSet<>());
+        boolean[] removed = new boolean[2];
+        users.update(current -> {
+            PersistentTable<User>.Editor editor = current.edit();
+            removed[0] = unlink(editor, userId, friendId);
+            removed[1] = unlink(editor, friendId, userId);
+            return editor.build();
+        });
+        if (removed[0]) {
+            recordFriendship(userId, friendId);
         }
-        if (friend.getFriends() == null) {
-            friend.setFriends(new HashSet<>());
+        if (removed[1]) {
+            recordFriendship(friendId, userId);
         }
 
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
-
         log.info("User with ID = {} has been removed from friends of user with ID = {}", friendId, userId);
-        return user;
+        return removed[0] || removed[1];
+    }
+
+    @Override
+    public void addFriendships(List<Friendship> friendships) throws NotFoundException {
+        // Сначала проверяем весь пакет, чтобы при ошибке ничего не применять
+        for (Friendship friendship : friendships) {
+            findById(friendship.userId());
+            findById(friendship.friendId());
+        }
+        // Набор друзей каждого пользователя копируется один раз на пакет
+        Map<Long, Set<Long>> added = new HashMap<>();
+        users.update(table -> {
+            added.clear();
+            for (Friendship friendship : friendships) {
+                long userId = friendship.userId();
+                long friendId = friendship.friendId();
+                if (!table.get(userId).getFriends().contains(friendId)) {
+                    added.computeIfAbsent(userId, id -> new HashSet<>()).add(friendId);
+                }
+                if (!table.get(friendId).getFriends().contains(userId)) {
+                    added.computeIfAbsent(friendId, id -> new HashSet<>()).add(userId);
+                }
+            }
+            PersistentTable<User>.Editor editor = table.edit();
+            for (Map.Entry<Long, Set<Long>> entry : added.entrySet()) {
+                User user = table.get(entry.getKey());
+                Set<Long> friends = new HashSet<>(user.getFriends());
+                friends.addAll(entry.getValue());
+                editor.put(user.getId(), copyOf(user, friends));
+            }
+            return editor.build();
+        });
+        added.forEach((userId, friendIds) -> friendIds.forEach(friendId -> recordFriendship(userId, friendId)));
+        log.info("Imported {} friendships", friendships.size());
     }
 
     @Override
     public Collection<User> getFriends(Long id) throws NotFoundException {
-        User user = findById(id);
+        PersistentTable<User> table = users.snapshot();
+        User user = existing(table, id);
 
-        if (user.getFriends() == null || user.getFriends().isEmpty()) {
-            return Collections.emptyList();
+        if (friendGraph.isClean(id)) {
+            return toUsers(table, friendGraph.snapshot().neighbors(id));
         }
 
         return user.getFriends().stream()
-                .map(this::findById)
+                .map(table::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
     @Override
     public Collection<User> getCommonFriends(Long userId, Long otherUserId) throws NotFoundException {
-        User user = findById(userId);
-        User otherUser = findById(otherUserId);
+        PersistentTable<User> table = users.snapshot();
+        User user = existing(table, userId);
+        User otherUser = existing(table, otherUserId);
 
-        if (user.getFriends() == null) {
-            user.setFriends(new HashSet<>());
-        }
-        if (otherUser.getFriends() == null) {
-            otherUser.setFriends(new HashSet<>());
+        if (friendGraph.isClean(userId) && friendGraph.isClean(otherUserId)) {
+            return toUsers(table, friendGraph.snapshot().commonNeighbors(userId, otherUserId));
         }
 
         Set<Long> commonFriendIds = new HashSet<>(user.getFriends());
         commonFriendIds.retainAll(otherUser.getFriends());
 
         return commonFriendIds.stream()
-                .map(this::findById)
+                .map(table::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
-    private long getNextId() {
-        return users.keySet().stream().mapToLong(id -> id).max().orElse(0) + 1;
+    @Override
+    public List<User> findPath(Long userId, Long otherUserId, int maxDepth) throws NotFoundException {
+        PersistentTable<User> table = users.snapshot();
+        existing(table, userId);
+        existing(table, otherUserId);
+        // Чистые вершины читаются из CSR-снимка, вершины с еще не примененными изменениями - из таблицы
+        FriendPathFinder.Neighbors neighbors = (id, action) -> {
+            if (friendGraph.isClean(id)) {
+                friendGraph.snapshot().forEachNeighbor(id, action);
+                return;
+            }
+            User user = table.get(id);
+            if (user != null) {
+                user.getFriends().forEach(action::accept);
+            }
+        };
+        long[] path = FriendPathFinder.shortestPath(neighbors, userId, otherUserId, maxDepth);
+        return path == null ? List.of() : toUsers(table, path);
     }
 
-    private void duplicateCheck(User user) throws DuplicatedDataException {
-        for (User u : users.values()) {
-            if (u.getEmail().equals(user.getEmail())) {
-                throw new DuplicatedDataException("A user with this email already exists");
+    // Друзья из CSR-снимка: id уже отсортированы, удаленные пользователи пропускаются
+    private List<User> toUsers(PersistentTable<User> table, long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = table.get(id);
+            if (user != null) {
+                result.add(user);
             }
         }
+        return result;
     }
 
-    private void validateEmail(String email) throws ValidationException {
-        if (email == null || email.isBlank() || !email.contains("@") || email.contains(" ") || email.length() < 2) {
-            throw new ValidationException("Invalid email");
+    private User existing(PersistentTable<User> table, Long id) throws NotFoundException {
+        if (id == null) {
+            throw new ValidationException(ExceptionMessages.USER_ID_CANNOT_BE_NULL);
         }
+        User user = table.get(id);
+        if (user == null) {
+            throw notFound(id);
+        }
+        return user;
     }
 
-    private void validateLogin(String login) throws ValidationException {
-        if (login == null || login.isBlank() || login.contains(" ")) {
-            throw new ValidationException("Login cannot be empty or contain spaces");
+    private NotFoundException notFound(long id) {
+        if (tombstones.contains(id)) {
+            return new NotFoundException(String.format(ExceptionMessages.USER_DELETED, id));
         }
+        return new NotFoundException(String.format(ExceptionMessages.USER_NOT_FOUND, id));
     }
 
-    private void validateBirthday(LocalDate birthday) throws ValidationException {
-        if (birthday == null) {
-            throw new ValidationException("Birthday cannot be null");
+    // Связи читаются из редактора, чтобы дружба с самим собой не затирала первую запись
+    private boolean link(PersistentTable<User>.Editor editor, long userId, long friendId) {
+        User user = editor.get(userId);
+        if (user == null) {
+            throw notFound(userId);
         }
-        if (birthday.isAfter(LocalDate.now())) {
-            throw new ValidationException("Birthday cannot be in the future");
+        if (user.getFriends().contains(friendId)) {
+            return false;
         }
+        Set<Long> friends = new HashSet<>(user.getFriends());
+        friends.add(friendId);
+        editor.put(userId, copyOf(user, friends));
+        return true;
+    }
+
+    private boolean unlink(PersistentTable<User>.Editor editor, long userId, long friendId) {
+        User user = editor.get(userId);
+        if (user == null) {
+            throw notFound(userId);
+        }
+        if (!user.getFriends().contains(friendId)) {
+            return false;
+        }
+        Set<Long> friends = new HashSet<>(user.getFriends());
+        friends.remove(friendId);
+        editor.put(userId, copyOf(user, friends));
+        return true;
+    }
+
+    // Публикация в таблицу и запись в очередь графа не упорядочены между потоками, поэтому в очередь пишется
+    // не само изменение, а состояние связи в последней опубликованной таблице. Чтение и запись в очередь идут
+    // под одной блокировкой: последняя запись по связи всегда отражает последнюю опубликованную версию
+    private void recordFriendship(long userId, long friendId) {
+        synchronized (friendGraphRecordLock) {
+            User user = users.get(userId);
+            if (user != null && user.getFriends().contains(friendId)) {
+                friendGraph.recordAdd(userId, friendId);
+            } else {
+                friendGraph.recordRemove(userId, friendId);
+            }
+        }
+    }
+
+    // Email резервируется атомарно, поэтому параллельные create с одним email не проходят оба
+    private void reserveEmail(String email, long id) throws DuplicatedDataException {
+        if (idsByEmail.putIfAbsent(email, id) != null) {
+            throw new DuplicatedDataException("A user with this email already exists");
+        }
+    }
+
+    // true, если email занят этим вызовом; адрес, уже принадлежащий тому же пользователю, не ошибка
+    private boolean claimEmail(String email, long id) throws DuplicatedDataException {
+        Long owner = idsByEmail.putIfAbsent(email, id);
+        if (owner != null && owner != id) {
+            throw new DuplicatedDataException("A user with this email already exists");
+        }
+        return owner == null;
+    }
+
+    private static User copyOf(User source, Set<Long> friends) {
+        return User.of(source.getId(), source.getName(), source.getEmail(), source.getLogin(),
+                source.getBirthday(), Set.copyOf(friends), source.getVersion());
     }
-}
\ No newline at end of file
+}
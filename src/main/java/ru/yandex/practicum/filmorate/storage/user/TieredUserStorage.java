@@ -0,0 +1,416 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.ExceptionMessages;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.tier.MappedSegmentFile;
+import ru.yandex.practicum.filmorate.storage.tier.TieredTable;
+import ru.yandex.practicum.filmorate.storage.tier.UserCodec;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Пользователи в TieredTable: в куче держится не больше hotUsers часто запрашиваемых пользователей,
+// остальные вытесняются в файл и поднимаются обратно при обращении. Индекс email остается в куче,
+// чтобы проверка уникальности не поднимала холодных. Запись и подъем из файла идут под блокировкой записи;
+// горячие попадания и чтения без подъема - под блокировкой чтения, параллельно друг с другом.
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.users", havingValue = "tiered")
+@Slf4j
+public class TieredUserStorage implements UserStorage {
+
+    private final TieredTable<User> users;
+    private final Map<String, Long> idsByEmail = new HashMap<>();
+    private final Tombstones tombstones;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long idSequence;
+
+    @Autowired
+    public TieredUserStorage(@Value("${filmorate.storage.tiered.dir:${java.io.tmpdir}/filmorate-tier}") Path directory,
+                             @Value("${filmorate.storage.tiered.hot-users:100000}") int hotUsers,
+                             @Value("${filmorate.storage.tombstone-ttl-ms:60000}") long tombstoneTtlMs) {
+        this.users = new TieredTable<>(new MappedSegmentFile(directory, "users-"), new UserCodec(), hotUsers);
+        this.tombstones = new Tombstones(tombstoneTtlMs);
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            log.info("Closing user tier: {} hot, {} cold, {} fault-ins, {} evictions, {} bytes spilled",
+                    users.getHotSize(), users.getColdSize(), users.getFaultIns(), users.getEvictions(),
+                    users.getFileBytes());
+            users.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public TieredTable<User> getTable() {
+        return users;
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        log.info("Returning the list of users...");
+        return snapshot();
+    }
+
+    @Override
+    public Collection<User> snapshot() {
+        // Под блокировкой только копируются ссылки и смещения; холодные декодируются при обходе
+        lock.readLock().lock();
+        try {
+            return users.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User create(User user) throws ValidationException, DuplicatedDataException {
+        UserValidator.validate(user);
+        lock.writeLock().lock();
+        try {
+            reserveEmail(user.getEmail(), idSequence + 1);
+            store(user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User created: {}", user);
+        return user;
+    }
+
+    @Override
+    public List<User> createAll(List<User> newUsers) throws DuplicatedDataException {
+        lock.writeLock().lock();
+        try {
+            List<String> reserved = new ArrayList<>(newUsers.size());
+            try {
+                for (User user : newUsers) {
+                    reserveEmail(user.getEmail(), idSequence + 1 + reserved.size());
+                    reserved.add(user.getEmail());
+                }
+            } catch (DuplicatedDataException e) {
+                // Пакет применяется целиком или не применяется вовсе
+                reserved.forEach(idsByEmail::remove);
+                throw e;
+            }
+            newUsers.forEach(this::store);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Imported {} users", newUsers.size());
+        return newUsers;
+    }
+
+    @Override
+    public User update(User newUser) throws NotFoundException, ValidationException {
+        if (newUser.getId() == null) {
+            throw new ValidationException("User ID cannot be null");
+        }
+        long id = newUser.getId();
+        User updated;
+        lock.writeLock().lock();
+        try {
+            // Email занимается до записи; при ошибке занятый этим вызовом email освобождается
+            boolean claimed = claimEmail(newUser.getEmail(), id);
+            try {
+                updated = replace(id, newUser);
+            } catch (RuntimeException e) {
+                if (claimed) {
+                    idsByEmail.remove(newUser.getEmail(), id);
+                }
+                throw e;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User with ID = {} updated: {}", id, updated);
+        return updated;
+    }
+
+    @Override
+    public User findById(Long id) throws NotFoundException {
+        if (id != null) {
+            lock.readLock().lock();
+            try {
+                User user = users.getIfHot(id);
+                if (user != null) {
+                    return user;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        // Промах: подъем из файла меняет таблицу
+        lock.writeLock().lock();
+        try {
+            return existing(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public User delete(Long id) throws NotFoundException {
+        User user;
+        lock.writeLock().lock();
+        try {
+            user = existing(id);
+            tombstones.mark(id);
+            users.remove(id);
+            idsByEmail.remove(user.getEmail(), id);
+            // Дружба двусторонняя, поэтому достаточно пройти по друзьям удаляемого: O(степени)
+            for (Long friendId : user.getFriends()) {
+                if (!friendId.equals(id) && users.contains(friendId)) {
+                    unlink(friendId, id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User with ID = {} deleted along with {} friendships", id, user.getFriends().size());
+        return user;
+    }
+
+    @Override
+    public boolean addFriend(Long userId, Long friendId) throws NotFoundException {
+        boolean added;
+        lock.writeLock().lock();
+        try {
+            existing(userId);
+            existing(friendId);
+            added = link(userId, friendId);
+            added |= link(friendId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User with ID = {} added as a friend to user with ID = {}", friendId, userId);
+        return added;
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) throws NotFoundException {
+        boolean removed;
+        lock.writeLock().lock();
+        try {
+            existing(userId);
+            existing(friendId);
+            removed = unlink(userId, friendId);
+            removed |= unlink(friendId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User with ID = {} has been removed from friends of user with ID = {}", friendId, userId);
+        return removed;
+    }
+
+    @Override
+    public void addFriendships(List<Friendship> friendships) throws NotFoundException {
+        lock.writeLock().lock();
+        try {
+            // Сначала проверяем весь пакет, чтобы при ошибке ничего не применять
+            for (Friendship friendship : friendships) {
+                existing(friendship.userId());
+                existing(friendship.friendId());
+            }
+            // Набор друзей каждого пользователя копируется один раз на пакет
+            Map<Long, Set<Long>> added = new HashMap<>();
+            for (Friendship friendship : friendships) {
+                added.computeIfAbsent(friendship.userId(), id -> new HashSet<>()).add(friendship.friendId());
+                added.computeIfAbsent(friendship.friendId(), id -> new HashSet<>()).add(friendship.userId());
+            }
+            for (Map.Entry<Long, Set<Long>> entry : added.entrySet()) {
+                User user = users.get(entry.getKey());
+                Set<Long> friends = new HashSet<>(user.getFriends());
+                if (friends.addAll(entry.getValue())) {
+                    users.put(user.getId(), copyOf(user, friends));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Imported {} friendships", friendships.size());
+    }
+
+    @Override
+    public Collection<User> getFriends(Long id) throws NotFoundException {
+        lock.readLock().lock();
+        try {
+            return visibleUsers(visible(id).getFriends());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(Long userId, Long otherUserId) throws NotFoundException {
+        lock.readLock().lock();
+        try {
+            Set<Long> commonFriendIds = new HashSet<>(visible(userId).getFriends());
+            commonFriendIds.retainAll(visible(otherUserId).getFriends());
+            return visibleUsers(commonFriendIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> findPath(Long userId, Long otherUserId, int maxDepth) throws NotFoundException {
+        lock.readLock().lock();
+        try {
+            visible(userId);
+            visible(otherUserId);
+            // Промежуточные вершины читаются без подъема, чтобы поиск не вытеснял горячих пользователей
+            FriendPathFinder.Neighbors neighbors = (id, action) -> {
+                User user = users.peek(id);
+                if (user != null) {
+                    user.getFriends().forEach(action::accept);
+                }
+            };
+            long[] path = FriendPathFinder.shortestPath(neighbors, userId, otherUserId, maxDepth);
+            if (path == null) {
+                return List.of();
+            }
+            List<User> result = new ArrayList<>(path.length);
+            for (long id : path) {
+                result.add(visible(id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private User replace(long id, User newUser) throws NotFoundException {
+        User oldUser = existing(id);
+        // Версия в запросе (или из If-Match) должна совпадать с текущей, иначе запись устарела
+        if (newUser.getVersion() != null && !newUser.getVersion().equals(oldUser.getVersion())) {
+            throw new VersionConflictException(String.format(ExceptionMessages.USER_VERSION_CONFLICT,
+                    id, newUser.getVersion(), oldUser.getVersion()));
+        }
+        // Друзья меняются только через addFriend/removeFriend
+        User updated = User.of(id,
+                newUser.getName() != null ? newUser.getName() : newUser.getLogin(),
+                newUser.getEmail(),
+                newUser.getLogin(),
+                newUser.getBirthday(),
+                oldUser.getFriends(),
+                oldUser.getVersion() + 1);
+        users.put(id, updated);
+        if (!Objects.equals(oldUser.getEmail(), updated.getEmail())) {
+            idsByEmail.remove(oldUser.getEmail(), id);
+        }
+        return updated;
+    }
+
+    private void store(User user) {
+        user.setId(++idSequence);
+        user.setFriends(new HashSet<>());
+        user.setVersion(1L);
+        users.put(user.getId(), copyOf(user, Set.of()));
+    }
+
+    // Чтения под блокировкой чтения не поднимают холодных в горячий слой
+    private List<User> visibleUsers(Collection<Long> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = peekVisible(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        result.sort(Comparator.comparing(User::getId));
+        return result;
+    }
+
+    private User existing(Long id) throws NotFoundException {
+        if (id == null) {
+            throw new ValidationException(ExceptionMessages.USER_ID_CANNOT_BE_NULL);
+        }
+        User user = users.get(id);
+        if (user == null) {
+            throw notFound(id);
+        }
+        return user;
+    }
+
+    private User visible(Long id) throws NotFoundException {
+        if (id == null) {
+            throw new ValidationException(ExceptionMessages.USER_ID_CANNOT_BE_NULL);
+        }
+        User user = peekVisible(id);
+        if (user == null) {
+            throw notFound(id);
+        }
+        return user;
+    }
+
+    private User peekVisible(long id) {
+        User user = users.getIfHot(id);
+        return user != null ? user : users.peek(id);
+    }
+
+    private NotFoundException notFound(long id) {
+        if (tombstones.contains(id)) {
+            return new NotFoundException(String.format(ExceptionMessages.USER_DELETED, id));
+        }
+        return new NotFoundException(String.format(ExceptionMessages.USER_NOT_FOUND, id));
+    }
+
+    private boolean link(long userId, long friendId) {
+        User user = users.get(userId);
+        if (user.getFriends().contains(friendId)) {
+            return false;
+        }
+        Set<Long> friends = new HashSet<>(user.getFriends());
+        friends.add(friendId);
+        users.put(userId, copyOf(user, friends));
+        return true;
+    }
+
+    private boolean unlink(long userId, long friendId) {
+        User user = users.get(userId);
+        if (!user.getFriends().contains(friendId)) {
+            return false;
+        }
+        Set<Long> friends = new HashSet<>(user.getFriends());
+        friends.remove(friendId);
+        users.put(userId, copyOf(user, friends));
+        return true;
+    }
+
+    private void reserveEmail(String email, long id) throws DuplicatedDataException {
+        if (idsByEmail.putIfAbsent(email, id) != null) {
+            throw new DuplicatedDataException("A user with this email already exists");
+        }
+    }
+
+    private boolean claimEmail(String email, long id) throws DuplicatedDataException {
+        Long owner = idsByEmail.putIfAbsent(email, id);
+        if (owner != null && owner != id) {
+            throw new DuplicatedDataException("A user with this email already exists");
+        }
+        return owner == null;
+    }
+
+    private static User copyOf(User source, Set<Long> friends) {
+        return User.of(source.getId(), source.getName(), source.getEmail(), source.getLogin(),
+                source.getBirthday(), Set.copyOf(friends), source.getVersion());
+    }
+}
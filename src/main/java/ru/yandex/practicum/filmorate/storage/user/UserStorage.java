@@ -1,25 +1,86 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public interface UserStorage {
 
     Collection<User> findAll();
 
+    // Согласованный на момент вызова набор сущностей; обход не блокирует пишущие потоки
+    default Collection<User> snapshot() {
+        return List.copyOf(findAll());
+    }
+
     User create(User user);
 
     User update(User user) throws NotFoundException;
 
-    void addFriend(Long userId, Long friendId) throws NotFoundException;
+    // false, если пользователи уже дружили
+    boolean addFriend(Long userId, Long friendId) throws NotFoundException;
+
+    // false, если пользователи не дружили
+    boolean removeFriend(Long userId, Long friendId) throws NotFoundException;
 
-    User removeFriend(Long userId, Long friendId) throws NotFoundException;
+    // Дружат ли пользователи сейчас; false, если кого-то из них нет
+    default boolean areFriends(Long userId, Long friendId) {
+        try {
+            return findById(userId).getFriends().contains(friendId);
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
 
     Collection<User> getCommonFriends(Long userId, Long otherUserId) throws NotFoundException;
 
     User findById(Long id) throws NotFoundException;
 
     Collection<User> getFriends(Long id) throws NotFoundException;
+
+    // Удаляет пользователя вместе с его дружбами и возвращает последнюю версию; лайки снимает FilmStorage
+    User delete(Long id) throws NotFoundException;
+
+    // Кратчайшая цепочка дружбы от userId до otherUserId включительно; пустой список, если цепочки
+    // длиной не больше maxDepth нет
+    default List<User> findPath(Long userId, Long otherUserId, int maxDepth) throws NotFoundException {
+        findById(userId);
+        findById(otherUserId);
+        long[] path = FriendPathFinder.shortestPath(
+                (id, action) -> findById(id).getFriends().forEach(action::accept), userId, otherUserId, maxDepth);
+        if (path == null) {
+            return List.of();
+        }
+        List<User> users = new ArrayList<>(path.length);
+        for (long id : path) {
+            users.add(findById(id));
+        }
+        return users;
+    }
+
+    // Пакетное создание уже проверенных пользователей; реализации могут резервировать id блоком.
+    // Пакет применяется целиком или не применяется: при ошибке уже созданные записи удаляются
+    default List<User> createAll(List<User> users) {
+        List<User> created = new ArrayList<>(users.size());
+        try {
+            for (User user : users) {
+                created.add(create(user));
+            }
+        } catch (RuntimeException e) {
+            created.forEach(user -> delete(user.getId()));
+            throw e;
+        }
+        return created;
+    }
+
+    // Пакетное добавление дружбы; при первой ошибке бросает исключение, часть пакета может быть применена
+    default void addFriendships(List<Friendship> friendships) throws NotFoundException {
+        for (Friendship friendship : friendships) {
+            addFriend(friendship.userId(), friendship.friendId());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+public final class UserValidator {
+
+    private UserValidator() {
+    }
+
+    // Проверяет пользователя перед созданием и подставляет логин вместо пустого имени
+    public static void validate(User user) throws ValidationException {
+        validateEmail(user.getEmail());
+        validateLogin(user.getLogin());
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+        validateBirthday(user.getBirthday());
+    }
+
+    public static void validateEmail(String email) throws ValidationException {
+        if (email == null || email.isBlank() || !email.contains("@") || email.contains(" ") || email.length() < 2) {
+            throw new ValidationException("Invalid email");
+        }
+    }
+
+    public static void validateLogin(String login) throws ValidationException {
+        if (login == null || login.isBlank() || login.contains(" ")) {
+            throw new ValidationException("Login cannot be empty or contain spaces");
+        }
+    }
+
+    public static void validateBirthday(LocalDate birthday) throws ValidationException {
+        if (birthday == null) {
+            throw new ValidationException("Birthday cannot be null");
+        }
+        if (birthday.isAfter(LocalDate.now())) {
+            throw new ValidationException("Birthday cannot be in the future");
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.yandex.practicum.filmorate.admission.AdaptiveConcurrencyLimiter;
+import ru.yandex.practicum.filmorate.admission.AdmissionControlFilter;
+import ru.yandex.practicum.filmorate.admission.TokenBucket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void shouldAllowBurstAndRefillAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 3, clock::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // 10 токенов в секунду: через 100 мс появляется ровно один
+        clock.addAndGet(100 * MILLIS);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // Долгий простой не дает больше емкости
+        clock.addAndGet(10_000 * MILLIS);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void shouldGrowLimitOnlyWhileItIsUsed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 50, 0.5, clock::get);
+
+        // Один запрос из четырех разрешенных - лимит не используется и не растет
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(MILLIS);
+        }
+        assertEquals(4, limiter.getLimit());
+
+        // Под нагрузкой лимит растет примерно на единицу за окно, но не выше максимума
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < limiter.getLimit(); j++) {
+                assertTrue(limiter.tryAcquire());
+            }
+            assertFalse(limiter.tryAcquire());
+            while (limiter.getInFlight() > 0) {
+                limiter.release(MILLIS);
+            }
+        }
+        assertEquals(10, limiter.getLimit());
+        assertTrue(limiter.getRejected() > 0);
+    }
+
+    @Test
+    public void shouldBackOffOncePerTargetInterval() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 2, 10, 50, 0.5, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < 5; i++) {
+            limiter.release(100 * MILLIS);
+        }
+        assertEquals(4, limiter.getLimit());
+
+        clock.addAndGet(51 * MILLIS);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(100 * MILLIS);
+        assertEquals(2, limiter.getLimit());
+
+        // Ниже минимума лимит не опускается
+        clock.addAndGet(51 * MILLIS);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(100 * MILLIS);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldPassReadsWithoutChecks() throws Exception {
+        AdmissionControlFilter filter = filter(0, 0, new AdaptiveConcurrencyLimiter(1, 1, 1, 50, 0.9));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request("GET", "/films/1"), response, chain);
+
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    public void shouldRejectWithTooManyRequestsWhenClientBucketIsEmpty() throws Exception {
+        AdmissionControlFilter filter = filter(1, 1, new AdaptiveConcurrencyLimiter(8, 1, 8, 50, 0.9));
+
+        assertEquals(200, write(filter, "PUT", "/films/1/like/2").getStatus());
+        MockHttpServletResponse rejected = write(filter, "PUT", "/films/1/like/3");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals("{\"error\":\"Too many requests\"}", rejected.getContentAsString());
+    }
+
+    @Test
+    public void shouldRejectWithServiceUnavailableWhenConcurrencyLimitIsReached() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 50, 0.9);
+        AdmissionControlFilter filter = filter(1000, 1000, limiter);
+        assertTrue(limiter.tryAcquire());
+
+        MockHttpServletResponse rejected = write(filter, "POST", "/users");
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        // Импорт не занимает место в лимите параллелизма
+        assertEquals(200, write(filter, "POST", "/import/films").getStatus());
+    }
+
+    @Test
+    public void shouldShareOneBucketForUnknownPaths() throws Exception {
+        AdmissionControlFilter filter = filter(1000, 1000, new AdaptiveConcurrencyLimiter(8, 1, 8, 50, 0.9));
+
+        write(filter, "PUT", "/films/1/like/2");
+        write(filter, "PUT", "/films/7/like/9");
+        for (int i = 0; i < 100; i++) {
+            write(filter, "PUT", "/films/-" + i + "/like/x" + i);
+        }
+
+        assertEquals(2, filter.getTrackedEndpoints());
+    }
+
+    private static AdmissionControlFilter filter(double clientRate, double clientBurst,
+                                                 AdaptiveConcurrencyLimiter limiter) {
+        return new AdmissionControlFilter(clientRate, clientBurst, 1000, 1000, limiter);
+    }
+
+    private static MockHttpServletResponse write(AdmissionControlFilter filter, String method, String uri)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(method, uri), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.importer.BulkImportService;
+import ru.yandex.practicum.filmorate.importer.ImportReport;
+import ru.yandex.practicum.filmorate.importer.ImportType;
+import ru.yandex.practicum.filmorate.importer.RecordFormat;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkImportServiceTest {
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+    private BulkImportService importService;
+
+    @BeforeEach
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        importService = new BulkImportService(filmStorage, userStorage,
+                new ObjectMapper().findAndRegisterModules(), 2);
+    }
+
+    @Test
+    public void shouldImportCsvUsersAndReportDuplicates() throws Exception {
+        String csv = "email,login,name,birthday\n"
+                + "one@mail.ru,one,\"One, Jr.\",1990-01-01\n"
+                + "two@mail.ru,two,,1991-01-01\n"
+                + "one@mail.ru,copy,Copy,1992-01-01\n"
+                + "bad-email,bad,Bad,1993-01-01\n";
+
+        ImportReport report = importService.importRecords(ImportType.USERS, RecordFormat.CSV, stream(csv));
+
+        assertEquals(4, report.getProcessed());
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getRejected());
+        ImportReport.RecordError duplicate = report.getErrors().stream()
+                .filter(error -> error.line() == 4)
+                .findFirst()
+                .orElseThrow();
+        assertEquals("A user with this email already exists", duplicate.error());
+        assertTrue(report.getErrors().stream().anyMatch(error -> error.line() == 5));
+        assertEquals("One, Jr.", userStorage.findById(1L).getName());
+        assertEquals("two", userStorage.findById(2L).getName());
+    }
+
+    @Test
+    public void shouldImportNdjsonFilmsAndLikesWithoutAborting() throws Exception {
+        userStorage.create(User.of(null, "User", "user@mail.ru", "user", LocalDate.of(1990, 1, 1), null));
+        String films = "{\"name\":\"First\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n"
+                + "\n"
+                + "{\"name\":\"Old\",\"description\":\"d\",\"releaseDate\":\"1800-01-01\",\"duration\":90}\n"
+                + "{\"name\":\"Second\",\"description\":\"d\",\"releaseDate\":\"2001-01-01\",\"duration\":80}\n";
+
+        ImportReport filmReport = importService.importRecords(ImportType.FILMS, RecordFormat.NDJSON, stream(films));
+
+        assertEquals(2, filmReport.getImported());
+        assertEquals(3, filmReport.getErrors().get(0).line());
+        assertEquals(2, filmStorage.findAll().size());
+
+        String likes = "{\"filmId\":1,\"userId\":1}\n{\"filmId\":42,\"userId\":1}\n{\"filmId\":2,\"userId\":1}\n";
+        ImportReport likeReport = importService.importRecords(ImportType.LIKES, RecordFormat.NDJSON, stream(likes));
+
+        assertEquals(2, likeReport.getImported());
+        assertEquals(1, likeReport.getRejected());
+        assertTrue(filmStorage.findById(1L).getLikedUsers().contains(1L));
+        assertTrue(filmStorage.findById(2L).getLikedUsers().contains(1L));
+    }
+
+    @Test
+    public void shouldNotReportRecordsOfFailedBatchAsDuplicates() throws Exception {
+        // Хранилище с пакетным созданием по умолчанию: запись за записью
+        PartitionedUserStorage partitionedUsers = new PartitionedUserStorage(2);
+        PartitionedFilmStorage partitionedFilms = new PartitionedFilmStorage(partitionedUsers, 2);
+        BulkImportService service = new BulkImportService(partitionedFilms,
+                partitionedUsers, new ObjectMapper().findAndRegisterModules(), 3);
+        String users = "{\"email\":\"a@mail.ru\",\"login\":\"a\",\"birthday\":\"1990-01-01\"}\n"
+                + "{\"email\":\"b@mail.ru\",\"login\":\"b\",\"birthday\":\"1990-01-01\"}\n"
+                + "{\"email\":\"a@mail.ru\",\"login\":\"c\",\"birthday\":\"1990-01-01\"}\n";
+
+        ImportReport report = service.importRecords(ImportType.USERS, RecordFormat.NDJSON, stream(users));
+
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getErrors().size());
+        assertEquals(3, report.getErrors().get(0).line());
+        assertEquals(2, partitionedUsers.findAll().size());
+        partitionedFilms.close();
+        partitionedUsers.close();
+    }
+
+    @Test
+    public void shouldIgnoreLikesSuppliedWithImportedFilms() throws Exception {
+        String films = "{\"name\":\"Film\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\","
+                + "\"duration\":90,\"likedUsers\":[7,8,9]}\n";
+
+        ImportReport report = importService.importRecords(ImportType.FILMS, RecordFormat.NDJSON, stream(films));
+
+        assertEquals(1, report.getImported());
+        assertTrue(filmStorage.findById(1L).getLikedUsers().isEmpty());
+        assertTrue(filmStorage.getLikedFilmIds(7L).isEmpty());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
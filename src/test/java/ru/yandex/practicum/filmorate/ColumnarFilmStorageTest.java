@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StringArena;
+import ru.yandex.practicum.filmorate.storage.film.ColumnarFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarFilmStorageTest {
+
+    private ColumnarFilmStorage storage;
+
+    @BeforeEach
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(User.of(null, "User " + i, "user" + i + "@example.com", "user" + i,
+                    LocalDate.of(1990, 1, 1), null));
+        }
+        storage = new ColumnarFilmStorage(userStorage);
+        for (int i = 1; i <= 3; i++) {
+            storage.create(film("Film " + i));
+        }
+    }
+
+    @Test
+    public void shouldMaterializeStoredColumns() {
+        Film film = storage.findById(2L);
+
+        assertEquals("Film 2", film.getName());
+        assertEquals("Description", film.getDescription());
+        assertEquals(LocalDate.of(2000, 1, 1), film.getReleaseDate());
+        assertEquals(100, film.getDuration());
+        assertEquals(1L, film.getVersion());
+    }
+
+    @Test
+    public void shouldRankByLikeColumn() {
+        storage.addLike(3L, 1L);
+        storage.addLikes(List.of(new Like(3L, 2L), new Like(2L, 2L), new Like(3L, 1L)));
+
+        List<Film> top = storage.getTopFilms(2);
+
+        assertEquals(List.of(3L, 2L), top.stream().map(Film::getId).toList());
+        assertEquals(Set.of(1L, 2L), top.get(0).getLikedUsers());
+
+        storage.removeLikesOf(2L);
+        assertEquals(Set.of(1L), storage.findById(3L).getLikedUsers());
+        assertEquals(List.of(3L), List.copyOf(storage.getLikedFilmIds(1L)));
+    }
+
+    @Test
+    public void deletedFilmShouldDisappear() {
+        storage.delete(1L);
+
+        assertEquals(2, storage.findAll().size());
+        assertThrows(NotFoundException.class, () -> storage.findById(1L));
+        assertEquals(4L, storage.create(film("Film 4")).getId());
+    }
+
+    @Test
+    public void snapshotShouldKeepStateAtCallTime() {
+        storage.addLike(2L, 3L);
+        storage.addLike(2L, 1L);
+        Iterator<Film> films = storage.snapshot().iterator();
+
+        assertEquals(1L, films.next().getId());
+        storage.delete(3L);
+        storage.create(film("Film 4"));
+        storage.addLike(2L, 2L);
+        storage.removeLike(2L, 1L);
+        Film renamed = storage.findById(2L);
+        renamed.setName("Renamed");
+        storage.update(renamed);
+
+        // Изменения после вызова снимку не видны: лайки, имя и удаленный фильм - как на момент вызова
+        Film second = films.next();
+        assertEquals(2L, second.getId());
+        assertEquals("Film 2", second.getName());
+        assertEquals(Set.of(1L, 3L), second.getLikedUsers());
+        assertFalse(second.getLikedUsers().contains(2L));
+        assertThrows(UnsupportedOperationException.class, () -> second.getLikedUsers().add(5L));
+        assertEquals(3L, films.next().getId());
+        // Добавленный после вызова фильм не попадает
+        assertFalse(films.hasNext());
+        assertEquals(Set.of(2L, 3L), storage.findById(2L).getLikedUsers());
+        assertEquals("Renamed", storage.findById(2L).getName());
+        assertEquals(3, storage.snapshot().size());
+    }
+
+    @Test
+    public void arenaShouldDeduplicateStrings() {
+        StringArena arena = new StringArena();
+        int first = arena.intern("Драма");
+        int second = arena.intern("Comedy");
+
+        assertEquals(first, arena.intern("Драма"));
+        assertNotEquals(first, second);
+        assertEquals("Драма", arena.get(first));
+        assertEquals(2, arena.size());
+        assertNull(arena.get(arena.intern(null)));
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeletionTest {
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+
+    @BeforeEach
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(User.of(null, "User " + i, "user" + i + "@example.com", "user" + i,
+                    LocalDate.of(1990, 1, 1), null));
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            filmStorage.create(film);
+        }
+    }
+
+    @Test
+    public void deletingUserShouldRemoveFriendshipsAndLikes() {
+        userStorage.addFriend(1L, 2L);
+        userStorage.addFriend(2L, 3L);
+        filmStorage.addLike(1L, 2L);
+        filmStorage.addLike(2L, 2L);
+        filmStorage.addLike(2L, 3L);
+
+        userStorage.delete(2L);
+        filmStorage.removeLikesOf(2L);
+
+        assertTrue(userStorage.findById(1L).getFriends().isEmpty());
+        assertTrue(userStorage.findById(3L).getFriends().isEmpty());
+        assertEquals(Set.of(), filmStorage.findById(1L).getLikedUsers());
+        assertEquals(Set.of(3L), filmStorage.findById(2L).getLikedUsers());
+        assertTrue(filmStorage.getLikedFilmIds(2L).isEmpty());
+
+        NotFoundException exception = assertThrows(NotFoundException.class, () -> userStorage.findById(2L));
+        assertTrue(exception.getMessage().contains("was deleted"));
+    }
+
+    @Test
+    public void tombstonesShouldDropOnlyExpiredMarks() throws InterruptedException {
+        Tombstones tombstones = new Tombstones(100);
+        for (long id = 1; id <= 1_000; id++) {
+            tombstones.mark(id);
+        }
+        assertEquals(1_000, tombstones.size());
+        Thread.sleep(150);
+
+        tombstones.mark(1L);
+        tombstones.mark(2_000L);
+        assertEquals(2, tombstones.size());
+        assertTrue(tombstones.contains(1L));
+        assertFalse(tombstones.contains(500L));
+    }
+
+    @Test
+    public void deletingFilmShouldCleanReverseIndex() {
+        filmStorage.addLike(1L, 1L);
+        filmStorage.addLike(2L, 1L);
+
+        Film deleted = filmStorage.delete(1L);
+
+        assertEquals(Set.of(1L), deleted.getLikedUsers());
+        assertEquals(Set.of(2L), Set.copyOf(filmStorage.getLikedFilmIds(1L)));
+        assertEquals(2, filmStorage.findAll().size());
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(1L, 2L));
+        assertThrows(NotFoundException.class, () -> filmStorage.delete(1L));
+    }
+
+    @Test
+    public void reverseIndexShouldMatchTableAfterConcurrentLikeAndUnlike() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                boolean liking = t % 2 == 0;
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 2_000; i++) {
+                        long filmId = 1 + i % 3;
+                        if (liking) {
+                            filmStorage.addLike(filmId, 1L);
+                        } else {
+                            try {
+                                filmStorage.removeLike(filmId, 1L);
+                            } catch (NotFoundException e) {
+                                // лайка еще нет
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Long> liked = filmStorage.findAll().stream()
+                .filter(film -> film.getLikedUsers().contains(1L))
+                .map(Film::getId)
+                .toList();
+        assertEquals(Set.copyOf(liked), Set.copyOf(filmStorage.getLikedFilmIds(1L)));
+    }
+}
@@ -0,0 +1,297 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.controller.ExportController;
+import ru.yandex.practicum.filmorate.exporter.ExportService;
+import ru.yandex.practicum.filmorate.exporter.ExportType;
+import ru.yandex.practicum.filmorate.importer.BulkImportService;
+import ru.yandex.practicum.filmorate.importer.ImportReport;
+import ru.yandex.practicum.filmorate.importer.ImportType;
+import ru.yandex.practicum.filmorate.importer.RecordFormat;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.TieredFilmStorage;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExportTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    @TempDir
+    Path directory;
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+    private ExportService exportService;
+
+    @BeforeEach
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        exportService = new ExportService(filmStorage, userStorage, objectMapper);
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(User.of(null, "User " + i, "user" + i + "@mail.ru", "user" + i,
+                    LocalDate.of(1990, 1, i), null));
+        }
+        for (int i = 1; i <= 2; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, i));
+            film.setDuration(90 + i);
+            filmStorage.create(film);
+        }
+        userStorage.addFriend(1L, 2L);
+        userStorage.addFriend(3L, 1L);
+        filmStorage.addLike(1L, 1L);
+        filmStorage.addLike(1L, 2L);
+        filmStorage.addLike(2L, 3L);
+    }
+
+    @Test
+    public void shouldWriteOneFlatRecordPerLine() throws Exception {
+        List<JsonNode> users = export(ExportType.USERS);
+        assertEquals(3, users.size());
+        JsonNode user = users.stream().filter(node -> node.get("id").asLong() == 1).findFirst().orElseThrow();
+        assertEquals(Set.of("id", "email", "login", "name", "birthday"), fieldNames(user));
+        assertEquals("user1@mail.ru", user.get("email").asText());
+        assertEquals("1990-01-01", user.get("birthday").asText());
+
+        List<JsonNode> films = export(ExportType.FILMS);
+        assertEquals(2, films.size());
+        assertEquals(Set.of("id", "name", "description", "releaseDate", "duration"), fieldNames(films.get(0)));
+
+        List<JsonNode> likes = export(ExportType.LIKES);
+        assertEquals(3, likes.size());
+        assertEquals(Set.of("filmId", "userId"), fieldNames(likes.get(0)));
+    }
+
+    @Test
+    public void shouldWriteEachFriendshipOnce() throws Exception {
+        Set<String> edges = new HashSet<>();
+        for (JsonNode friendship : export(ExportType.FRIENDSHIPS)) {
+            long userId = friendship.get("userId").asLong();
+            long friendId = friendship.get("friendId").asLong();
+            assertTrue(userId < friendId);
+            assertTrue(edges.add(userId + "-" + friendId));
+        }
+        assertEquals(Set.of("1-2", "1-3"), edges);
+    }
+
+    @Test
+    public void shouldWriteNothingForEmptyStorage() throws Exception {
+        InMemoryUserStorage emptyUsers = new InMemoryUserStorage();
+        ExportService empty = new ExportService(new InMemoryFilmStorage(emptyUsers), emptyUsers, objectMapper);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, empty.export(ExportType.FILMS, out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void shouldCompressWhenRequested() throws Exception {
+        ExportController controller = new ExportController(exportService);
+
+        ResponseEntity<StreamingResponseBody> response = controller.export("likes", false, "gzip, deflate");
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("attachment; filename=\"likes.ndjson.gz\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertEquals(3, body.lines().count());
+
+        ResponseEntity<StreamingResponseBody> plain = controller.export("likes", false, null);
+        assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        ByteArrayOutputStream plainOut = new ByteArrayOutputStream();
+        plain.getBody().writeTo(plainOut);
+        assertEquals(body, plainOut.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldReimportExportedData() throws Exception {
+        InMemoryUserStorage targetUsers = new InMemoryUserStorage();
+        InMemoryFilmStorage targetFilms = new InMemoryFilmStorage(targetUsers);
+        BulkImportService importService = new BulkImportService(targetFilms, targetUsers, objectMapper, 2);
+
+        for (ExportType type : ExportType.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long exported = exportService.export(type, out);
+            ImportReport report = importService.importRecords(ImportType.valueOf(type.name()), RecordFormat.NDJSON,
+                    new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(exported, report.getImported());
+            assertEquals(0, report.getRejected());
+        }
+
+        for (long id = 1; id <= 3; id++) {
+            User source = userStorage.findById(id);
+            User copy = targetUsers.findById(id);
+            assertEquals(source.getEmail(), copy.getEmail());
+            assertEquals(source.getBirthday(), copy.getBirthday());
+            assertEquals(source.getFriends(), copy.getFriends());
+        }
+        for (long id = 1; id <= 2; id++) {
+            Film source = filmStorage.findById(id);
+            Film copy = targetFilms.findById(id);
+            assertEquals(source.getName(), copy.getName());
+            assertEquals(source.getDuration(), copy.getDuration());
+            assertEquals(source.getLikedUsers(), copy.getLikedUsers());
+        }
+    }
+
+    @Test
+    public void partitionedExportShouldSeeConsistentCutUnderConcurrentWrites() throws Exception {
+        PartitionedFilmStorage films = new PartitionedFilmStorage(userStorage, 4);
+        try {
+            ExportService exporter = new ExportService(films, userStorage, objectMapper);
+            // Фильмы создаются по порядку одним потоком: согласованный срез видит id 1..n без пропусков
+            List<String> errors = runWhileWriting(() -> {
+                for (int i = 0; i < 3000; i++) {
+                    films.create(film("Film " + i));
+                }
+            }, () -> {
+                List<JsonNode> records = export(exporter, ExportType.FILMS);
+                for (int i = 0; i < records.size(); i++) {
+                    if (records.get(i).get("id").asLong() != i + 1) {
+                        return "gap before id " + records.get(i).get("id").asLong();
+                    }
+                }
+                return null;
+            });
+            assertEquals(List.of(), errors);
+        } finally {
+            films.close();
+        }
+    }
+
+    @Test
+    public void tieredExportShouldSeeConsistentStateUnderConcurrentWrites() throws Exception {
+        TieredFilmStorage films = new TieredFilmStorage(userStorage, directory, 4, 60_000);
+        try {
+            for (int i = 0; i < 50; i++) {
+                films.create(film("0"));
+            }
+            ExportService exporter = new ExportService(films, userStorage, objectMapper);
+            // Раунд переименовывает фильмы по возрастанию id: в срезе номера раундов не растут и отличаются
+            // не больше чем на один, даже если файл пересоздается компактизацией во время обхода
+            List<String> errors = runWhileWriting(() -> {
+                for (int round = 1; round <= 300; round++) {
+                    for (long id = 1; id <= 50; id++) {
+                        Film film = films.findById(id);
+                        film.setName(String.valueOf(round));
+                        films.update(film);
+                    }
+                }
+            }, () -> {
+                List<JsonNode> records = export(exporter, ExportType.FILMS);
+                if (records.size() != 50) {
+                    return "exported " + records.size() + " films";
+                }
+                int first = records.get(0).get("name").asInt();
+                int previous = first;
+                for (JsonNode record : records) {
+                    int round = record.get("name").asInt();
+                    if (round > previous || first - round > 1) {
+                        return "inconsistent rounds " + first + " and " + round;
+                    }
+                    previous = round;
+                }
+                return null;
+            });
+            assertEquals(List.of(), errors);
+            assertTrue(films.getTable().getCompactions() > 0);
+        } finally {
+            films.close();
+        }
+    }
+
+    private interface Check {
+        String run() throws Exception;
+    }
+
+    // Выгрузки идут, пока пишущий поток не закончит; возвращает найденные нарушения
+    private static List<String> runWhileWriting(Runnable writes, Check check) throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                writes.run();
+            } catch (Throwable e) {
+                failure.set(e);
+            } finally {
+                done.set(true);
+            }
+        });
+        writer.start();
+        List<String> errors = new ArrayList<>();
+        while (!done.get()) {
+            String error = check.run();
+            if (error != null) {
+                errors.add(error);
+            }
+        }
+        writer.join();
+        assertNull(failure.get());
+        return errors;
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private List<JsonNode> export(ExportService service, ExportType type) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = service.export(type, out);
+        List<JsonNode> records = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                records.add(objectMapper.readTree(line));
+            }
+        }
+        assertEquals(count, records.size());
+        return records;
+    }
+
+    private List<JsonNode> export(ExportType type) throws Exception {
+        return export(exportService, type);
+    }
+
+    private static Set<String> fieldNames(JsonNode node) {
+        Set<String> names = new HashSet<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
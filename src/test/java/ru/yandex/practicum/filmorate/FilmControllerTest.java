@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.executor.HeavyQueryExecutor;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.controller.FilmController;
@@ -15,11 +16,13 @@ import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class FilmControllerTest {
 
+    private static HeavyQueryExecutor heavyQueries;
     private static FilmController filmController;
     private static Film validFilm;
     private static Film invalidFilmName;
@@ -39,8 +42,9 @@ public class FilmControllerTest {
         // Создаем экземпляр сервиса, передавая ему хранилище
         FilmService filmService = new FilmService(filmStorage);
 
-        // Создаем контроллер, передавая ему сервис
-        filmController = new FilmController(filmService);
+        // Создаем контроллер, передавая ему сервис и пул тяжелых запросов
+        heavyQueries = new HeavyQueryExecutor(1, 16, 2_000);
+        filmController = new FilmController(filmService, heavyQueries);
 
         // Инициализация тестовых данных
         validFilm = new Film();
@@ -114,13 +118,15 @@ public class FilmControllerTest {
     @Test
     public void shouldThrowExceptionWhenUpdatingFilmWithWrongId() {
         NotFoundException exception = assertThrows(NotFoundException.class, () -> {
-            filmController.update(filmWithWrongId);
+            filmController.update(filmWithWrongId, null);
         });
         assertNotNull(exception);
     }
 
     @AfterAll
-    public static void shouldReturnAllFilms() {
+    public static void shouldReturnAllFilms() throws Exception {
         assertNotNull(filmController.getFilms());
+        assertFalse(filmController.getTopFilms(10).get(5, TimeUnit.SECONDS).isEmpty());
+        heavyQueries.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendFilmsService;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.film.ColumnarFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FriendFilmsServiceTest {
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+    private FriendFilmsService service;
+
+    @BeforeEach
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        service = new FriendFilmsService(filmStorage, userStorage, 100);
+        for (int i = 1; i <= 4; i++) {
+            userStorage.create(User.of(null, "User " + i, "user" + i + "@example.com", "user" + i,
+                    LocalDate.of(1990, 1, 1), null));
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            filmStorage.create(film);
+        }
+        userStorage.addFriend(1L, 2L);
+        userStorage.addFriend(1L, 3L);
+    }
+
+    @Test
+    public void shouldRankFilmsByFriendLikes() {
+        filmStorage.addLike(3L, 2L);
+        filmStorage.addLike(3L, 3L);
+        filmStorage.addLike(2L, 3L);
+        filmStorage.addLike(1L, 4L);
+
+        assertEquals(List.of(3L, 2L), ids(service.getPopularAmongFriends(1L, 10)));
+        assertEquals(List.of(3L), ids(service.getPopularAmongFriends(1L, 1)));
+    }
+
+    @Test
+    public void shouldInvalidateCachedRankingOnFriendLike() {
+        filmStorage.addLike(2L, 2L);
+        assertEquals(List.of(2L), ids(service.getPopularAmongFriends(1L, 10)));
+
+        filmStorage.addLike(4L, 3L);
+        service.onLikeChanged(new LikeChangedEvent(4L, 3L, true));
+
+        assertEquals(List.of(2L, 4L), ids(service.getPopularAmongFriends(1L, 10)));
+    }
+
+    @Test
+    public void deletingUserShouldNotDropRankingsOfUnrelatedUsers() {
+        userStorage.addFriend(4L, 3L);
+        filmStorage.addLike(1L, 2L);
+        filmStorage.addLike(2L, 2L);
+        assertEquals(List.of(), ids(service.getPopularAmongFriends(4L, 10)));
+
+        // Лайк без события: по нему видно, пересчитан ли рейтинг или взят из кеша
+        filmStorage.addLike(3L, 3L);
+        User deleted = userStorage.delete(2L);
+        filmStorage.removeLikesOf(2L);
+        service.onUserDeleted(new UserDeletedEvent(2L, deleted.getFriends()));
+        service.onLikeChanged(new LikeChangedEvent(1L, 2L, false));
+        service.onLikeChanged(new LikeChangedEvent(2L, 2L, false));
+
+        assertEquals(List.of(), ids(service.getPopularAmongFriends(4L, 10)));
+        assertEquals(List.of(3L), ids(service.getPopularAmongFriends(1L, 10)));
+    }
+
+    @Test
+    public void allStoragesShouldCountFriendVotesInOnePass() {
+        PartitionedFilmStorage partitioned = new PartitionedFilmStorage(userStorage, 3);
+        List<FilmStorage> storages = List.of(filmStorage, new ColumnarFilmStorage(userStorage), partitioned);
+        for (FilmStorage storage : storages) {
+            if (storage != filmStorage) {
+                for (int i = 1; i <= 4; i++) {
+                    Film film = new Film();
+                    film.setName("Film " + i);
+                    film.setDescription("Description");
+                    film.setReleaseDate(LocalDate.of(2000, 1, 1));
+                    film.setDuration(100);
+                    storage.create(film);
+                }
+            }
+            storage.addLike(1L, 2L);
+            storage.addLike(1L, 3L);
+            storage.addLike(1L, 4L);
+            storage.addLike(2L, 3L);
+            storage.addLike(4L, 4L);
+
+            LongLongHashMap votes = storage.countLikesBy(Set.of(2L, 3L));
+            assertEquals(2, votes.size());
+            assertEquals(2, votes.get(1L, 0));
+            assertEquals(1, votes.get(2L, 0));
+            assertTrue(storage.countLikesBy(Set.of()).isEmpty());
+        }
+        partitioned.close();
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraphSnapshot;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipDelta;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FriendGraphSnapshotTest {
+
+    @Test
+    public void shouldApplyDeltasIntoSortedRows() {
+        FriendGraphSnapshot snapshot = FriendGraphSnapshot.empty().apply(List.of(
+                new FriendshipDelta(5, 9, true),
+                new FriendshipDelta(5, 2, true),
+                new FriendshipDelta(2, 5, true),
+                new FriendshipDelta(9, 5, true),
+                new FriendshipDelta(7, 9, true)));
+
+        assertArrayEquals(new long[]{2, 9}, snapshot.neighbors(5));
+        assertArrayEquals(new long[]{5}, snapshot.neighbors(2));
+        assertArrayEquals(new long[]{9}, snapshot.commonNeighbors(5, 7));
+        assertEquals(5, snapshot.getEdgeCount());
+
+        FriendGraphSnapshot next = snapshot.apply(List.of(
+                new FriendshipDelta(5, 9, false),
+                new FriendshipDelta(5, 3, true),
+                new FriendshipDelta(1, 5, true)));
+
+        assertArrayEquals(new long[]{2, 3}, next.neighbors(5));
+        assertArrayEquals(new long[]{5}, next.neighbors(1));
+        assertArrayEquals(new long[]{9}, next.neighbors(7));
+        assertEquals(0, next.commonNeighbors(5, 7).length);
+        assertArrayEquals(new long[]{2, 9}, snapshot.neighbors(5));
+    }
+
+    @Test
+    public void shouldServeFriendsFromSnapshotAfterRebuild() {
+        InMemoryUserStorage storage = new InMemoryUserStorage(60_000);
+        for (int i = 1; i <= 4; i++) {
+            storage.create(User.of(null, "User " + i, "user" + i + "@example.com", "user" + i,
+                    LocalDate.of(1990, 1, 1), new HashSet<>()));
+        }
+        storage.addFriend(1L, 3L);
+        storage.addFriend(2L, 3L);
+        storage.addFriend(1L, 4L);
+
+        assertFalse(storage.getFriendGraph().isClean(1L));
+        storage.getFriendGraph().rebuild();
+        assertTrue(storage.getFriendGraph().isClean(1L));
+
+        List<User> friends = (List<User>) storage.getFriends(1L);
+        assertEquals(List.of(3L, 4L), friends.stream().map(User::getId).toList());
+        List<User> common = (List<User>) storage.getCommonFriends(1L, 2L);
+        assertEquals(1, common.size());
+        assertEquals(3L, common.get(0).getId());
+
+        storage.removeFriend(1L, 4L);
+        assertEquals(1, storage.getFriends(1L).size());
+        storage.close();
+    }
+}
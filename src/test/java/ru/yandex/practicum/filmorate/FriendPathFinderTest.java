@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraphSnapshot;
+import ru.yandex.practicum.filmorate.storage.user.FriendPathFinder;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipDelta;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FriendPathFinderTest {
+
+    @Test
+    public void shouldFindShortestChainInRing() {
+        // Кольцо 1-2-...-10-1: кратчайший путь от 1 до 8 идет через 10 и 9
+        List<FriendshipDelta> deltas = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            long next = id % 10 + 1;
+            deltas.add(new FriendshipDelta(id, next, true));
+            deltas.add(new FriendshipDelta(next, id, true));
+        }
+        FriendGraphSnapshot graph = FriendGraphSnapshot.empty().apply(deltas);
+
+        assertArrayEquals(new long[]{1, 10, 9, 8}, FriendPathFinder.shortestPath(graph::forEachNeighbor, 1, 8, 6));
+        assertArrayEquals(new long[]{3}, FriendPathFinder.shortestPath(graph::forEachNeighbor, 3, 3, 6));
+        assertNull(FriendPathFinder.shortestPath(graph::forEachNeighbor, 1, 6, 4));
+        assertEquals(6, FriendPathFinder.shortestPath(graph::forEachNeighbor, 1, 6, 5).length);
+    }
+
+    @Test
+    public void storageShouldReturnUsersAlongPath() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 1; i <= 4; i++) {
+            storage.create(User.of(null, "User " + i, "user" + i + "@example.com", "user" + i,
+                    LocalDate.of(1990, 1, 1), null));
+        }
+        storage.addFriend(1L, 2L);
+        storage.addFriend(2L, 3L);
+
+        List<User> path = storage.findPath(1L, 3L, 6);
+
+        assertEquals(List.of(1L, 2L, 3L), path.stream().map(User::getId).toList());
+        assertTrue(storage.findPath(1L, 4L, 6).isEmpty());
+    }
+}
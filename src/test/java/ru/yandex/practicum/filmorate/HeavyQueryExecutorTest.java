@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.executor.HeavyQueryExecutor;
+import ru.yandex.practicum.filmorate.executor.QueryCancellation;
+import ru.yandex.practicum.filmorate.storage.user.FriendPathFinder;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeavyQueryExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HeavyQueryExecutor executor;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.close();
+    }
+
+    @Test
+    public void shouldRejectWhenPoolAndQueueAreFull() throws Exception {
+        executor = new HeavyQueryExecutor(1, 1, 5_000);
+        CompletableFuture<String> running = executor.submit(this::blockUntilReleased);
+        CompletableFuture<String> queued = executor.submit(() -> "queued");
+
+        assertThrows(ServiceUnavailableException.class, () -> executor.submit(() -> "rejected"));
+        assertEquals(1, executor.getStats().rejected());
+        while (executor.getStats().activeThreads() == 0) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1.0, executor.getStats().getSaturation());
+
+        release.countDown();
+        assertEquals("released", running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldTimeOutWithoutInterruptingRunningQuery() throws Exception {
+        executor = new HeavyQueryExecutor(1, 1, 50);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CompletableFuture<String> slow = executor.submit(() -> {
+            String result = blockUntilReleased();
+            interrupted.set(Thread.currentThread().isInterrupted());
+            finished.countDown();
+            return result;
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+        // Счетчик увеличивается в потоке таймера уже после того, как ожидающий получил ошибку
+        while (executor.getStats().timedOut() == 0) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1, executor.getStats().timedOut());
+
+        // Запущенное вычисление доходит до конца без interrupt, его результат отбрасывается
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+        assertInstanceOf(ServiceUnavailableException.class,
+                assertThrows(ExecutionException.class, slow::get).getCause());
+        assertEquals("next", executor.submit(() -> "next").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldRemoveTimedOutQueryFromQueue() throws Exception {
+        executor = new HeavyQueryExecutor(1, 1, 5_000);
+        executor.submit(this::blockUntilReleased);
+        CompletableFuture<String> queued = executor.submit(() -> "queued", 50);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+        CompletableFuture<String> next = executor.submit(() -> "next");
+
+        release.countDown();
+        assertEquals("next", next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void timedOutQueryShouldStopAtCheckpoint() throws Exception {
+        executor = new HeavyQueryExecutor(1, 1, 50);
+        AtomicReference<RuntimeException> stoppedBy = new AtomicReference<>();
+        CountDownLatch stopped = new CountDownLatch(1);
+        CompletableFuture<String> endless = executor.submit(() -> {
+            try {
+                for (long i = 0; ; i++) {
+                    QueryCancellation.checkpoint(i);
+                }
+            } catch (RuntimeException e) {
+                stoppedBy.set(e);
+                throw e;
+            } finally {
+                stopped.countDown();
+            }
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> endless.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+        // Вычисление бросается без interrupt, и единственный поток пула освобождается
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, stoppedBy.get());
+        assertEquals("next", executor.submit(() -> "next").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledPathSearchShouldReleaseThread() throws Exception {
+        executor = new HeavyQueryExecutor(1, 1, 5_000);
+        CountDownLatch searching = new CountDownLatch(1);
+        // Две бесконечные цепочки, которые не встречаются: без отмены поиск не закончится
+        FriendPathFinder.Neighbors chain = (id, action) -> {
+            searching.countDown();
+            action.accept(id > 0 ? id + 1 : id - 1);
+        };
+        CompletableFuture<long[]> search = executor.submit(
+                () -> FriendPathFinder.shortestPath(chain, 1, 0, Integer.MAX_VALUE));
+
+        assertTrue(searching.await(5, TimeUnit.SECONDS));
+        search.cancel(false);
+        assertEquals("next", executor.submit(() -> "next").get(5, TimeUnit.SECONDS));
+    }
+
+    private String blockUntilReleased() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
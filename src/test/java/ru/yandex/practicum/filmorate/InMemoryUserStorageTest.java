@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
@@ -9,6 +10,11 @@ import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -92,4 +98,67 @@ public class InMemoryUserStorageTest {
         assertNotNull(exception);
         assertTrue(exception.getMessage().contains("not found"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void friendGraphSnapshotShouldMatchTableAfterConcurrentAddAndRemove() throws Exception {
+        InMemoryUserStorage storage = new InMemoryUserStorage(60_000);
+        for (int i = 1; i <= 4; i++) {
+            storage.create(User.of(null, "User " + i, "user" + i + "@example.com", "user" + i,
+                    LocalDate.of(1990, 1, 1), new HashSet<>()));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                boolean adding = t % 2 == 0;
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 2_000; i++) {
+                        long userId = 1 + i % 2;
+                        long friendId = 3 + i % 2;
+                        if (adding) {
+                            storage.addFriend(userId, friendId);
+                        } else {
+                            storage.removeFriend(userId, friendId);
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        storage.getFriendGraph().rebuild();
+        for (long id = 1; id <= 4; id++) {
+            assertTrue(storage.getFriendGraph().isClean(id));
+            long[] expected = storage.findById(id).getFriends().stream().mapToLong(Long::longValue).sorted().toArray();
+            assertArrayEquals(expected, storage.getFriendGraph().snapshot().neighbors(id));
+        }
+    }
+
+    @Test
+    public void shouldRejectUpdateToAnotherUsersEmail() {
+        User user1 = userStorage.create(User.of(null, "User 1", "user1@example.com", "user1",
+                LocalDate.of(1990, 1, 1), new HashSet<>()));
+        User user2 = userStorage.create(User.of(null, "User 2", "user2@example.com", "user2",
+                LocalDate.of(1990, 1, 1), new HashSet<>()));
+
+        assertThrows(DuplicatedDataException.class, () -> userStorage.update(User.of(user2.getId(), "User 2",
+                "user1@example.com", "user2", LocalDate.of(1990, 1, 1), null)));
+        assertEquals("user2@example.com", userStorage.findById(user2.getId()).getEmail());
+
+        userStorage.update(User.of(user1.getId(), "User 1", "new@example.com", "user1", LocalDate.of(1990, 1, 1),
+                null));
+        userStorage.update(User.of(user2.getId(), "User 2", "user1@example.com", "user2", LocalDate.of(1990, 1, 1),
+                null));
+        assertThrows(DuplicatedDataException.class, () -> userStorage.create(User.of(null, "User 3",
+                "new@example.com", "user3", LocalDate.of(1990, 1, 1), null)));
+        userStorage.create(User.of(null, "User 3", "user2@example.com", "user3", LocalDate.of(1990, 1, 1), null));
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.loadgen.LoadGeneratorConfig;
+import ru.yandex.practicum.filmorate.loadgen.LoadReport;
+import ru.yandex.practicum.filmorate.loadgen.Operation;
+import ru.yandex.practicum.filmorate.loadgen.WorkloadModel;
+import ru.yandex.practicum.filmorate.loadgen.ZipfSampler;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void shouldSampleRanksWithZipfFrequencies() {
+        ZipfSampler sampler = new ZipfSampler(100, 1.0);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] hits = new int[100];
+        int samples = 200_000;
+        for (int i = 0; i < samples; i++) {
+            hits[sampler.sample(random)]++;
+        }
+
+        // P(k) = 1 / ((k + 1) * H(100)), H(100) ~ 5.187
+        assertEquals(samples / 5.187, hits[0], samples * 0.01);
+        assertEquals(2.0, (double) hits[0] / hits[1], 0.1);
+        assertEquals(10.0, (double) hits[0] / hits[9], 1.0);
+    }
+
+    @Test
+    public void shouldSampleUniformlyWithZeroExponentAndStayInRange() {
+        ZipfSampler sampler = new ZipfSampler(4, 0);
+        SplittableRandom random = new SplittableRandom(11);
+        int[] hits = new int[4];
+        for (int i = 0; i < 40_000; i++) {
+            hits[sampler.sample(random)]++;
+        }
+        for (int count : hits) {
+            assertEquals(10_000, count, 400);
+        }
+
+        ZipfSampler single = new ZipfSampler(1, 1.5);
+        assertEquals(0, single.sample(random));
+    }
+
+    @Test
+    public void shouldComputeNearestRankPercentiles() {
+        long[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+        assertEquals(5, LoadReport.percentile(sorted, 50));
+        assertEquals(9, LoadReport.percentile(sorted, 90));
+        assertEquals(10, LoadReport.percentile(sorted, 99));
+        assertEquals(10, LoadReport.percentile(sorted, 99.9));
+        assertEquals(1, LoadReport.percentile(sorted, 0));
+        assertEquals(42, LoadReport.percentile(new long[]{42}, 99));
+    }
+
+    @Test
+    public void shouldParseDefaultsAndOverrides() {
+        LoadGeneratorConfig defaults = LoadGeneratorConfig.parse(new String[0]);
+        assertEquals(URI.create("http://localhost:8080"), defaults.getBaseUrl());
+        assertEquals(WorkloadModel.CLOSED, defaults.getModel());
+        assertEquals(7, defaults.getMix().size());
+        assertFalse(defaults.isSeedOnly());
+
+        LoadGeneratorConfig config = LoadGeneratorConfig.parse(new String[]{
+                "--base-url=http://127.0.0.1:9090", "--users=50", "--zipf=0.8", "--model=open", "--rate=120",
+                "--mix=getFilm:3,like:1,popular:0", "--seed-only"});
+        assertEquals(URI.create("http://127.0.0.1:9090"), config.getBaseUrl());
+        assertEquals(50, config.getUsers());
+        assertEquals(0.8, config.getZipfExponent(), 1e-9);
+        assertEquals(WorkloadModel.OPEN, config.getModel());
+        assertEquals(120, config.getRatePerSecond(), 1e-9);
+        assertEquals(Map.of(Operation.GET_FILM, 3, Operation.LIKE, 1), config.getMix());
+        assertTrue(config.isSeedOnly());
+    }
+
+    @Test
+    public void shouldRejectInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> LoadGeneratorConfig.parse(new String[]{"--base-url=http://example.com"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorConfig.parse(new String[]{"users=10"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorConfig.parse(new String[]{"--users=1"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorConfig.parse(new String[]{"--mix=fly:1"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorConfig.parse(new String[]{"--mix=like:0"}));
+    }
+}
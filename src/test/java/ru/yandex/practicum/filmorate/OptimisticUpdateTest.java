@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptimisticUpdateTest {
+
+    @Test
+    public void shouldRejectStaleFilmUpdate() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(new InMemoryUserStorage());
+        Film film = film("Original");
+        storage.create(film);
+        assertEquals(1L, film.getVersion());
+
+        Film first = film("First");
+        first.setId(film.getId());
+        first.setVersion(1L);
+        assertEquals(2L, storage.update(first).getVersion());
+
+        Film stale = film("Stale");
+        stale.setId(film.getId());
+        stale.setVersion(1L);
+        assertThrows(VersionConflictException.class, () -> storage.update(stale));
+        assertEquals("First", storage.findById(film.getId()).getName());
+    }
+
+    @Test
+    public void userUpdateShouldKeepFriends() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        User user = storage.create(User.of(null, "User 1", "user1@example.com", "user1", LocalDate.of(1990, 1, 1), null));
+        User friend = storage.create(User.of(null, "User 2", "user2@example.com", "user2", LocalDate.of(1990, 1, 1), null));
+        storage.addFriend(user.getId(), friend.getId());
+
+        User updated = storage.update(User.of(user.getId(), "Renamed", "user1@example.com", "user1",
+                LocalDate.of(1990, 1, 1), Set.of(), 1L));
+
+        assertEquals(Set.of(friend.getId()), updated.getFriends());
+        assertEquals(2L, updated.getVersion());
+        assertThrows(VersionConflictException.class, () -> storage.update(User.of(user.getId(), "Stale",
+                "user1@example.com", "user1", LocalDate.of(1990, 1, 1), Set.of(), 1L)));
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+}
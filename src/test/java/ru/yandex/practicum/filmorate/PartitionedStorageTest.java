@@ -0,0 +1,240 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedUserStorage;
+import ru.yandex.practicum.filmorate.storage.partition.ScatterGather;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedStorageTest {
+
+    private PartitionedUserStorage userStorage;
+    private PartitionedFilmStorage filmStorage;
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        userStorage = new PartitionedUserStorage(4);
+        filmStorage = new PartitionedFilmStorage(userStorage, 4);
+        users.clear();
+        for (int i = 1; i <= 20; i++) {
+            User user = User.of(null, "User " + i, "user" + i + "@example.com", "user" + i,
+                    LocalDate.of(1990, 1, 1), new HashSet<>());
+            users.add(userStorage.create(user));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        filmStorage.close();
+        userStorage.close();
+    }
+
+    @Test
+    public void closedScatterGatherShouldRejectNewWork() {
+        ScatterGather scatterGather = new ScatterGather(2, "test-partition");
+        assertEquals(List.of(2, 4), scatterGather.scatter(List.of(1, 2), x -> x * 2));
+
+        scatterGather.close();
+        assertThrows(RejectedExecutionException.class, () -> scatterGather.scatter(List.of(1, 2), x -> x));
+    }
+
+    @Test
+    public void shouldReturnAllUsersSortedById() {
+        List<User> all = new ArrayList<>(userStorage.findAll());
+
+        assertEquals(20, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(i + 1L, all.get(i).getId());
+        }
+    }
+
+    @Test
+    public void shouldRejectDuplicateEmailFromAnotherPartition() {
+        User duplicate = User.of(null, "Copy", "user7@example.com", "copy", LocalDate.of(1990, 1, 1), new HashSet<>());
+
+        assertThrows(DuplicatedDataException.class, () -> userStorage.create(duplicate));
+    }
+
+    @Test
+    public void shouldAcceptOnlyOneOfConcurrentCreatesWithSameEmail() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int n = i;
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    userStorage.create(User.of(null, "Racer", "race@example.com", "racer" + n,
+                            LocalDate.of(1990, 1, 1), new HashSet<>()));
+                    return true;
+                } catch (DuplicatedDataException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int created = 0;
+        for (Future<Boolean> result : results) {
+            created += result.get(5, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        pool.shutdown();
+
+        assertEquals(1, created);
+        assertEquals(21, userStorage.findAll().size());
+    }
+
+    @Test
+    public void shouldRejectUpdateToAnotherUsersEmailAndKeepOldEmailFree() {
+        User first = users.get(0);
+        User taken = User.of(first.getId(), "User 1", "user2@example.com", "user1", LocalDate.of(1990, 1, 1), null);
+        assertThrows(DuplicatedDataException.class, () -> userStorage.update(taken));
+
+        userStorage.update(User.of(first.getId(), "User 1", "renamed@example.com", "user1",
+                LocalDate.of(1990, 1, 1), null));
+        userStorage.create(User.of(null, "New", "user1@example.com", "new", LocalDate.of(1990, 1, 1), null));
+        assertThrows(DuplicatedDataException.class, () -> userStorage.create(User.of(null, "Copy",
+                "renamed@example.com", "copy", LocalDate.of(1990, 1, 1), null)));
+    }
+
+    @Test
+    public void shouldNotChangeObjectsAlreadyHandedToReaders() {
+        long id = users.get(0).getId();
+        User read = userStorage.findById(id);
+        userStorage.update(User.of(id, "Changed", "changed@example.com", "changed", LocalDate.of(1991, 1, 1), null));
+        userStorage.addFriend(id, users.get(1).getId());
+
+        assertEquals("user1@example.com", read.getEmail());
+        assertTrue(read.getFriends().isEmpty());
+        assertEquals("changed@example.com", userStorage.findById(id).getEmail());
+    }
+
+    @Test
+    public void shouldGetCommonFriendsAcrossPartitions() {
+        long first = users.get(0).getId();
+        long second = users.get(1).getId();
+        for (int i = 2; i < 20; i++) {
+            userStorage.addFriend(first, users.get(i).getId());
+            if (i % 2 == 0) {
+                userStorage.addFriend(second, users.get(i).getId());
+            }
+        }
+
+        List<User> common = (List<User>) userStorage.getCommonFriends(first, second);
+
+        assertEquals(9, common.size());
+        for (User user : common) {
+            assertEquals(1, user.getId() % 2);
+        }
+        assertEquals(2, ((List<User>) userStorage.getFriends(users.get(2).getId())).size());
+    }
+
+    @Test
+    public void shouldNotLeaveLinksToUsersDeletedConcurrently() throws Exception {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        long filmId = filmStorage.create(film).getId();
+        List<Long> doomed = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            doomed.add(userStorage.create(User.of(null, "Doomed", "doomed" + i + "@example.com", "doomed" + i,
+                    LocalDate.of(1990, 1, 1), null)).getId());
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong target = new AtomicLong(doomed.get(0));
+        AtomicBoolean done = new AtomicBoolean();
+        List<Future<?>> tasks = new ArrayList<>();
+        // Пользователи удаляются вместе с каскадом лайков, а другие потоки в это время дружат именно
+        // с удаляемым и лайкают от его имени
+        tasks.add(pool.submit(() -> {
+            start.await();
+            for (Long id : doomed) {
+                target.set(id);
+                userStorage.delete(id);
+                filmStorage.removeLikesOf(id);
+            }
+            done.set(true);
+            return null;
+        }));
+        for (int t = 0; t < 3; t++) {
+            long friend = users.get(t).getId();
+            tasks.add(pool.submit(() -> {
+                start.await();
+                while (!done.get()) {
+                    long id = target.get();
+                    try {
+                        userStorage.addFriend(friend, id);
+                        filmStorage.addLike(filmId, id);
+                    } catch (NotFoundException ignored) {
+                        // Пользователь уже удален
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        for (User user : users) {
+            for (Long friendId : userStorage.findById(user.getId()).getFriends()) {
+                assertFalse(doomed.contains(friendId), "user " + user.getId() + " keeps deleted friend " + friendId);
+            }
+        }
+        for (Long userId : filmStorage.findById(filmId).getLikedUsers()) {
+            assertFalse(doomed.contains(userId), "film keeps like of deleted user " + userId);
+        }
+    }
+
+    @Test
+    public void shouldMergeTopFilmsFromAllPartitions() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            films.add(filmStorage.create(film));
+        }
+        for (int i = 0; i < films.size(); i++) {
+            for (int u = 0; u < i; u++) {
+                filmStorage.addLike(films.get(i).getId(), users.get(u).getId());
+            }
+        }
+
+        List<Film> top = filmStorage.getTopFilms(3);
+
+        assertEquals(3, top.size());
+        assertEquals(12L, top.get(0).getId());
+        assertEquals(11L, top.get(1).getId());
+        assertEquals(10L, top.get(2).getId());
+        assertEquals(12, filmStorage.findAll().size());
+    }
+}
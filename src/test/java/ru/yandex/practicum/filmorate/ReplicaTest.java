@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.event.UserSavedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.replication.ChangeLog;
+import ru.yandex.practicum.filmorate.replication.ChangeRecord;
+import ru.yandex.practicum.filmorate.replication.Replica;
+import ru.yandex.practicum.filmorate.replication.ReplicaRouter;
+import ru.yandex.practicum.filmorate.replication.ReplicationTransport;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicaTest {
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+    private ManualTransport transport;
+    private ChangeLog changeLog;
+
+    @BeforeEach
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        transport = new ManualTransport();
+        changeLog = new ChangeLog(filmStorage, userStorage, transport, 1);
+    }
+
+    @Test
+    public void shouldServeReadsFromReplicaAfterApplyingLog() {
+        ReplicaRouter router = new ReplicaRouter(changeLog, transport, 1, 60_000);
+        createUsers(3);
+        userStorage.addFriend(1L, 2L);
+        changeLog.onFriendshipChanged(new FriendshipChangedEvent(1L, 2L, true));
+        Film film = createFilm();
+        filmStorage.addLike(film.getId(), 3L);
+        changeLog.onLikeChanged(new LikeChangedEvent(film.getId(), 3L, true));
+        transport.deliver();
+
+        UserStorage users = router.users(userStorage);
+        assertNotSame(userStorage, users);
+        assertEquals(List.of(2L), users.getFriends(1L).stream().map(User::getId).toList());
+        FilmStorage films = router.films(filmStorage);
+        assertEquals(Set.of(3L), films.getTopFilms(1).get(0).getLikedUsers());
+        assertThrows(UnsupportedOperationException.class, () -> users.addFriend(1L, 3L));
+        assertEquals(changeLog.getLastSequence(), router.getStats().replicas().get(0).appliedSequence());
+    }
+
+    @Test
+    public void shouldApplyDeletionCascadeToFriends() {
+        ReplicaRouter router = new ReplicaRouter(changeLog, transport, 1, 60_000);
+        createUsers(2);
+        userStorage.addFriend(1L, 2L);
+        changeLog.onFriendshipChanged(new FriendshipChangedEvent(1L, 2L, true));
+        User deleted = userStorage.delete(1L);
+        changeLog.onUserDeleted(new UserDeletedEvent(1L, deleted.getFriends()));
+        transport.deliver();
+
+        UserStorage users = router.users(userStorage);
+        assertThrows(NotFoundException.class, () -> users.findById(1L));
+        assertTrue(users.getFriends(2L).isEmpty());
+    }
+
+    @Test
+    public void shouldFallBackToPrimaryWhenReplicaLags() throws InterruptedException {
+        ReplicaRouter router = new ReplicaRouter(changeLog, transport, 1, 0);
+        createUsers(1);
+        transport.deliver();
+        assertNotSame(userStorage, router.users(userStorage));
+
+        // Запись опубликована, но реплика ее еще не получила
+        userStorage.create(User.of(null, "Late", "late@example.com", "late", LocalDate.of(1990, 1, 1), null));
+        changeLog.onUserSaved(new UserSavedEvent(2L));
+        Thread.sleep(1);
+        assertSame(userStorage, router.users(userStorage));
+        assertEquals(2L, router.users(userStorage).findById(2L).getId());
+
+        transport.deliver();
+        assertNotSame(userStorage, router.users(userStorage));
+        assertEquals(2, router.getStats().primaryReads());
+    }
+
+    @Test
+    public void likesAndFriendshipsShouldBePublishedAsDeltas() {
+        createUsers(2);
+        Film film = createFilm();
+        filmStorage.addLike(film.getId(), 1L);
+        changeLog.onLikeChanged(new LikeChangedEvent(film.getId(), 1L, true));
+        userStorage.addFriend(1L, 2L);
+        changeLog.onFriendshipChanged(new FriendshipChangedEvent(1L, 2L, true));
+
+        List<ChangeRecord> records = transport.buffered.subList(3, transport.buffered.size());
+        assertEquals(List.of(ChangeRecord.LikeChanged.class, ChangeRecord.FriendshipChanged.class,
+                ChangeRecord.FriendshipChanged.class), records.stream().map(Object::getClass).toList());
+        assertTrue(((ChangeRecord.LikeChanged) records.get(0)).liked());
+    }
+
+    @Test
+    public void racingLikeEventsShouldConvergeToPrimaryState() {
+        ReplicaRouter router = new ReplicaRouter(changeLog, transport, 1, 60_000);
+        createUsers(1);
+        Film film = createFilm();
+        // Снятие лайка успело раньше, чем журнал обработал событие добавления
+        filmStorage.addLike(film.getId(), 1L);
+        filmStorage.removeLike(film.getId(), 1L);
+        changeLog.onLikeChanged(new LikeChangedEvent(film.getId(), 1L, true));
+        changeLog.onLikeChanged(new LikeChangedEvent(film.getId(), 1L, false));
+        transport.deliver();
+
+        assertTrue(router.films(filmStorage).findById(film.getId()).getLikedUsers().isEmpty());
+    }
+
+    @Test
+    public void replicaShouldAdvanceAppliedSequenceOnlyOverContiguousRecords() {
+        Replica replica = new Replica("replica");
+        User first = User.of(1L, "First", "first@example.com", "first", LocalDate.of(1990, 1, 1), Set.of());
+        User second = User.of(2L, "Second", "second@example.com", "second", LocalDate.of(1990, 1, 1), Set.of());
+        // Записи разных пользователей обогнали первую запись журнала
+        replica.apply(new ChangeRecord.UserChanged(3, System.nanoTime(), 2L, second));
+        replica.apply(new ChangeRecord.UserChanged(2, System.nanoTime(), 1L, first));
+        assertEquals(0, replica.getAppliedSequence());
+        assertEquals(2, replica.users().findAll().size());
+
+        replica.apply(new ChangeRecord.FilmChanged(1, System.nanoTime(), 1L, null));
+        assertEquals(3, replica.getAppliedSequence());
+        // Повтор уже примененной записи игнорируется
+        replica.apply(new ChangeRecord.UserChanged(2, System.nanoTime(), 1L, null));
+        assertEquals(1L, replica.users().findById(1L).getId());
+    }
+
+    private void createUsers(int count) {
+        for (int i = 1; i <= count; i++) {
+            User user = userStorage.create(User.of(null, "User " + i, "user" + i + "@example.com", "user" + i,
+                    LocalDate.of(1990, 1, 1), null));
+            changeLog.onUserSaved(new UserSavedEvent(user.getId()));
+        }
+    }
+
+    private Film createFilm() {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        Film created = filmStorage.create(film);
+        changeLog.onFilmSaved(new FilmSavedEvent(created.getId()));
+        return created;
+    }
+
+    // Транспорт без потоков: записи доходят до подписчиков только по deliver()
+    private static class ManualTransport implements ReplicationTransport {
+
+        private final Map<String, Consumer<ChangeRecord>> subscribers = new HashMap<>();
+        private final List<ChangeRecord> buffered = new ArrayList<>();
+
+        @Override
+        public void publish(ChangeRecord record) {
+            buffered.add(record);
+        }
+
+        @Override
+        public void subscribe(String subscriber, Consumer<ChangeRecord> consumer) {
+            subscribers.put(subscriber, consumer);
+        }
+
+        @Override
+        public long pending(String subscriber) {
+            return buffered.size();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        void deliver() {
+            buffered.forEach(record -> subscribers.values().forEach(consumer -> consumer.accept(record)));
+            buffered.clear();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void shouldShareOneComputationBetweenConcurrentCalls() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>("test", 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute(10, () -> {
+            computations.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "top-10";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> flight.execute(10, () -> {
+            computations.incrementAndGet();
+            return "own";
+        }));
+        while (flight.getStats().coalesced() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertEquals("top-10", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("top-10", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, computations.get());
+        assertEquals(0.5, flight.getStats().getCoalescingRatio());
+    }
+
+    @Test
+    public void shouldNotJoinComputationStartedBeforeInvalidate() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>("test", 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> stale = CompletableFuture.supplyAsync(() -> flight.execute(10, () -> {
+            started.countDown();
+            await(release);
+            return "before write";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        flight.invalidate();
+
+        assertEquals("after write", flight.execute(10, () -> "after write"));
+        release.countDown();
+        assertEquals("before write", stale.get(5, TimeUnit.SECONDS));
+        assertEquals(0, flight.getStats().coalesced());
+    }
+
+    @Test
+    public void shouldServeCachedResultWithinTtlAndShareErrors() {
+        SingleFlight<Integer, String> cached = new SingleFlight<>("test", 60_000);
+        assertEquals("first", cached.execute(1, () -> "first"));
+        cached.invalidate();
+        assertEquals("first", cached.execute(1, () -> "second"));
+        assertEquals(1, cached.getStats().cacheHits());
+
+        SingleFlight<Integer, String> failing = new SingleFlight<>("test", 60_000);
+        assertThrows(NotFoundException.class, () -> failing.execute(1, () -> {
+            throw new NotFoundException("Film with id 1 not found");
+        }));
+        assertEquals("found", failing.execute(1, () -> "found"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.event.UserSavedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.GlobalStats;
+import ru.yandex.practicum.filmorate.service.StatsService;
+import ru.yandex.practicum.filmorate.storage.HyperLogLog;
+import ru.yandex.practicum.filmorate.storage.film.ColumnarFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatsServiceTest {
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+    private StatsService statsService;
+
+    @BeforeEach
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        Clock clock = Clock.fixed(Instant.parse("2024-05-01T12:00:00Z"), ZoneOffset.UTC);
+        statsService = new StatsService(filmStorage, userStorage, 7, clock);
+        for (int i = 1; i <= 3; i++) {
+            User user = userStorage.create(User.of(null, "User " + i, "user" + i + "@example.com", "user" + i,
+                    LocalDate.of(1990, 1, 1), null));
+            statsService.onUserSaved(new UserSavedEvent(user.getId()));
+        }
+        for (int i = 1; i <= 2; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            statsService.onFilmSaved(new FilmSavedEvent(filmStorage.create(film).getId()));
+        }
+    }
+
+    @Test
+    public void shouldTrackTotalsAndHistogramsFromEvents() {
+        like(1L, 1L);
+        like(1L, 2L);
+        like(1L, 2L);
+        like(2L, 3L);
+        befriend(1L, 2L);
+        befriend(1L, 3L);
+
+        GlobalStats stats = statsService.getStats();
+        assertEquals(3, stats.users());
+        assertEquals(2, stats.films());
+        assertEquals(3, stats.likes());
+        assertEquals(2, stats.friendships());
+        // Фильмы: один с одним лайком, один с двумя
+        assertEquals(List.of(new GlobalStats.Bucket(0, 0, 0), new GlobalStats.Bucket(1, 1, 1),
+                new GlobalStats.Bucket(2, 3, 1)), stats.filmsByLikes());
+        // Пользователи: двое с одним другом, один с двумя
+        assertEquals(List.of(new GlobalStats.Bucket(0, 0, 0), new GlobalStats.Bucket(1, 1, 2),
+                new GlobalStats.Bucket(2, 3, 1)), stats.usersByFriends());
+        assertEquals(List.of(new GlobalStats.DailyLikers(LocalDate.of(2024, 5, 1), 3)), stats.activeLikers());
+
+        filmStorage.removeLike(1L, 2L);
+        statsService.onLikeChanged(new LikeChangedEvent(1L, 2L, false));
+        User deleted = userStorage.delete(1L);
+        statsService.onUserDeleted(new UserDeletedEvent(1L, deleted.getFriends()));
+
+        stats = statsService.getStats();
+        assertEquals(2, stats.users());
+        assertEquals(2, stats.likes());
+        assertEquals(0, stats.friendships());
+        assertEquals(List.of(new GlobalStats.Bucket(0, 0, 2)), stats.usersByFriends());
+    }
+
+    @Test
+    public void createdFilmShouldIgnoreLikesFromRequestBody() {
+        Film film = new Film();
+        film.setName("Film 3");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setLikedUsers(new HashSet<>(Set.of(1L, 2L)));
+        Film created = filmStorage.create(film);
+        statsService.onFilmSaved(new FilmSavedEvent(created.getId()));
+        like(created.getId(), 1L);
+
+        assertEquals(Set.of(1L), filmStorage.findById(created.getId()).getLikedUsers());
+        GlobalStats stats = statsService.getStats();
+        assertEquals(1, stats.likes());
+        assertEquals(1, stats.filmsByLikes().get(1).count());
+
+        // Остальные хранилища ведут себя так же
+        for (FilmStorage storage : List.of(new ColumnarFilmStorage(userStorage),
+                new PartitionedFilmStorage(userStorage, 2))) {
+            Film other = new Film();
+            other.setName("Film");
+            other.setReleaseDate(LocalDate.of(2000, 1, 1));
+            other.setDuration(100);
+            other.setLikedUsers(new HashSet<>(Set.of(1L)));
+            assertTrue(storage.findById(storage.create(other).getId()).getLikedUsers().isEmpty());
+        }
+    }
+
+    @Test
+    public void shouldApplyConcurrentLikeEventsWithoutLosingUpdates() throws InterruptedException {
+        int threads = 4;
+        int perThread = 2_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long filmId = 1 + t % 2;
+            long firstUser = 10_000L * (t + 1);
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    statsService.onLikeChanged(new LikeChangedEvent(filmId, firstUser + i, true));
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // Удаленный фильм события не возвращают в итоги
+        statsService.onFilmDeleted(new FilmDeletedEvent(2L, Set.of()));
+        statsService.onLikeChanged(new LikeChangedEvent(2L, 1L, true));
+
+        GlobalStats stats = statsService.getStats();
+        assertEquals(1, stats.films());
+        assertEquals(2L * perThread, stats.likes());
+        assertEquals(1, stats.filmsByLikes().get(stats.filmsByLikes().size() - 1).count());
+        assertEquals(threads * perThread, stats.activeLikers().get(0).distinctUsers(), threads * perThread * 0.02);
+    }
+
+    @Test
+    public void shouldEstimateDistinctValuesWithinTwoPercent() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (long id = 1; id <= 100_000; id++) {
+            sketch.add(id);
+            sketch.add(id);
+        }
+        assertEquals(100_000, sketch.estimate(), 2_000);
+
+        HyperLogLog small = new HyperLogLog(14);
+        for (long id = 1; id <= 50; id++) {
+            small.add(id);
+        }
+        assertEquals(50, small.estimate(), 1);
+    }
+
+    // Как и сервисы, событие публикуется только на настоящее изменение
+    private void like(long filmId, long userId) {
+        if (filmStorage.addLike(filmId, userId)) {
+            statsService.onLikeChanged(new LikeChangedEvent(filmId, userId, true));
+        }
+    }
+
+    private void befriend(long userId, long friendId) {
+        if (userStorage.addFriend(userId, friendId)) {
+            statsService.onFriendshipChanged(new FriendshipChangedEvent(userId, friendId, true));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.film.TieredFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.TieredUserStorage;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredStorageTest {
+
+    @TempDir
+    Path directory;
+
+    private TieredUserStorage userStorage;
+    private TieredFilmStorage filmStorage;
+
+    @BeforeEach
+    public void setUp() {
+        // В куче по одной сущности, остальные уходят в файл
+        userStorage = new TieredUserStorage(directory, 1, 60_000);
+        filmStorage = new TieredFilmStorage(userStorage, directory, 1, 60_000);
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(user(null, "user" + i + "@example.com", null));
+        }
+        for (int i = 1; i <= 4; i++) {
+            filmStorage.create(film("Film " + i));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        filmStorage.close();
+        userStorage.close();
+    }
+
+    @Test
+    public void updateShouldRejectEmailOwnedByAnotherUser() {
+        assertThrows(DuplicatedDataException.class,
+                () -> userStorage.update(user(2L, "user1@example.com", null)));
+
+        assertEquals("user1@example.com", userStorage.findById(1L).getEmail());
+        assertEquals("user2@example.com", userStorage.findById(2L).getEmail());
+        // Старый email второго пользователя по-прежнему занят им
+        assertThrows(DuplicatedDataException.class,
+                () -> userStorage.create(user(null, "user2@example.com", null)));
+
+        userStorage.update(user(2L, "renamed@example.com", null));
+        assertEquals(4L, userStorage.create(user(null, "user2@example.com", null)).getId());
+    }
+
+    @Test
+    public void failedUpdateShouldReleaseClaimedEmail() {
+        assertThrows(VersionConflictException.class,
+                () -> userStorage.update(user(1L, "conflict@example.com", 99L)));
+        assertThrows(NotFoundException.class,
+                () -> userStorage.update(user(42L, "missing@example.com", null)));
+
+        assertEquals("user1@example.com", userStorage.findById(1L).getEmail());
+        userStorage.create(user(null, "conflict@example.com", null));
+        userStorage.create(user(null, "missing@example.com", null));
+    }
+
+    @Test
+    public void likeQueriesShouldUseReverseIndex() {
+        filmStorage.addLike(1L, 1L);
+        filmStorage.addLike(3L, 1L);
+        filmStorage.addLike(3L, 2L);
+        filmStorage.addLike(4L, 2L);
+
+        long faultIns = filmStorage.getTable().getFaultIns();
+        assertEquals(List.of(1L, 3L), filmStorage.getLikedFilmIds(1L));
+        LongLongHashMap votes = filmStorage.countLikesBy(Set.of(1L, 2L, 3L));
+        assertEquals(3, votes.size());
+        assertEquals(1, votes.get(1L, 0));
+        assertEquals(2, votes.get(3L, 0));
+        assertEquals(1, votes.get(4L, 0));
+        // Запросы по индексу не поднимают фильмы из файла
+        assertEquals(faultIns, filmStorage.getTable().getFaultIns());
+
+        filmStorage.removeLike(3L, 2L);
+        filmStorage.delete(4L);
+        assertEquals(List.of(), filmStorage.getLikedFilmIds(2L));
+
+        filmStorage.removeLikesOf(1L);
+        assertEquals(List.of(), filmStorage.getLikedFilmIds(1L));
+        assertEquals(Set.of(), filmStorage.findById(1L).getLikedUsers());
+        assertEquals(Set.of(), filmStorage.findById(3L).getLikedUsers());
+        assertTrue(filmStorage.countLikesBy(Set.of(1L, 2L)).isEmpty());
+    }
+
+    @Test
+    public void createShouldIgnoreLikesFromRequestBody() {
+        Film film = film("Film 5");
+        film.setLikedUsers(new HashSet<>(Set.of(1L, 2L)));
+        long id = filmStorage.create(film).getId();
+
+        assertEquals(Set.of(), filmStorage.findById(id).getLikedUsers());
+        assertEquals(List.of(), filmStorage.getLikedFilmIds(1L));
+        assertFalse(filmStorage.hasLike(id, 2L));
+    }
+
+    private static User user(Long id, String email, Long version) {
+        User user = User.of(id, "Name", email, "login", LocalDate.of(1990, 1, 1), null);
+        user.setVersion(version);
+        return user;
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+}
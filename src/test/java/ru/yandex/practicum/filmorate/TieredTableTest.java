@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.tier.FilmCodec;
+import ru.yandex.practicum.filmorate.storage.tier.MappedSegmentFile;
+import ru.yandex.practicum.filmorate.storage.tier.TieredTable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredTableTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldSpillColdFilmsAndFaultThemBackIn() {
+        try (TieredTable<Film> table = new TieredTable<>(new MappedSegmentFile(directory, "films-"),
+                new FilmCodec(), 2)) {
+            for (long id = 1; id <= 5; id++) {
+                table.put(id, film(id, "Film " + id, Set.of(id * 10)));
+            }
+
+            assertEquals(5, table.size());
+            assertEquals(2, table.getHotSize());
+            assertEquals(3, table.getColdSize());
+            assertTrue(table.getFileBytes() > 0);
+
+            Film first = table.get(1L);
+            assertEquals("Film 1", first.getName());
+            assertEquals(LocalDate.of(2000, 1, 1), first.getReleaseDate());
+            assertEquals(Set.of(10L), first.getLikedUsers());
+            assertEquals(1, table.getFaultIns());
+            assertEquals(2, table.getHotSize());
+
+            List<Long> ids = new ArrayList<>();
+            table.forEach(film -> ids.add(film.getId()));
+            assertEquals(5, ids.size());
+            assertEquals(1, table.getFaultIns());
+        }
+    }
+
+    @Test
+    public void shouldNotServeStaleCopyAfterUpdateOrRemove() {
+        try (TieredTable<Film> table = new TieredTable<>(new MappedSegmentFile(directory, "films-"),
+                new FilmCodec(), 1)) {
+            table.put(1L, film(1L, "Old", Set.of()));
+            table.put(2L, film(2L, "Other", Set.of()));
+            table.put(1L, film(1L, "New", Set.of(7L)));
+            table.put(3L, film(3L, "Third", Set.of()));
+
+            assertEquals("New", table.get(1L).getName());
+            assertEquals(Set.of(7L), table.peek(1L).getLikedUsers());
+
+            assertEquals("Other", table.remove(2L).getName());
+            assertNull(table.get(2L));
+            assertFalse(table.contains(2L));
+            assertEquals(2, table.size());
+        }
+    }
+
+    @Test
+    public void shouldCompactStaleCopiesOnRepeatedUpdates() throws IOException {
+        String padding = "x".repeat(4_000);
+        try (TieredTable<Film> table = new TieredTable<>(new MappedSegmentFile(directory, "films-"),
+                new FilmCodec(), 1)) {
+            for (int round = 0; round < 500; round++) {
+                for (long id = 1; id <= 3; id++) {
+                    table.put(id, film(id, padding + round, Set.of(id)));
+                }
+            }
+
+            // Без компактизации в файле лежало бы около 6 МБ устаревших копий
+            assertTrue(table.getCompactions() > 0);
+            assertTrue(table.getFileBytes() < 256 << 10);
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(1, files.count());
+            }
+            for (long id = 1; id <= 3; id++) {
+                assertEquals(padding + 499, table.peek(id).getName());
+                assertEquals(Set.of(id), table.get(id).getLikedUsers());
+            }
+            assertEquals(3, table.size());
+        }
+    }
+
+    @Test
+    public void snapshotShouldKeepStateAtCallTimeAcrossCompaction() {
+        String padding = "x".repeat(4_000);
+        try (TieredTable<Film> table = new TieredTable<>(new MappedSegmentFile(directory, "films-"),
+                new FilmCodec(), 1)) {
+            for (long id = 1; id <= 3; id++) {
+                table.put(id, film(id, "Film " + id, Set.of(id)));
+            }
+            table.put(4L, film(4L, "Film 4", Set.of()));
+            Collection<Film> snapshot = table.snapshot();
+
+            table.remove(2L);
+            table.put(5L, film(5L, "Film 5", Set.of()));
+            for (int round = 0; round < 500; round++) {
+                for (long id = 1; id <= 3; id++) {
+                    table.put(id, film(id, padding + round, Set.of()));
+                }
+            }
+            assertTrue(table.getCompactions() > 0);
+
+            // Холодные копии читаются из отображений, снятых до компактизации
+            List<String> names = new ArrayList<>();
+            snapshot.forEach(film -> names.add(film.getName()));
+            assertEquals(List.of("Film 1", "Film 2", "Film 3", "Film 4"), names);
+            assertEquals(4, snapshot.size());
+            assertEquals(Set.of(3L), snapshot.stream().skip(2).findFirst().orElseThrow().getLikedUsers());
+        }
+    }
+
+    private static Film film(long id, String name, Set<Long> likes) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        film.setLikedUsers(likes);
+        film.setVersion(1L);
+        return film;
+    }
+}
@@ -1,10 +1,12 @@
 package ru.yandex.practicum.filmorate;
 
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.executor.HeavyQueryExecutor;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.controller.UserController;
@@ -13,12 +15,16 @@ import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class UserControllerTest {
 
+    private static HeavyQueryExecutor heavyQueries;
     private static UserController userController;
     private static User validUser;
     private static User invalidEmailUser;
@@ -30,7 +36,8 @@ public class UserControllerTest {
     @BeforeAll
     public static void start() throws ValidationException, DuplicatedDataException {
         UserStorage userStorage = new InMemoryUserStorage();
-        userController = new UserController(new UserService(userStorage));
+        heavyQueries = new HeavyQueryExecutor(1, 16, 2_000);
+        userController = new UserController(new UserService(userStorage), heavyQueries);
 
         // Валидный пользователь
         validUser = User.of(0L, "Valid User", "valid@mail.ru", "validLogin", LocalDate.parse("2000-01-01", DateTimeFormatter.ofPattern("yyyy-MM-dd")), new HashSet<>());
@@ -83,7 +90,7 @@ public class UserControllerTest {
     @Test
     public void shouldThrowExceptionWhenUpdatingUserWithNoId() {
         ValidationException exception = assertThrows(ValidationException.class, () -> {
-            userController.update(userWithNoId);
+            userController.update(userWithNoId, null);
         });
         assertNotNull(exception);
         assertEquals("User ID cannot be null", exception.getMessage());
@@ -92,9 +99,24 @@ public class UserControllerTest {
     @Test
     public void shouldThrowExceptionWhenUpdatingUserWithWrongId() {
         NotFoundException exception = assertThrows(NotFoundException.class, () -> {
-            userController.update(userWithWrongId);
+            userController.update(userWithWrongId, null);
         });
         assertNotNull(exception);
         assertEquals("User with ID = 999 not found", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReturnFriendsThroughHeavyQueryPool() throws Exception {
+        User friend = userController.create(User.of(0L, "Friend", "friend@mail.ru", "friend",
+                LocalDate.of(2000, 1, 1), new HashSet<>()));
+        userController.addFriend(validUser.getId(), friend.getId());
+
+        Collection<User> friends = userController.getFriends(validUser.getId()).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(friend.getId()), friends.stream().map(User::getId).toList());
+    }
+
+    @AfterAll
+    public static void stop() {
+        heavyQueries.close();
+    }
+}
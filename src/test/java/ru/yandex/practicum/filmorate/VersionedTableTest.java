@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.PersistentTable;
+import ru.yandex.practicum.filmorate.storage.VersionedTable;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionedTableTest {
+
+    @Test
+    public void shouldKeepOldSnapshotsUnchanged() {
+        VersionedTable<String> table = new VersionedTable<>();
+        table.put(1, "one");
+        table.put(5000, "five thousand");
+        PersistentTable<String> before = table.snapshot();
+
+        table.put(2, "two");
+        table.update(current -> current.without(5000));
+
+        assertEquals(List.of("one", "five thousand"), new ArrayList<>(before));
+        assertEquals(List.of("one", "two"), new ArrayList<>(table.snapshot()));
+        assertNull(table.get(5000));
+        assertTrue(table.snapshot().getVersion() > before.getVersion());
+    }
+
+    @Test
+    public void shouldApplyBatchAsSingleVersion() {
+        VersionedTable<String> table = new VersionedTable<>();
+        PersistentTable<String> result = table.update(current -> current.edit()
+                .put(3, "c")
+                .put(1, "a")
+                .put(2, "b")
+                .build());
+
+        assertEquals(1, result.getVersion());
+        assertEquals(3, result.size());
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(result));
+    }
+
+    @Test
+    public void findAllShouldBeStableSnapshot() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(new InMemoryUserStorage());
+        storage.create(film("First"));
+        Collection<Film> snapshot = storage.findAll();
+
+        storage.create(film("Second"));
+
+        assertEquals(1, snapshot.size());
+        assertEquals(2, storage.findAll().size());
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+}